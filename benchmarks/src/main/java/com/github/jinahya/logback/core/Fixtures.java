@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * Shared fixtures of benchmarks. Only the public API available since the first
+ * release is used so that these benchmarks build against any release.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+final class Fixtures {
+
+
+    /**
+     * Creates and starts an appender with its defaults.
+     *
+     * @param context the context
+     * @param limit the limit
+     *
+     * @return a started appender.
+     */
+    static BufferedOutputStreamAppender<ILoggingEvent> appender(
+        final LoggerContext context, final int limit) {
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%message%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        final BufferedOutputStreamAppender<ILoggingEvent> appender
+            = new BufferedOutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setLimit(limit);
+        appender.start();
+        if (!appender.isStarted()) {
+            throw new IllegalStateException("appender not started");
+        }
+
+        return appender;
+    }
+
+
+    /**
+     * Creates an event whose record, with a line separator, is about
+     * specified size.
+     *
+     * @param logger the logger
+     * @param size the size of the record.
+     *
+     * @return a new event.
+     */
+    static ILoggingEvent event(final Logger logger, final int size) {
+
+        final char[] message = new char[Math.max(0, size - 1)];
+        Arrays.fill(message, 'x');
+
+        final LoggingEvent event = new LoggingEvent(
+            Fixtures.class.getName(), logger, Level.INFO, new String(message),
+            null, null);
+        event.prepareForDeferredProcessing();
+
+        return event;
+    }
+
+
+    private Fixtures() {
+
+        super();
+    }
+
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the latency of starting a recorder, logging a few events through
+ * it and finishing it, with {@link LogRecorder} and
+ * {@link ILoggingEventRecorder}.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecorderBenchmark {
+
+
+    private static final int EVENTS = 16;
+
+
+    @Setup
+    public void setup() {
+
+        context = new LoggerContext();
+        logger = context.getLogger("recorder");
+    }
+
+
+    @TearDown
+    public void tearDown() {
+
+        context.stop();
+    }
+
+
+    @Benchmark
+    public Object logRecorder() {
+
+        final LogRecorder recorder = LogRecorder.start(
+            logger, "%message%n", StandardCharsets.UTF_8, 65536);
+        for (int i = 0; i < EVENTS; i++) {
+            logger.info("recorded {}", i);
+        }
+
+        return LogRecorder.finish(recorder);
+    }
+
+
+    @Benchmark
+    public Object eventRecorder() {
+
+        final ILoggingEventRecorder recorder
+            = ILoggingEventRecorder.start(logger, EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            logger.info("recorded {}", i);
+        }
+
+        return ILoggingEventRecorder.finish(recorder);
+    }
+
+
+    private LoggerContext context;
+
+
+    private Logger logger;
+
+
+}
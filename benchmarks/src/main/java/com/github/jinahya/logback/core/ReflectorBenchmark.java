@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares direct calls, {@link Method#invoke(Object, Object...)} and
+ * {@link ILoggingEventRecorderReflector} starting and finishing recorders.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReflectorBenchmark {
+
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+
+        context = new LoggerContext();
+        logger = context.getLogger("reflector");
+        start = ILoggingEventRecorder.class.getMethod(
+            "start", Logger.class, Integer.TYPE);
+        finish = ILoggingEventRecorder.class.getMethod(
+            "finish", ILoggingEventRecorder.class);
+    }
+
+
+    @TearDown
+    public void tearDown() {
+
+        context.stop();
+    }
+
+
+    @Benchmark
+    public Object direct() {
+
+        return ILoggingEventRecorder.finish(
+            ILoggingEventRecorder.start(logger, 16));
+    }
+
+
+    @Benchmark
+    public Object reflected() throws ReflectiveOperationException {
+
+        return finish.invoke(null, start.invoke(null, logger, 16));
+    }
+
+
+    @Benchmark
+    public Object reflector() throws ReflectiveOperationException {
+
+        return ILoggingEventRecorderReflector.finish(
+            ILoggingEventRecorderReflector.start(logger, 16));
+    }
+
+
+    private LoggerContext context;
+
+
+    private Logger logger;
+
+
+    private Method start;
+
+
+    private Method finish;
+
+
+}
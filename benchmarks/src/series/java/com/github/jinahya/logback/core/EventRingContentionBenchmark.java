@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.read.CyclicBufferAppender;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Compares {@link EventRingAppender} with logback's
+ * {@link CyclicBufferAppender} appending from 1, 4, 16 and 64 threads and
+ * taking snapshots of a full buffer.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventRingContentionBenchmark {
+
+
+    private static final int MAX_SIZE = 10000;
+
+
+    @Param({"ring", "cyclic"})
+    private String appender;
+
+
+    @Setup
+    public void setup() {
+
+        context = new LoggerContext();
+        event = new LoggingEvent(
+            getClass().getName(), context.getLogger("contention"), Level.INFO,
+            "message", null, null);
+        if ("ring".equals(appender)) {
+            ring = new EventRingAppender<>();
+            ring.setMaxSize(MAX_SIZE);
+            ring.setContext(context);
+            ring.start();
+        } else if ("cyclic".equals(appender)) {
+            cyclic = new CyclicBufferAppender<>();
+            cyclic.setMaxSize(MAX_SIZE);
+            cyclic.setContext(context);
+            cyclic.start();
+        } else {
+            throw new IllegalArgumentException("unknown appender: " + appender);
+        }
+        for (int i = 0; i < MAX_SIZE; i++) {
+            append();
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() {
+
+        if (ring != null) {
+            ring.stop();
+        }
+        if (cyclic != null) {
+            cyclic.stop();
+        }
+        context.stop();
+    }
+
+
+    private void append() {
+
+        if (ring != null) {
+            ring.doAppend(event);
+        } else {
+            cyclic.doAppend(event);
+        }
+    }
+
+
+    @Benchmark
+    @Threads(1)
+    public void threads1() {
+
+        append();
+    }
+
+
+    @Benchmark
+    @Threads(4)
+    public void threads4() {
+
+        append();
+    }
+
+
+    @Benchmark
+    @Threads(16)
+    public void threads16() {
+
+        append();
+    }
+
+
+    @Benchmark
+    @Threads(64)
+    public void threads64() {
+
+        append();
+    }
+
+
+    @Benchmark
+    public List<ILoggingEvent> snapshot() {
+
+        if (ring != null) {
+            return ring.snapshot();
+        }
+
+        final int length = cyclic.getLength();
+        final List<ILoggingEvent> events = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            events.add(cyclic.get(i));
+        }
+
+        return events;
+    }
+
+
+    private LoggerContext context;
+
+
+    private ILoggingEvent event;
+
+
+    private EventRingAppender<ILoggingEvent> ring;
+
+
+    private CyclicBufferAppender<ILoggingEvent> cyclic;
+
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the throughput of {@link BufferedOutputStreamAppender#doAppend}
+ * for various record sizes, limits and stores. Records larger than a small
+ * limit make every append evict.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoreAppendBenchmark {
+
+
+    @Param({"64", "512", "4096"})
+    private int recordSize;
+
+
+    @Param({"4096", "65536", "1048576"})
+    private int limit;
+
+
+    @Param({"list", "ring", "direct", "compressed"})
+    private String store;
+
+
+    @Setup
+    public void setup() {
+
+        context = new LoggerContext();
+        appender = StoreFixtures.appender(context, store, limit);
+        event = Fixtures.event(context.getLogger("append"), recordSize);
+    }
+
+
+    @TearDown
+    public void tearDown() {
+
+        appender.stop();
+        context.stop();
+    }
+
+
+    @Benchmark
+    public void append() {
+
+        appender.doAppend(event);
+    }
+
+
+    private LoggerContext context;
+
+
+    private BufferedOutputStreamAppender<ILoggingEvent> appender;
+
+
+    private ILoggingEvent event;
+
+
+}
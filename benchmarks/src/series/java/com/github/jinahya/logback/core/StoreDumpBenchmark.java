@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Measures the cost of dumping a full buffer with
+ * {@link BufferedOutputStreamAppender#toByteArray()} and
+ * {@link BufferedOutputStreamAppender#write(OutputStream)} for various
+ * stores.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoreDumpBenchmark {
+
+
+    /**
+     * An output stream discards everything.
+     */
+    private static final class NullOutputStream extends OutputStream {
+
+
+        @Override
+        public void write(final int b) {
+        }
+
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+
+
+    }
+
+
+    @Param({"65536", "1048576"})
+    private int limit;
+
+
+    @Param({"list", "ring", "direct", "concurrent", "striped", "compressed"})
+    private String store;
+
+
+    @Setup
+    public void setup() {
+
+        context = new LoggerContext();
+        appender = StoreFixtures.appender(context, store, limit);
+        final ILoggingEvent event
+            = Fixtures.event(context.getLogger("dump"), 128);
+        for (int i = 0; i < limit / 128 * 2; i++) {
+            appender.doAppend(event);
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() {
+
+        appender.stop();
+        context.stop();
+    }
+
+
+    @Benchmark
+    public void toByteArray(final Blackhole blackhole) {
+
+        blackhole.consume(appender.toByteArray());
+    }
+
+
+    @Benchmark
+    public void write() throws IOException {
+
+        appender.write(output);
+    }
+
+
+    private LoggerContext context;
+
+
+    private BufferedOutputStreamAppender<ILoggingEvent> appender;
+
+
+    private final OutputStream output = new NullOutputStream();
+
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Shared fixtures of benchmarks of record stores which are not available in
+ * releases prior to them.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+final class StoreFixtures {
+
+
+    /**
+     * Creates a new store of specified name.
+     *
+     * @param name the name; {@code list}, {@code ring}, {@code direct},
+     * {@code concurrent}, {@code striped}, {@code level} or {@code compressed}.
+     *
+     * @return a new store.
+     */
+    static RecordStore store(final String name) {
+
+        switch (name) {
+            case "list":
+                return new ListRecordStore();
+            case "ring":
+                return new RingRecordStore();
+            case "direct":
+                return new DirectRecordStore();
+            case "concurrent":
+                return new ConcurrentRecordStore();
+            case "striped":
+                return new StripedRecordStore();
+            case "level":
+                return new LevelRecordStore();
+            case "compressed":
+                return new CompressedRecordStore();
+            default:
+                throw new IllegalArgumentException("unknown store: " + name);
+        }
+    }
+
+
+    /**
+     * Creates and starts an appender.
+     *
+     * @param context the context
+     * @param store the name of the store.
+     * @param limit the limit
+     *
+     * @return a started appender.
+     */
+    static BufferedOutputStreamAppender<ILoggingEvent> appender(
+        final LoggerContext context, final String store, final int limit) {
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%message%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        final RecordStore recordStore = store(store);
+        final BufferedOutputStreamAppender<ILoggingEvent> appender
+            = new BufferedOutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setLimit(limit);
+        appender.setStore(recordStore);
+        appender.setConcurrent(recordStore.isConcurrent());
+        appender.start();
+        if (!appender.isStarted()) {
+            throw new IllegalStateException("appender not started");
+        }
+
+        return appender;
+    }
+
+
+    private StoreFixtures() {
+
+        super();
+    }
+
+
+}
@@ -0,0 +1,774 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+
+/**
+ * An abstract record store holds records in a circular arena. Records are laid
+ * out back to back so that only their lengths need to be indexed. Both adding
+ * a record and evicting the oldest one take constant time. Streamed records
+ * are written directly into the arena. Evicted records are, if an overflow
+ * store has been set, moved to the overflow store rather than discarded.
+ * <p>
+ * Without an overflow store, the position and the length of the live window
+ * are published together on each change so that the window may be read
+ * optimistically while records are being added.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public abstract class ArenaRecordStore extends RecordStore {
+
+
+    /**
+     * The initial size of the length index.
+     */
+    static final int INITIAL_INDEX_SIZE = 64;
+
+
+    /**
+     * The size of the array used for transferring bytes out of the arena.
+     */
+    static final int TRANSFER_SIZE = 8192;
+
+
+    @Override
+    public void start(final long limit) {
+
+        super.start(limit);
+
+        lengths = new int[INITIAL_INDEX_SIZE];
+
+        clear();
+
+        if (overflow != null) {
+            overflow.start(-1L);
+        }
+    }
+
+
+    @Override
+    public void add(final byte[] record, final int offset, final int length) {
+
+        begin();
+        append(record, offset, length);
+        commit();
+    }
+
+
+    @Override
+    public void begin() {
+
+        // the current record, if any, simply continues
+    }
+
+
+    /**
+     * {@inheritDoc} Bytes are written directly into the arena evicting the
+     * oldest records as required.
+     *
+     * @param bytes {@inheritDoc}
+     * @param offset {@inheritDoc}
+     * @param length {@inheritDoc}
+     */
+    @Override
+    public void append(final byte[] bytes, final int offset,
+                       final int length) {
+
+        if (overflown) {
+            if (overflow != null) {
+                overflow.append(bytes, offset, length);
+            }
+            return;
+        }
+
+        final long required = pending + (long) length;
+
+        if (required <= Integer.MAX_VALUE) {
+            ensureCapacity(this.length + required);
+        }
+
+        if (required > Integer.MAX_VALUE || required > capacity()) {
+            while (count > 0) { // evicts everything including the record itself
+                evict();
+            }
+            publish();
+            if (overflow != null) { // the record itself goes to the overflow
+                overflow.begin();
+                transfer(start, pending, overflow);
+                overflow.append(bytes, offset, length);
+            }
+            overflown = true;
+            return;
+        }
+
+        while (this.length + required > capacity()) {
+            evict();
+        }
+        publish();
+
+        if (length > 0) {
+            put((start + this.length + pending) % capacity(), bytes, offset,
+                length);
+            pending += length;
+        }
+    }
+
+
+    @Override
+    public void commit() {
+
+        if (overflown) {
+            if (overflow != null) {
+                overflow.commit();
+                spilled(sequence);
+            }
+            overflown = false;
+            sequence++;
+            abort();
+            return;
+        }
+
+        if (count == lengths.length) {
+            growIndex();
+        }
+        lengths[(head + count) % lengths.length] = pending;
+        count++;
+        length += pending;
+        sequence++;
+        publish();
+
+        abort();
+    }
+
+
+    @Override
+    public void abort() {
+
+        if (overflown && overflow != null) {
+            overflow.abort();
+        }
+
+        pending = 0;
+        overflown = false;
+    }
+
+
+    @Override
+    public void clear() {
+
+        if (overflow != null) {
+            overflow.clear();
+        }
+
+        head = 0;
+        count = 0;
+        start = 0L;
+        length = 0L;
+        pending = 0;
+        spilled = 0L;
+        publish();
+    }
+
+
+    @Override
+    public long getLength() {
+
+        if (overflow != null) {
+            return overflow.getLength() + length;
+        }
+
+        return window()[1];
+    }
+
+
+    /**
+     * Returns the number of records currently held in the arena.
+     *
+     * @return the number of records currently held in the arena.
+     */
+    public int getCount() {
+
+        return count;
+    }
+
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+
+        if (overflow != null) {
+            overflow.write(output);
+        }
+
+        final long[] window = window();
+        write(window[0], window[1], output);
+    }
+
+
+    /**
+     * {@inheritDoc} An arena store is optimistically readable unless an
+     * overflow store has been set or the arena is larger than
+     * {@link Integer#MAX_VALUE}.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isOptimisticallyReadable() {
+
+        return overflow == null && capacity() <= Integer.MAX_VALUE;
+    }
+
+
+    @Override
+    public long getSequence() {
+
+        return sequence;
+    }
+
+
+    /**
+     * {@inheritDoc} Records moved to the overflow store are read from it, in
+     * which case the overflow store must support sequences as well.
+     *
+     * @param cursor {@inheritDoc}
+     * @param output {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        return read(cursor, output, Long.MAX_VALUE);
+    }
+
+
+    /**
+     * {@inheritDoc} Records moved to the overflow store are read from it, in
+     * which case the overflow store must support sequences as well.
+     *
+     * @param cursor {@inheritDoc}
+     * @param output {@inheritDoc}
+     * @param max {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output,
+                     final long max)
+        throws IOException {
+
+        long written = 0L;
+        long read = 0L;
+
+        final long first = sequence - count;
+        if (overflow != null && spilled > 0L && cursor.getSequence() < first) {
+            // spilled records are contiguous and immediately precede ours
+            final long offset = overflow.getSequence() - spilled;
+            final RecordCursor spill = new RecordCursor(
+                offset + Math.max(0L, cursor.getSequence() - spilledFrom));
+            written += overflow.read(spill, output, max);
+            read += spill.getCount();
+            if (written >= max && spill.getSequence() < offset + spilled) {
+                cursor.advance(spilledFrom + spill.getSequence() - offset,
+                               read);
+                return written;
+            }
+        }
+
+        final int skip = (int) Math.min(
+            Math.max(0L, cursor.getSequence() - first), count);
+        long skipped = 0L;
+        for (int i = 0; i < skip; i++) {
+            skipped += lengths[(head + i) % lengths.length];
+        }
+        long bytes = 0L;
+        int end = skip;
+        while (end < count && (written + bytes < max || end == skip)) {
+            bytes += lengths[(head + end) % lengths.length];
+            end++;
+        }
+        if (bytes > 0L) {
+            write((start + skipped) % capacity(), bytes, output);
+        }
+        written += bytes;
+        read += end - skip;
+
+        cursor.advance(end == count ? sequence : first + end, read);
+
+        return written;
+    }
+
+
+    /**
+     * {@inheritDoc} Records moved to the overflow store are copied straight
+     * into the returned array followed by those in the arena.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public byte[] toByteArray() {
+
+        if (overflow != null) {
+            final long spilled = overflow.getLength();
+            if (spilled + length > Integer.MAX_VALUE) {
+                throw new IllegalStateException(
+                    "length(" + (spilled + length) + ") > "
+                    + Integer.MAX_VALUE);
+            }
+            final byte[] array = new byte[(int) (spilled + length)];
+            final ByteBuffer buffer = ByteBuffer.wrap(array);
+            try {
+                overflow.write(new OutputStream() {
+
+                    @Override
+                    public void write(final int b) {
+
+                        buffer.put((byte) b);
+                    }
+
+
+                    @Override
+                    public void write(final byte[] b, final int off,
+                                      final int len) {
+
+                        buffer.put(b, off, len);
+                    }
+
+
+                });
+            } catch (final IOException ioe) {
+                throw new AssertionError(ioe);
+            }
+            if (length > 0L) {
+                get(start, array, (int) spilled, (int) length);
+            }
+            return array;
+        }
+
+        final long[] window = window();
+        if (window[1] > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                "length(" + window[1] + ") > " + Integer.MAX_VALUE);
+        }
+
+        final byte[] array = new byte[(int) window[1]];
+        if (array.length > 0) {
+            get(window[0], array, 0, array.length);
+        }
+
+        return array;
+    }
+
+
+    @Override
+    protected ByteBuffer[] buffers() {
+
+        final ByteBuffer[] views = views(start, length);
+        if (overflow == null) {
+            return views;
+        }
+
+        final ByteBuffer[] spilled = overflow.buffers();
+        final ByteBuffer[] buffers
+            = new ByteBuffer[spilled.length + views.length];
+        System.arraycopy(spilled, 0, buffers, 0, spilled.length);
+        System.arraycopy(views, 0, buffers, spilled.length, views.length);
+
+        return buffers;
+    }
+
+
+    /**
+     * Returns the overflow store.
+     *
+     * @return the overflow store; {@code null} if not set.
+     */
+    public RecordStore getOverflow() {
+
+        return overflow;
+    }
+
+
+    /**
+     * Sets the overflow store to which evicted records are moved. The
+     * overflow store is started, with no limit, whenever this store is
+     * started.
+     *
+     * @param overflow the overflow store; {@code null} for discarding evicted
+     * records.
+     */
+    public void setOverflow(final RecordStore overflow) {
+
+        if (overflow == this) {
+            throw new IllegalArgumentException("overflow == this");
+        }
+
+        this.overflow = overflow;
+    }
+
+
+    /**
+     * Returns the current capacity of the arena.
+     *
+     * @return the current capacity of the arena.
+     */
+    protected abstract long capacity();
+
+
+    /**
+     * Grows the arena, if growable, so that it can hold specified number of
+     * bytes. The default implementation does nothing.
+     *
+     * @param required the number of bytes required.
+     */
+    protected void ensureCapacity(final long required) {
+
+        // not growable
+    }
+
+
+    /**
+     * Copies bytes into the arena starting at specified position wrapping
+     * around at {@link #capacity()}.
+     *
+     * @param position the position in the arena.
+     * @param bytes the source array.
+     * @param offset the offset in {@code bytes}.
+     * @param length the number of bytes to copy.
+     */
+    protected abstract void put(long position, byte[] bytes, int offset,
+                                int length);
+
+
+    /**
+     * Copies bytes out of the arena starting at specified position wrapping
+     * around at {@link #capacity()}.
+     *
+     * @param position the position in the arena.
+     * @param bytes the destination array.
+     * @param offset the offset in {@code bytes}.
+     * @param length the number of bytes to copy.
+     */
+    protected abstract void get(long position, byte[] bytes, int offset,
+                                int length);
+
+
+    /**
+     * Appends bytes in the arena to the current record of specified store.
+     * The default implementation copies through an intermediate array.
+     *
+     * @param position the position in the arena.
+     * @param length the number of bytes to append.
+     * @param target the store to append to.
+     */
+    protected void transfer(final long position, final int length,
+                            final RecordStore target) {
+
+        if (spill == null) {
+            spill = new byte[TRANSFER_SIZE];
+        }
+
+        for (int i = 0; i < length;) {
+            final int n = Math.min(length - i, spill.length);
+            get((position + i) % capacity(), spill, 0, n);
+            target.append(spill, 0, n);
+            i += n;
+        }
+    }
+
+
+    /**
+     * Returns buffers whose remaining bytes are those in the arena. The
+     * default implementation copies the bytes into a new array.
+     *
+     * @param position the position in the arena.
+     * @param length the number of bytes.
+     *
+     * @return buffers of the bytes.
+     */
+    protected ByteBuffer[] views(final long position, final long length) {
+
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                "length(" + length + ") > " + Integer.MAX_VALUE);
+        }
+
+        final byte[] array = new byte[(int) length];
+        if (array.length > 0) {
+            get(position, array, 0, array.length);
+        }
+
+        return new ByteBuffer[]{ByteBuffer.wrap(array)};
+    }
+
+
+    /**
+     * Returns the position of the oldest record in the arena.
+     *
+     * @return the position of the oldest record.
+     */
+    protected long start() {
+
+        return start;
+    }
+
+
+    /**
+     * Returns the number of bytes held in the arena.
+     *
+     * @return the number of bytes held in the arena.
+     */
+    protected long length() {
+
+        return length;
+    }
+
+
+    /**
+     * Returns the number of bytes held including the current record.
+     *
+     * @return the number of bytes held including the current record.
+     */
+    protected long held() {
+
+        return length + pending;
+    }
+
+
+    /**
+     * Notifies that the arena has been relocated so that the oldest record
+     * now starts at position zero.
+     */
+    protected void relocated() {
+
+        start = 0L;
+        publish();
+    }
+
+
+    /**
+     * Writes bytes in the arena to specified output stream. The default
+     * implementation copies through an intermediate array.
+     *
+     * @param position the position in the arena.
+     * @param length the number of bytes to write.
+     * @param output the output stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void write(final long position, final long length,
+                         final OutputStream output)
+        throws IOException {
+
+        final byte[] transfer = new byte[(int) Math.min(length, TRANSFER_SIZE)];
+
+        for (long i = 0L; i < length;) {
+            final int n = (int) Math.min(length - i, transfer.length);
+            get((position + i) % capacity(), transfer, 0, n);
+            output.write(transfer, 0, n);
+            i += n;
+        }
+    }
+
+
+    /**
+     * Returns the live window, as published unless the arena is larger than
+     * {@link Integer#MAX_VALUE}.
+     *
+     * @return the position of the oldest record and the number of bytes held
+     * in the arena.
+     */
+    private long[] window() {
+
+        if (capacity() > Integer.MAX_VALUE) {
+            return new long[]{start, length};
+        }
+
+        final long window = this.window;
+
+        return new long[]{window >>> 32, window & 0xFFFFFFFFL};
+    }
+
+
+    /**
+     * Publishes the live window as a whole.
+     */
+    private void publish() {
+
+        if (capacity() <= Integer.MAX_VALUE) {
+            window = (start << 32) | length;
+        }
+    }
+
+
+    /**
+     * Evicts the oldest record, if any, as if the arena were full.
+     *
+     * @return the number of bytes evicted.
+     */
+    int evictFirst() {
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final int evicted = lengths[head];
+        evict();
+        publish();
+
+        return evicted;
+    }
+
+
+    /**
+     * Evicts the oldest record.
+     */
+    private void evict() {
+
+        final int evicted = lengths[head];
+        if (overflow != null) {
+            overflow.begin();
+            transfer(start, evicted, overflow);
+            overflow.commit();
+            spilled(sequence - count);
+        }
+        head = (head + 1) % lengths.length;
+        count--;
+        start = evicted == 0 ? start : (start + evicted) % capacity();
+        length -= evicted;
+    }
+
+
+    /**
+     * Notes that a record has been moved to the overflow store.
+     *
+     * @param sequence the sequence number of the record.
+     */
+    private void spilled(final long sequence) {
+
+        if (spilled == 0L) {
+            spilledFrom = sequence;
+        }
+        spilled++;
+    }
+
+
+    /**
+     * Doubles the size of the length index.
+     */
+    private void growIndex() {
+
+        final int[] grown = new int[lengths.length * 2];
+        for (int i = 0; i < count; i++) {
+            grown[i] = lengths[(head + i) % lengths.length];
+        }
+        lengths = grown;
+        head = 0;
+    }
+
+
+    /**
+     * the circular index of record lengths.
+     */
+    private int[] lengths;
+
+
+    /**
+     * the index of the oldest record in {@link #lengths}.
+     */
+    private int head;
+
+
+    /**
+     * the number of records held.
+     */
+    private int count;
+
+
+    /**
+     * the position of the oldest record in the arena.
+     */
+    private long start;
+
+
+    /**
+     * the number of bytes held.
+     */
+    private long length;
+
+
+    /**
+     * the position and the length of the live window packed for readers not
+     * holding the lock.
+     */
+    private volatile long window;
+
+
+    /**
+     * the number of bytes of the current record.
+     */
+    private int pending;
+
+
+    /**
+     * the flag for the current record exceeded the limit.
+     */
+    private boolean overflown;
+
+
+    /**
+     * the sequence number of the next record.
+     */
+    private long sequence;
+
+
+    /**
+     * the number of records moved to the overflow since cleared.
+     */
+    private long spilled;
+
+
+    /**
+     * the sequence number of the first record moved to the overflow since
+     * cleared.
+     */
+    private long spilledFrom;
+
+
+    /**
+     * the store to which evicted records are moved.
+     */
+    private RecordStore overflow;
+
+
+    /**
+     * the array for transferring evicted records.
+     */
+    private byte[] spill;
+
+
+}
@@ -18,20 +18,44 @@
 package com.github.jinahya.logback.core;
 
 
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Layout;
 import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import ch.qos.logback.core.spi.DeferredProcessingAware;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import static java.lang.invoke.MethodHandles.lookup;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import static org.slf4j.LoggerFactory.getLogger;
 
 
 /**
  * An appender for buffering records.
+ * <p>
+ * Buffered records can be read while events are being appended. Reads from a
+ * store which is {@link RecordStore#isOptimisticallyReadable() optimistically
+ * readable} are validated against a version which appending threads bump
+ * around each change of the store, and retried when torn; only after repeated
+ * failures a copy is taken while holding the lock. Reads from any other store
+ * not safe for concurrent use are taken while holding the lock. Records are
+ * always copied, or handed over as immutable buffers, before written so that
+ * appending threads never wait for slow outputs; records of stores neither
+ * optimistically readable nor safe for concurrent use, and records too many to
+ * copy at once, are copied a chunk at a time.
  *
  * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
  * @param <E> event type parameter
@@ -39,10 +63,306 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
 
 
+    /**
+     * The number of optimistic attempts to read before taking the lock.
+     */
+    static final int OPTIMISTIC_READS = 8;
+
+
+    /**
+     * The number of bytes copied at a time, while holding the lock, from a
+     * store too large to copy at once.
+     */
+    static final int CHUNK_SIZE = 65536;
+
+
+    /**
+     * A read of the store.
+     *
+     * @param <T> result type parameter
+     */
+    private static abstract class Reading<T> {
+
+
+        /**
+         * Reads the store.
+         *
+         * @return the result.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        abstract T read() throws IOException;
+
+
+    }
+
+
+    /**
+     * A byte array output stream drains its content to a record store without
+     * copying into an intermediate array.
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+
+
+        /**
+         * Adds current content to specified store and resets.
+         *
+         * @param store the store
+         * @param timestamp the timestamp of the event.
+         * @param level the level of the event.
+         */
+        void drain(final RecordStore store, final long timestamp,
+                   final int level) {
+
+            store.add(timestamp, level, buf, 0, count);
+            reset();
+        }
+
+
+    }
+
+
+    /**
+     * An output stream writes directly into the current record of the target
+     * store.
+     */
+    private class StoreOutputStream extends OutputStream {
+
+
+        @Override
+        public void write(final int b) throws IOException {
+
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+            throws IOException {
+
+            target.append(b, off, len);
+        }
+
+
+        /**
+         * an array for single byte writes.
+         */
+        private final byte[] single = new byte[1];
+
+
+    }
+
+
+    /**
+     * A per-thread scratch space for encoding events in concurrent mode.
+     */
+    private static class EncodingScratch {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param charset the charset.
+         */
+        EncodingScratch(final Charset charset) {
+
+            super();
+
+            encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+
+        /**
+         * Encodes specified string into {@link #bytes}.
+         *
+         * @param string the string to encode.
+         *
+         * @return the number of bytes encoded.
+         *
+         * @throws CharacterCodingException if a coding error occurs.
+         */
+        int encode(final String string) throws CharacterCodingException {
+
+            while (true) {
+                final CharBuffer chars = CharBuffer.wrap(string);
+                encoder.reset();
+                ((Buffer) bytes).clear(); // no covariant overrides in 1.7
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (!result.isOverflow()) {
+                    result = encoder.flush(bytes);
+                }
+                if (result.isOverflow()) {
+                    bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+                    continue;
+                }
+                if (result.isError()) {
+                    result.throwException();
+                }
+                return bytes.position();
+            }
+        }
+
+
+        /**
+         * the charset encoder.
+         */
+        private final CharsetEncoder encoder;
+
+
+        /**
+         * the encoded bytes.
+         */
+        private ByteBuffer bytes = ByteBuffer.allocate(256);
+
+
+    }
+
+
+    /**
+     * An output stream decodes bytes into a string as they are written.
+     */
+    private static class DecodingOutputStream extends OutputStream {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param charset the charset.
+         */
+        DecodingOutputStream(final Charset charset) {
+
+            super();
+
+            decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+
+        @Override
+        public void write(final int b) {
+
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+
+        @Override
+        public void write(final byte[] b, int off, int len) {
+
+            while (len > 0) {
+                final int n = Math.min(len, bytes.remaining());
+                bytes.put(b, off, n);
+                off += n;
+                len -= n;
+                decode(false);
+            }
+        }
+
+
+        /**
+         * Decodes remaining bytes and returns the decoded string.
+         *
+         * @return the decoded string.
+         */
+        String finish() {
+
+            decode(true);
+            while (decoder.flush(chars).isOverflow()) {
+                drain();
+            }
+            drain();
+
+            return builder.toString();
+        }
+
+
+        /**
+         * Decodes bytes written so far leaving any incomplete sequence.
+         *
+         * @param endOfInput the flag for no more bytes.
+         */
+        private void decode(final boolean endOfInput) {
+
+            ((Buffer) bytes).flip(); // no covariant overrides in 1.7
+            while (decoder.decode(bytes, chars, endOfInput).isOverflow()) {
+                drain();
+            }
+            drain();
+            bytes.compact();
+        }
+
+
+        /**
+         * Moves decoded characters to the builder.
+         */
+        private void drain() {
+
+            ((Buffer) chars).flip(); // no covariant overrides in 1.7
+            builder.append(chars);
+            ((Buffer) chars).clear();
+        }
+
+
+        /**
+         * the charset decoder.
+         */
+        private final CharsetDecoder decoder;
+
+
+        /**
+         * the bytes to decode.
+         */
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+
+
+        /**
+         * the decoded characters.
+         */
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+
+
+        /**
+         * the decoded string.
+         */
+        private final StringBuilder builder = new StringBuilder();
+
+
+    }
+
+
     @Override
     public void start() {
 
-        setOutputStream(buffer);
+        if (concurrent) {
+            if (!(encoder instanceof LayoutWrappingEncoder)) {
+                addError("concurrent mode requires a layout wrapping encoder");
+                return;
+            }
+            if (store == null) {
+                store = new ConcurrentRecordStore();
+            }
+            if (!store.isConcurrent()) {
+                addError("concurrent mode requires a concurrent store");
+                return;
+            }
+        }
+
+        if (store == null) {
+            store = new ListRecordStore();
+        }
+        if (!store.isStarted() || store.getLimit() != limit) {
+            try {
+                store.start(limit);
+            } catch (final IllegalArgumentException iae) {
+                addError("failed to start the store", iae);
+                return;
+            }
+        }
+
+        setOutputStream(direct ? new StoreOutputStream() : buffer);
 
 //        // oh, i can't help but doin' this.
 //        try {
@@ -60,30 +380,302 @@ public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
     }
 
 
+    /**
+     * {@inheritDoc} In concurrent mode, each event is laid out and encoded on
+     * the calling thread and then added to the store without taking the lock
+     * of this appender.
+     *
+     * @param eventObject {@inheritDoc}
+     */
     @Override
     protected void append(final E eventObject) {
 
-        super.append(eventObject);
+        if (!concurrent) {
+            super.append(eventObject);
+            return;
+        }
 
-        // there is no other way to check
-        // whether eventObject actaully appended or not.
         if (!isStarted()) {
             return;
         }
 
-        final byte[] record = buffer.toByteArray();
-        buffer.reset();
-        records.add(record);
-        length += record.length;
+        if (eventObject instanceof DeferredProcessingAware) {
+            ((DeferredProcessingAware) eventObject)
+                .prepareForDeferredProcessing();
+        }
+
+        final Layout<E> layout
+            = ((LayoutWrappingEncoder<E>) encoder).getLayout();
+        final EncodingScratch scratch = scratches.get();
+        try {
+            final int length = scratch.encode(layout.doLayout(eventObject));
+            store(eventObject).add(timestamp(eventObject), level(eventObject),
+                                   scratch.bytes.array(), 0, length);
+        } catch (final CharacterCodingException cce) {
+            addError("failed to encode", cce);
+        }
+    }
+
+
+    /**
+     * Returns the timestamp of specified event. The default implementation
+     * returns the timestamp of an {@link ILoggingEvent} or the current time.
+     *
+     * @param event the event
+     *
+     * @return the timestamp of the event.
+     */
+    protected long timestamp(final E event) {
+
+        if (event instanceof ILoggingEvent) {
+            return ((ILoggingEvent) event).getTimeStamp();
+        }
+
+        return System.currentTimeMillis();
+    }
+
+
+    /**
+     * Returns the level of specified event. The default implementation
+     * returns the level of an {@link ILoggingEvent} or
+     * {@link RecordStore#UNKNOWN_LEVEL}.
+     *
+     * @param event the event
+     *
+     * @return the level of the event.
+     */
+    protected int level(final E event) {
+
+        if (event instanceof ILoggingEvent) {
+            return ((ILoggingEvent) event).getLevel().toInt();
+        }
+
+        return RecordStore.UNKNOWN_LEVEL;
+    }
+
 
-        while (limit >= 0 && length > limit && !records.isEmpty()) {
-            length -= records.remove(0).length;
+    @Override
+    protected void writeOut(final E event) throws IOException {
+
+        // invoked while holding the lock
+
+        version.incrementAndGet(); // odd while changing
+        try {
+            target = store(event);
+            if (!direct) {
+                super.writeOut(event);
+                buffer.drain(target, timestamp(event), level(event));
+                return;
+            }
+            target.begin(timestamp(event), level(event));
+            try {
+                super.writeOut(event);
+            } catch (final IOException | RuntimeException e) {
+                target.abort();
+                throw e;
+            }
+            target.commit();
+        } finally {
+            target = null;
+            version.lazySet(version.get() + 1L);
         }
     }
 
 
     /**
-     * Writes buffered records to specified {@code otuput}.
+     * Returns the store to which specified event is added. This method is
+     * invoked while holding the lock unless in concurrent mode. The default
+     * implementation returns the store of this appender.
+     *
+     * @param event the event
+     *
+     * @return the store for the event.
+     */
+    protected RecordStore store(final E event) {
+
+        return store;
+    }
+
+
+    /**
+     * Performs specified reading so that it sees the store between appends.
+     * An optimistic reading is tried, and retried if an append interleaved,
+     * before taking the lock. An optimistic reading may see the bytes of the
+     * store being overwritten, and may throw a runtime exception, which is
+     * also treated as a failed attempt.
+     *
+     * @param <T> result type parameter
+     * @param reading the reading
+     * @param optimistic {@code true} if the reading reads only state which
+     * the store publishes as a whole; {@code false} otherwise.
+     *
+     * @return the result of the reading.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private <T> T consistently(final Reading<T> reading,
+                               final boolean optimistic)
+        throws IOException {
+
+        if (store.isConcurrent()) {
+            return reading.read();
+        }
+
+        for (int i = 0; optimistic && i < OPTIMISTIC_READS; i++) {
+            final long stamp = version.get();
+            if ((stamp & 1L) == 0L) {
+                try {
+                    final T result = reading.read();
+                    // a read-modify-write keeps preceding reads before it
+                    if (version.getAndAdd(0L) == stamp) {
+                        return result;
+                    }
+                } catch (final RuntimeException re) {
+                    // torn by an interleaving append
+                }
+            }
+            Thread.yield();
+        }
+
+        lock.lock();
+        try {
+            return reading.read();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns a consistent copy of buffered records. This method is invoked
+     * only for stores which are safe for concurrent use or optimistically
+     * readable.
+     *
+     * @return a copy of buffered records.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private byte[] snapshot() throws IOException {
+
+        final RecordStore store = this.store;
+
+        return consistently(new Reading<byte[]>() {
+
+            @Override
+            byte[] read() {
+
+                return store.toByteArray();
+            }
+
+
+        }, true);
+    }
+
+
+    /**
+     * Returns whether buffered records can be copied as a whole without
+     * making appending threads wait; that is, whether the store is safe for
+     * concurrent use or optimistically readable and small enough to copy at
+     * once.
+     *
+     * @return {@code true} if records can be copied as a whole;
+     * {@code false} if they should be streamed a chunk at a time.
+     */
+    private boolean copyable() {
+
+        final RecordStore store = this.store;
+
+        return store.isConcurrent()
+               || (store.isOptimisticallyReadable()
+                   && getLength() < Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Returns immutable buffers of buffered records taken while holding the
+     * lock.
+     *
+     * @return immutable buffers of buffered records; {@code null} if not
+     * supported by the store.
+     *
+     * @throws IOException if an I/O error occurs.
+     *
+     * @see RecordStore#immutableBuffers()
+     */
+    private ByteBuffer[] immutableBuffers() throws IOException {
+
+        final RecordStore store = this.store;
+
+        return consistently(new Reading<ByteBuffer[]>() {
+
+            @Override
+            ByteBuffer[] read() {
+
+                return store.immutableBuffers();
+            }
+
+
+        }, false);
+    }
+
+
+    /**
+     * Writes buffered records to specified output stream copying a chunk of
+     * records at a time while holding the lock. Records evicted while being
+     * written are skipped. Stores not supporting sequences are written while
+     * holding the lock.
+     *
+     * @param output the output stream.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private long stream(final OutputStream output) throws IOException {
+
+        final RecordStore store = this.store;
+        final RecordCursor cursor = new RecordCursor();
+        final long end;
+        lock.lock();
+        try {
+            try {
+                end = store.getSequence();
+            } catch (final UnsupportedOperationException uoe) {
+                final long length = store.getLength();
+                store.write(output);
+                return length;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        final ByteArrayOutputStream chunk
+            = new ByteArrayOutputStream(CHUNK_SIZE);
+        long written = 0L;
+        while (cursor.getSequence() < end) {
+            final long sequence = cursor.getSequence();
+            chunk.reset();
+            lock.lock();
+            try {
+                store.read(cursor, chunk, CHUNK_SIZE);
+            } finally {
+                lock.unlock();
+            }
+            chunk.writeTo(output);
+            written += chunk.size();
+            if (cursor.getSequence() == sequence) {
+                break;
+            }
+        }
+
+        return written;
+    }
+
+
+    /**
+     * Writes buffered records to specified {@code otuput}. Records of a store
+     * neither safe for concurrent use, optimistically readable nor holding
+     * immutable buffers are copied a chunk at a time while holding the lock.
      *
      * @param output the output stream to which buffered records are written.
      *
@@ -91,9 +683,243 @@ public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
      */
     public void write(final OutputStream output) throws IOException {
 
-        for (final byte[] record : records) {
-            output.write(record);
+        if (store == null) {
+            return;
+        }
+
+        if (store.isConcurrent()) {
+            store.write(output);
+            return;
+        }
+
+        final ByteBuffer[] buffers = immutableBuffers();
+        if (buffers != null) {
+            for (final ByteBuffer buffer : buffers) {
+                if (buffer.hasArray()) {
+                    output.write(buffer.array(),
+                                 buffer.arrayOffset() + buffer.position(),
+                                 buffer.remaining());
+                    continue;
+                }
+                final byte[] bytes = new byte[buffer.remaining()];
+                buffer.duplicate().get(bytes);
+                output.write(bytes);
+            }
+            return;
+        }
+
+        if (copyable()) {
+            output.write(snapshot());
+            return;
+        }
+
+        stream(output);
+    }
+
+
+    /**
+     * Writes buffered records to specified channel handing them over as a
+     * batch of buffers. Records are handed over without an intermediate copy
+     * if the store is safe for concurrent use or holds them in immutable
+     * buffers; otherwise they are copied a chunk at a time.
+     *
+     * @param channel the channel to which buffered records are written.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     *
+     * @see RecordStore#write(GatheringByteChannel)
+     */
+    public long write(final GatheringByteChannel channel) throws IOException {
+
+        if (store == null) {
+            return 0L;
+        }
+
+        if (store.isConcurrent()) {
+            return store.write(channel);
+        }
+
+        final ByteBuffer[] buffers = immutableBuffers();
+        if (buffers != null) {
+            long written = 0L;
+            for (int i = 0; i < buffers.length;) {
+                written += channel.write(buffers, i, buffers.length - i);
+                while (i < buffers.length && !buffers[i].hasRemaining()) {
+                    i++;
+                }
+            }
+            return written;
         }
+
+        return stream(channel);
+    }
+
+
+    /**
+     * Writes buffered records to specified channel. Records are handed over
+     * without an intermediate copy if the store is safe for concurrent use or
+     * holds them in immutable buffers; otherwise they are copied a chunk at a
+     * time.
+     *
+     * @param channel the channel to which buffered records are written.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     *
+     * @see RecordStore#transferTo(WritableByteChannel)
+     */
+    public long transferTo(final WritableByteChannel channel)
+        throws IOException {
+
+        if (store == null) {
+            return 0L;
+        }
+
+        if (store.isConcurrent()) {
+            return store.transferTo(channel);
+        }
+
+        if (channel instanceof GatheringByteChannel) {
+            return write((GatheringByteChannel) channel);
+        }
+
+        final ByteBuffer[] buffers = immutableBuffers();
+        if (buffers != null) {
+            long written = 0L;
+            for (final ByteBuffer buffer : buffers) {
+                written += write(buffer, channel);
+            }
+            return written;
+        }
+
+        return stream(channel);
+    }
+
+
+    /**
+     * Writes buffered records to specified channel copying a chunk of records
+     * at a time.
+     *
+     * @param channel the channel
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private long stream(final WritableByteChannel channel) throws IOException {
+
+        return stream(new OutputStream() {
+
+            @Override
+            public void write(final int b) throws IOException {
+
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+
+            @Override
+            public void write(final byte[] b, final int off, final int len)
+                throws IOException {
+
+                BufferedOutputStreamAppender.write(
+                    ByteBuffer.wrap(b, off, len), channel);
+            }
+
+
+        });
+    }
+
+
+    /**
+     * Writes all remaining bytes of specified buffer to specified channel.
+     *
+     * @param buffer the buffer
+     * @param channel the channel
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private static long write(final ByteBuffer buffer,
+                              final WritableByteChannel channel)
+        throws IOException {
+
+        long written = 0L;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+
+        return written;
+    }
+
+
+    /**
+     * Returns the sequence number of the next record to be buffered.
+     *
+     * @return the sequence number of the next record.
+     *
+     * @see RecordStore#getSequence()
+     */
+    public long getSequence() {
+
+        if (store == null) {
+            return 0L;
+        }
+
+        return store.getSequence();
+    }
+
+
+    /**
+     * Writes records buffered at or after the position of specified cursor to
+     * specified output stream and moves the cursor past them. Check
+     * {@link RecordCursor#getEvicted()} for records evicted before read.
+     *
+     * @param cursor the cursor
+     * @param output the output stream to which records are written.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     *
+     * @see RecordStore#read(RecordCursor, OutputStream)
+     */
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        if (cursor == null) {
+            throw new NullPointerException("null cursor");
+        }
+
+        if (store == null) {
+            return 0L;
+        }
+
+        final RecordStore store = this.store;
+        final RecordCursor moved = new RecordCursor();
+        final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+        consistently(new Reading<Void>() {
+
+            @Override
+            Void read() throws IOException {
+
+                moved.set(cursor);
+                copied.reset();
+                store.read(moved, copied);
+
+                return null;
+            }
+
+
+        }, false);
+
+        copied.writeTo(output);
+        cursor.set(moved);
+
+        return copied.size();
     }
 
 
@@ -104,36 +930,67 @@ public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
      */
     public byte[] toByteArray() {
 
-        final byte[] array = new byte[length];
-
-        int position = 0;
-        for (final byte[] record : records) {
-            System.arraycopy(record, 0, array, position, record.length);
-            position += record.length;
+        if (store == null) {
+            return new byte[0];
         }
 
-        return array;
+        try {
+            if (copyable()) {
+                return snapshot();
+            }
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            stream(output);
+            return output.toByteArray();
+        } catch (final IOException ioe) {
+            throw new AssertionError(ioe);
+        }
     }
 
 
     /**
-     * Returns a string representing buffered records.
+     * Returns a string representing buffered records. Records are decoded as
+     * they are read from the store without being copied into an array first;
+     * a chunk at a time, while holding the lock, unless the store is safe for
+     * concurrent use or optimistically readable.
      *
-     * @param charset the charset to encode.
+     * @param charset the charset to decode; {@code null} for the default
+     * charset.
      *
      * @return a string representing buffered records.
-     *
-     * @see #toByteArray()
      */
     public String toString(final Charset charset) {
 
-        final byte[] bytes = toByteArray();
-
-        if (charset == null) {
-            return new String(bytes);
+        if (store == null) {
+            return "";
         }
 
-        return new String(bytes, charset);
+        final RecordStore store = this.store;
+        final Charset decoding
+            = charset == null ? Charset.defaultCharset() : charset;
+        try {
+            if (!copyable()) {
+                final DecodingOutputStream output
+                    = new DecodingOutputStream(decoding);
+                stream(output);
+                return output.finish();
+            }
+            return consistently(new Reading<String>() {
+
+                @Override
+                String read() throws IOException {
+
+                    final DecodingOutputStream output
+                        = new DecodingOutputStream(decoding);
+                    store.write(output);
+
+                    return output.finish();
+                }
+
+
+            }, true);
+        } catch (final IOException ioe) {
+            throw new AssertionError(ioe);
+        }
     }
 
 
@@ -149,7 +1006,8 @@ public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
 
 
     /**
-     * Sets a new value for {@code limit}.
+     * Sets a new value for {@code limit}. The new value takes effect when this
+     * appender is started.
      *
      * @param limit new value of {@code limit}. Negative value for no limit.
      */
@@ -170,7 +1028,105 @@ public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
      */
     public int getLength() {
 
-        return length;
+        if (store == null) {
+            return 0;
+        }
+
+        final RecordStore store = this.store;
+        final long length;
+        try {
+            length = consistently(new Reading<Long>() {
+
+                @Override
+                Long read() {
+
+                    return store.getLength();
+                }
+
+
+            }, store.isOptimisticallyReadable());
+        } catch (final IOException ioe) {
+            throw new AssertionError(ioe);
+        }
+
+        return (int) Math.min(length, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Returns the record store.
+     *
+     * @return the record store; {@code null} if neither set nor started yet.
+     */
+    public RecordStore getStore() {
+
+        return store;
+    }
+
+
+    /**
+     * Sets the record store. A {@link ListRecordStore} is used if not set.
+     *
+     * @param store the record store.
+     */
+    public void setStore(final RecordStore store) {
+
+        if (isStarted()) {
+            logger.warn("can't change the store while started");
+            return;
+        }
+
+        this.store = store;
+    }
+
+
+    /**
+     * Returns whether encoded events are written directly into the store.
+     *
+     * @return {@code true} if direct; {@code false} otherwise.
+     */
+    public boolean isDirect() {
+
+        return direct;
+    }
+
+
+    /**
+     * Sets whether encoded events are written directly into the store rather
+     * than through an intermediate buffer. The new value takes effect when this
+     * appender is started.
+     *
+     * @param direct {@code true} for direct; {@code false} otherwise.
+     */
+    public void setDirect(final boolean direct) {
+
+        this.direct = direct;
+    }
+
+
+    /**
+     * Returns whether this appender is in concurrent mode.
+     *
+     * @return {@code true} if concurrent; {@code false} otherwise.
+     */
+    public boolean isConcurrent() {
+
+        return concurrent;
+    }
+
+
+    /**
+     * Sets whether events are appended concurrently without taking the lock of
+     * this appender. Concurrent mode requires a {@link LayoutWrappingEncoder}
+     * and a {@link RecordStore#isConcurrent() concurrent} store. A
+     * {@link ConcurrentRecordStore} is created if no store is set. The new
+     * value takes effect when this appender is started.
+     *
+     * @param concurrent {@code true} for concurrent; {@code false} otherwise.
+     */
+    public void setConcurrent(final boolean concurrent) {
+
+        this.concurrent = concurrent;
     }
 
 
@@ -183,7 +1139,7 @@ public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
     /**
      * the output stream to buffer.
      */
-    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final RecordBuffer buffer = new RecordBuffer();
 
 
     /**
@@ -193,15 +1149,53 @@ public class BufferedOutputStreamAppender<E> extends OutputStreamAppender<E> {
 
 
     /**
-     * the buffered record list.
+     * the record store.
      */
-    private final List<byte[]> records = new ArrayList<>();
+    private RecordStore store;
 
 
     /**
-     * the number of bytes buffered so far.
+     * the store of the event being written out.
      */
-    private int length = 0;
+    private RecordStore target;
+
+
+    /**
+     * the flag for writing directly into the store.
+     */
+    private boolean direct = false;
+
+
+    /**
+     * the flag for concurrent mode.
+     */
+    private boolean concurrent = false;
+
+
+    /**
+     * the version of the store; odd while changing.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+
+    /**
+     * the per-thread scratches for concurrent mode.
+     */
+    private final ThreadLocal<EncodingScratch> scratches
+        = new ThreadLocal<EncodingScratch>() {
+
+            @Override
+            protected EncodingScratch initialValue() {
+
+                final Charset charset
+                    = ((LayoutWrappingEncoder<?>) encoder).getCharset();
+
+                return new EncodingScratch(
+                    charset == null ? Charset.defaultCharset() : charset);
+            }
+
+
+        };
 
 
 }
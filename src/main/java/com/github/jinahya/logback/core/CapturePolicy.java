@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+
+/**
+ * Policies of what a recorder keeps of each logging event, trading fidelity
+ * for retained memory.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public enum CapturePolicy {
+
+
+    /**
+     * Keeps only the timestamp, the level, the logger name, the thread name
+     * and the formatted message in a compact immutable event. Arguments, MDC
+     * properties, markers, throwables and caller data are dropped.
+     */
+    COMPACT {
+
+
+        @Override
+        ILoggingEvent capture(final ILoggingEvent event) {
+
+            return new CompactLoggingEvent(event);
+        }
+
+
+    },
+    /**
+     * Keeps the event as logged. Lazily computed values, such as the thread
+     * name and the formatted message, are computed when rendered.
+     */
+    REFERENCE,
+    /**
+     * Keeps the event after preparing it for deferred processing so that
+     * every value is computed on the logging thread.
+     */
+    FULL {
+
+
+        @Override
+        ILoggingEvent capture(final ILoggingEvent event) {
+
+            event.prepareForDeferredProcessing();
+
+            return event;
+        }
+
+
+    },
+    /**
+     * Keeps the timestamp, the level, the logger name, the thread name, the
+     * message template with its arguments rendered and the throwable in
+     * columns of a {@link ColumnarEventAppender}. Events are rebuilt, as
+     * compact events, only when rendered.
+     */
+    COLUMNAR {
+
+
+        @Override
+        EventBufferAppender<ILoggingEvent> appender() {
+
+            return new ColumnarEventAppender();
+        }
+
+
+    };
+
+
+    /**
+     * An event ring appender which captures events by a policy.
+     */
+    private static final class CapturingAppender
+        extends EventRingAppender<ILoggingEvent> {
+
+
+        CapturingAppender(final CapturePolicy policy) {
+
+            super();
+
+            this.policy = policy;
+        }
+
+
+        @Override
+        protected void append(final ILoggingEvent eventObject) {
+
+            super.append(policy.capture(eventObject));
+        }
+
+
+        private final CapturePolicy policy;
+
+
+    }
+
+
+    /**
+     * Captures specified event on the logging thread. The default
+     * implementation returns specified event as is.
+     *
+     * @param event the event
+     *
+     * @return the event to keep.
+     */
+    ILoggingEvent capture(final ILoggingEvent event) {
+
+        return event;
+    }
+
+
+    /**
+     * Creates a new appender keeping events by this policy. The default
+     * implementation returns an event ring appender which keeps what
+     * {@link #capture(ILoggingEvent)} returns.
+     *
+     * @return a new appender.
+     */
+    EventBufferAppender<ILoggingEvent> appender() {
+
+        return new CapturingAppender(this);
+    }
+
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+/**
+ * Scopes of threads whose events a recorder captures. A scope binds an owner
+ * on the thread starting the recorder and checks the logging thread against
+ * the owner for each event, so that recorders started by tests running in
+ * parallel do not see each other's events.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public enum CaptureScope {
+
+
+    /**
+     * Captures events of all threads.
+     */
+    ALL {
+
+
+        @Override
+        Object bind() {
+
+            return null;
+        }
+
+
+        @Override
+        boolean captures(final Object owner) {
+
+            return true;
+        }
+
+
+    },
+    /**
+     * Captures events of the thread started the recorder.
+     */
+    THREAD {
+
+
+        @Override
+        Object bind() {
+
+            return Thread.currentThread();
+        }
+
+
+        @Override
+        boolean captures(final Object owner) {
+
+            return Thread.currentThread() == owner;
+        }
+
+
+    },
+    /**
+     * Captures events of threads in the thread group of the thread started
+     * the recorder.
+     */
+    THREAD_GROUP {
+
+
+        @Override
+        Object bind() {
+
+            return Thread.currentThread().getThreadGroup();
+        }
+
+
+        @Override
+        boolean captures(final Object owner) {
+
+            return Thread.currentThread().getThreadGroup() == owner;
+        }
+
+
+    },
+    /**
+     * Captures events of the thread started the recorder and of threads
+     * created, directly or indirectly, by that thread while recording. The
+     * context is carried by an inheritable thread local.
+     */
+    CONTEXT {
+
+
+        @Override
+        Object bind() {
+
+            final Token token = new Token(TOKEN.get());
+            TOKEN.set(token);
+
+            return token;
+        }
+
+
+        @Override
+        boolean captures(final Object owner) {
+
+            for (Token token = TOKEN.get(); token != null;
+                 token = token.parent) {
+                if (token == owner) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+
+        @Override
+        void release(final Object owner) {
+
+            if (TOKEN.get() == owner) {
+                final Token parent = ((Token) owner).parent;
+                if (parent == null) {
+                    TOKEN.remove();
+                } else {
+                    TOKEN.set(parent);
+                }
+            }
+        }
+
+
+    };
+
+
+    /**
+     * A context token.
+     */
+    private static final class Token {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param parent the enclosing token; may be {@code null}.
+         */
+        Token(final Token parent) {
+
+            super();
+
+            this.parent = parent;
+        }
+
+
+        /**
+         * the enclosing token.
+         */
+        private final Token parent;
+
+
+    }
+
+
+    /**
+     * The innermost context token of each thread.
+     */
+    private static final ThreadLocal<Token> TOKEN
+        = new InheritableThreadLocal<>();
+
+
+    /**
+     * Binds an owner on the current thread which is starting a recorder.
+     *
+     * @return the owner.
+     */
+    abstract Object bind();
+
+
+    /**
+     * Checks whether an event logged on the current thread is captured for
+     * specified owner.
+     *
+     * @param owner the owner bound when the recorder started.
+     *
+     * @return {@code true} if captured; {@code false} otherwise.
+     */
+    abstract boolean captures(Object owner);
+
+
+    /**
+     * Releases specified owner on the current thread which is stopping a
+     * recorder. The default implementation does nothing.
+     *
+     * @param owner the owner bound when the recorder started.
+     */
+    void release(final Object owner) {
+    }
+
+
+}
@@ -0,0 +1,610 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.helpers.MessageFormatter;
+
+
+/**
+ * An appender keeps the most recent logging events in columns rather than as
+ * objects. Timestamps and levels are kept in primitive arrays, logger names,
+ * thread names and message templates as identifiers of dictionaries, and
+ * arguments as their rendered strings packed into a single ring shared by all
+ * events. Events are rebuilt, as compact events, only when the elements of a
+ * snapshot are accessed. Markers, MDC properties and caller data are not kept.
+ * <p>
+ * The template dictionary is bounded by the template limit; once full, the
+ * formatted messages of events with new templates are kept instead. The name
+ * dictionary is bounded by the name limit, or by four times the maximum number
+ * of events if larger; once full, it is rebuilt from the names of events still
+ * held.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class ColumnarEventAppender extends EventBufferAppender<ILoggingEvent> {
+
+
+    /**
+     * The default maximum number of distinct message templates.
+     */
+    public static final int DEFAULT_TEMPLATE_LIMIT = 4096;
+
+
+    /**
+     * The default maximum number of distinct logger names and thread names.
+     */
+    public static final int DEFAULT_NAME_LIMIT = 4096;
+
+
+    /**
+     * The levels indexed by their column values.
+     */
+    private static final Level[] LEVELS = {
+        Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR
+    };
+
+
+    /**
+     * An append-only dictionary of strings.
+     */
+    private static final class Dictionary {
+
+
+        /**
+         * Returns the identifier of specified value, adding the value if
+         * absent and the dictionary is not full.
+         *
+         * @param value the value
+         * @param limit the maximum number of values.
+         *
+         * @return the identifier; {@code -1} if absent and full.
+         */
+        int id(final String value, final int limit) {
+
+            final Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+
+            if (values.size() >= limit) {
+                return -1;
+            }
+
+            ids.put(value, values.size());
+            values.add(value);
+
+            return values.size() - 1;
+        }
+
+
+        /**
+         * the identifiers of values.
+         */
+        private final Map<String, Integer> ids = new HashMap<>();
+
+
+        /**
+         * the values indexed by their identifiers.
+         */
+        private final List<String> values = new ArrayList<>();
+
+
+    }
+
+
+    /**
+     * A snapshot of columns whose elements are built when accessed.
+     */
+    private static final class View extends AbstractList<ILoggingEvent> {
+
+
+        @Override
+        public ILoggingEvent get(final int index) {
+
+            if (index < 0 || index >= timestamps.length) {
+                throw new IndexOutOfBoundsException(
+                    "index(" + index + ") out of bounds");
+            }
+
+            final String message;
+            if (templates[index] < 0) {
+                message = values[offsets[index]];
+            } else {
+                message = MessageFormatter.arrayFormat(
+                    messages[templates[index]],
+                    counts[index] < 0 ? null : Arrays.copyOfRange(
+                        values, offsets[index],
+                        offsets[index] + counts[index]))
+                    .getMessage();
+            }
+
+            return new CompactLoggingEvent(
+                timestamps[index], LEVELS[levels[index]],
+                names[loggers[index]], names[threads[index]],
+                message, context, throwables[index]);
+        }
+
+
+        @Override
+        public int size() {
+
+            return timestamps.length;
+        }
+
+
+        private long[] timestamps;
+
+
+        private byte[] levels;
+
+
+        private int[] loggers;
+
+
+        private int[] threads;
+
+
+        private int[] templates;
+
+
+        private int[] offsets;
+
+
+        private int[] counts;
+
+
+        private String[] values;
+
+
+        private IThrowableProxy[] throwables;
+
+
+        private String[] names;
+
+
+        private String[] messages;
+
+
+        private LoggerContextVO context;
+
+
+    }
+
+
+    /**
+     * Returns the column value of specified level.
+     *
+     * @param level the level
+     *
+     * @return the column value.
+     */
+    private static byte level(final Level level) {
+
+        switch (level.toInt()) {
+            case Level.TRACE_INT:
+                return 0;
+            case Level.DEBUG_INT:
+                return 1;
+            case Level.INFO_INT:
+                return 2;
+            case Level.WARN_INT:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+
+    /**
+     * Renders specified arguments as strings the way the message formatter
+     * does. Arguments which need no rendering are returned as they are.
+     *
+     * @param arguments the arguments; may be {@code null}.
+     *
+     * @return rendered arguments, each of which is either {@code null} or a
+     * string; {@code null} if {@code arguments} is {@code null}.
+     */
+    private static Object[] render(final Object[] arguments) {
+
+        if (arguments == null) {
+            return null;
+        }
+
+        Object[] rendered = arguments;
+        for (int i = 0; i < arguments.length; i++) {
+            final Object argument = arguments[i];
+            if (argument == null || argument instanceof String) {
+                continue;
+            }
+            if (rendered == arguments) {
+                rendered = Arrays.copyOf(arguments, arguments.length);
+            }
+            rendered[i] = MessageFormatter.format("{}", argument).getMessage();
+        }
+
+        return rendered;
+    }
+
+
+    @Override
+    public void start() {
+
+        final int maxSize = getMaxSize();
+        if (maxSize > 0) {
+            synchronized (lock) {
+                timestamps = new long[maxSize];
+                levels = new byte[maxSize];
+                loggers = new int[maxSize];
+                threads = new int[maxSize];
+                templates = new int[maxSize];
+                offsets = new long[maxSize];
+                counts = new int[maxSize];
+                values = new String[Math.max(16, maxSize * 2)];
+                throwables = new IThrowableProxy[maxSize];
+                names = new Dictionary();
+                nameBound = (int) Math.min(
+                    Integer.MAX_VALUE, Math.max(nameLimit, maxSize * 4L));
+                written = 0L;
+                next = 0L;
+            }
+        }
+
+        super.start();
+    }
+
+
+    @Override
+    protected void append(final ILoggingEvent eventObject) {
+
+        // anything lazily computed is computed on the logging thread
+        final long timestamp = eventObject.getTimeStamp();
+        final byte level = level(eventObject.getLevel());
+        final String loggerName = eventObject.getLoggerName();
+        final String threadName = eventObject.getThreadName();
+        final String message = eventObject.getMessage();
+        final Object[] argumentArray = eventObject.getArgumentArray();
+        final IThrowableProxy throwable = eventObject.getThrowableProxy();
+        final Object[] rendered = render(argumentArray);
+
+        synchronized (lock) {
+            final int index = (int) (next % timestamps.length);
+            if (names.values.size() > nameBound - 2) {
+                rebuild(index);
+            }
+            timestamps[index] = timestamp;
+            levels[index] = level;
+            loggers[index] = names.id(loggerName, Integer.MAX_VALUE);
+            threads[index] = names.id(threadName, Integer.MAX_VALUE);
+            templates[index] = messages.id(message, templateLimit);
+            if (templates[index] < 0) {
+                pack(index, new Object[]{eventObject.getFormattedMessage()});
+            } else {
+                pack(index, rendered);
+            }
+            throwables[index] = throwable;
+            if (context == null) {
+                context = eventObject.getLoggerContextVO();
+            }
+            next++;
+        }
+    }
+
+
+    /**
+     * Packs specified arguments of the event at specified index into the
+     * argument ring, growing the ring if it would overwrite arguments of
+     * events still held.
+     *
+     * @param index the index of the event.
+     * @param packed the arguments; may be {@code null}.
+     */
+    private void pack(final int index, final Object[] packed) {
+
+        final int count = packed == null ? 0 : packed.length;
+
+        // the first argument still referenced once the event is written
+        final long live = Math.min(next + 1, timestamps.length);
+        final long oldest = live == 1L
+                            ? written
+                            : offsets[(int) ((next + 1 - live)
+                                             % timestamps.length)];
+
+        if (written + count - oldest > values.length) {
+            int length = values.length;
+            while (written + count - oldest > length) {
+                length *= 2;
+            }
+            final String[] grown = new String[length];
+            for (long p = oldest; p < written; p++) {
+                grown[(int) (p % length)] = values[(int) (p % values.length)];
+            }
+            values = grown;
+        }
+
+        for (int i = 0; i < count; i++) {
+            values[(int) ((written + i) % values.length)] = (String) packed[i];
+        }
+        offsets[index] = written;
+        counts[index] = packed == null ? -1 : count;
+        written += count;
+    }
+
+
+    /**
+     * Rebuilds the name dictionary from the names of events still held except
+     * the event at specified index which is about to be overwritten.
+     *
+     * @param index the index of the event to be overwritten.
+     */
+    private void rebuild(final int index) {
+
+        final Dictionary rebuilt = new Dictionary();
+        final int live = (int) Math.min(next, timestamps.length);
+        for (int i = 0; i < live; i++) {
+            if (i == index) {
+                continue;
+            }
+            loggers[i] = rebuilt.id(names.values.get(loggers[i]),
+                                    Integer.MAX_VALUE);
+            threads[i] = rebuilt.id(names.values.get(threads[i]),
+                                    Integer.MAX_VALUE);
+        }
+        names = rebuilt;
+    }
+
+
+    @Override
+    public List<ILoggingEvent> snapshot() {
+
+        final View view = new View();
+
+        synchronized (lock) {
+            if (timestamps == null) {
+                return new ArrayList<>(0);
+            }
+            final int length = (int) Math.min(next, timestamps.length);
+            final int head = (int) ((next - length) % timestamps.length);
+            view.timestamps = new long[length];
+            view.levels = new byte[length];
+            view.loggers = new int[length];
+            view.threads = new int[length];
+            view.templates = new int[length];
+            view.counts = new int[length];
+            view.throwables = new IThrowableProxy[length];
+            copy(timestamps, view.timestamps, head, length);
+            copy(levels, view.levels, head, length);
+            copy(loggers, view.loggers, head, length);
+            copy(threads, view.threads, head, length);
+            copy(templates, view.templates, head, length);
+            copy(counts, view.counts, head, length);
+            copy(throwables, view.throwables, head, length);
+            final long base = length == 0 ? written : offsets[head];
+            view.offsets = new int[length];
+            for (int i = 0; i < length; i++) {
+                view.offsets[i] = (int) (offsets[(head + i) % offsets.length]
+                                         - base);
+            }
+            view.values = new String[(int) (written - base)];
+            for (int i = 0; i < view.values.length; i++) {
+                view.values[i] = values[(int) ((base + i) % values.length)];
+            }
+            view.names = names.values.toArray(
+                new String[names.values.size()]);
+            view.messages = messages.values.toArray(
+                new String[messages.values.size()]);
+            view.context = context;
+        }
+
+        return view;
+    }
+
+
+    /**
+     * Copies specified number of elements of a ring column starting at
+     * specified index.
+     *
+     * @param column the ring column
+     * @param copy the array to copy to.
+     * @param head the index of the first element.
+     * @param length the number of elements.
+     */
+    private static void copy(final Object column, final Object copy,
+                             final int head, final int length) {
+
+        final int first = Math.min(length, Array.getLength(column) - head);
+        System.arraycopy(column, head, copy, 0, first);
+        System.arraycopy(column, 0, copy, first, length - first);
+    }
+
+
+    @Override
+    public int getLength() {
+
+        synchronized (lock) {
+            return timestamps == null
+                   ? 0 : (int) Math.min(next, timestamps.length);
+        }
+    }
+
+
+    /**
+     * Returns the maximum number of distinct message templates.
+     *
+     * @return the maximum number of distinct message templates.
+     */
+    public int getTemplateLimit() {
+
+        return templateLimit;
+    }
+
+
+    /**
+     * Sets the maximum number of distinct message templates.
+     *
+     * @param templateLimit the maximum number of distinct message templates.
+     */
+    public void setTemplateLimit(final int templateLimit) {
+
+        this.templateLimit = templateLimit;
+    }
+
+
+    /**
+     * Returns the maximum number of distinct logger names and thread names.
+     *
+     * @return the maximum number of distinct names.
+     */
+    public int getNameLimit() {
+
+        return nameLimit;
+    }
+
+
+    /**
+     * Sets the maximum number of distinct logger names and thread names. The
+     * new value takes effect when this appender is started.
+     *
+     * @param nameLimit the maximum number of distinct names.
+     */
+    public void setNameLimit(final int nameLimit) {
+
+        this.nameLimit = nameLimit;
+    }
+
+
+    /**
+     * the maximum number of distinct message templates.
+     */
+    private int templateLimit = DEFAULT_TEMPLATE_LIMIT;
+
+
+    /**
+     * the maximum number of distinct names.
+     */
+    private int nameLimit = DEFAULT_NAME_LIMIT;
+
+
+    /**
+     * the number of distinct names at which the name dictionary is rebuilt.
+     */
+    private int nameBound;
+
+
+    /**
+     * the lock guarding the columns and the dictionaries.
+     */
+    private final Object lock = new Object();
+
+
+    /**
+     * the dictionary of logger names and thread names.
+     */
+    private Dictionary names = new Dictionary();
+
+
+    /**
+     * the dictionary of message templates.
+     */
+    private final Dictionary messages = new Dictionary();
+
+
+    /**
+     * the timestamps.
+     */
+    private long[] timestamps;
+
+
+    /**
+     * the levels.
+     */
+    private byte[] levels;
+
+
+    /**
+     * the identifiers of logger names.
+     */
+    private int[] loggers;
+
+
+    /**
+     * the identifiers of thread names.
+     */
+    private int[] threads;
+
+
+    /**
+     * the identifiers of message templates; {@code -1} for formatted.
+     */
+    private int[] templates;
+
+
+    /**
+     * the positions of the first arguments in the argument ring.
+     */
+    private long[] offsets;
+
+
+    /**
+     * the numbers of arguments; {@code -1} for no argument array.
+     */
+    private int[] counts;
+
+
+    /**
+     * the ring of rendered arguments or formatted messages of all events.
+     */
+    private String[] values;
+
+
+    /**
+     * the position of the next argument in the argument ring.
+     */
+    private long written;
+
+
+    /**
+     * the throwables.
+     */
+    private IThrowableProxy[] throwables;
+
+
+    /**
+     * the logger context value object shared by all events.
+     */
+    private LoggerContextVO context;
+
+
+    /**
+     * the sequence number of the next event.
+     */
+    private long next;
+
+
+}
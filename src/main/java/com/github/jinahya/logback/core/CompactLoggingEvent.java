@@ -0,0 +1,273 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.CallerData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import java.util.Collections;
+import java.util.Map;
+import org.slf4j.Marker;
+
+
+/**
+ * An immutable logging event holds only the timestamp, the level, the logger
+ * name, the thread name, the formatted message and, optionally, the
+ * throwable. The logger context value object, which is shared by all events of
+ * a context, is kept as well. Arguments, markers, MDC properties and caller
+ * data are not available.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+final class CompactLoggingEvent implements ILoggingEvent {
+
+
+    /**
+     * Creates a new instance.
+     *
+     * @param timeStamp the timestamp
+     * @param level the level
+     * @param loggerName the logger name
+     * @param threadName the thread name
+     * @param formattedMessage the formatted message
+     * @param loggerContextVO the logger context value object.
+     * @param throwableProxy the throwable; may be {@code null}.
+     */
+    CompactLoggingEvent(final long timeStamp, final Level level,
+                        final String loggerName, final String threadName,
+                        final String formattedMessage,
+                        final LoggerContextVO loggerContextVO,
+                        final IThrowableProxy throwableProxy) {
+
+        super();
+
+        this.timeStamp = timeStamp;
+        this.level = level;
+        this.loggerName = loggerName;
+        this.threadName = threadName;
+        this.formattedMessage = formattedMessage;
+        this.loggerContextVO = loggerContextVO;
+        this.throwableProxy = throwableProxy;
+    }
+
+
+    /**
+     * Creates a new instance from specified event without the throwable. This
+     * constructor should be invoked on the logging thread so that the thread
+     * name is right.
+     *
+     * @param event the event
+     */
+    CompactLoggingEvent(final ILoggingEvent event) {
+
+        this(event.getTimeStamp(), event.getLevel(), event.getLoggerName(),
+             event.getThreadName(), event.getFormattedMessage(),
+             event.getLoggerContextVO(), null);
+    }
+
+
+    @Override
+    public String getThreadName() {
+
+        return threadName;
+    }
+
+
+    @Override
+    public Level getLevel() {
+
+        return level;
+    }
+
+
+    /**
+     * Returns the formatted message.
+     *
+     * @return the formatted message.
+     */
+    @Override
+    public String getMessage() {
+
+        return formattedMessage;
+    }
+
+
+    /**
+     * Returns {@code null}.
+     *
+     * @return {@code null}.
+     */
+    @Override
+    public Object[] getArgumentArray() {
+
+        return null;
+    }
+
+
+    @Override
+    public String getFormattedMessage() {
+
+        return formattedMessage;
+    }
+
+
+    @Override
+    public String getLoggerName() {
+
+        return loggerName;
+    }
+
+
+    @Override
+    public LoggerContextVO getLoggerContextVO() {
+
+        return loggerContextVO;
+    }
+
+
+    @Override
+    public IThrowableProxy getThrowableProxy() {
+
+        return throwableProxy;
+    }
+
+
+    /**
+     * Returns an empty array.
+     *
+     * @return an empty array.
+     */
+    @Override
+    public StackTraceElement[] getCallerData() {
+
+        return CallerData.EMPTY_CALLER_DATA_ARRAY;
+    }
+
+
+    @Override
+    public boolean hasCallerData() {
+
+        return false;
+    }
+
+
+    /**
+     * Returns {@code null}.
+     *
+     * @return {@code null}.
+     */
+    @Override
+    public Marker getMarker() {
+
+        return null;
+    }
+
+
+    /**
+     * Returns an empty map.
+     *
+     * @return an empty map.
+     */
+    @Override
+    public Map<String, String> getMDCPropertyMap() {
+
+        return Collections.emptyMap();
+    }
+
+
+    /**
+     * Returns an empty map.
+     *
+     * @return an empty map.
+     */
+    @Override
+    @Deprecated
+    public Map<String, String> getMdc() {
+
+        return getMDCPropertyMap();
+    }
+
+
+    @Override
+    public long getTimeStamp() {
+
+        return timeStamp;
+    }
+
+
+    /**
+     * Does nothing; this event is already prepared.
+     */
+    @Override
+    public void prepareForDeferredProcessing() {
+    }
+
+
+    @Override
+    public String toString() {
+
+        return "[" + level + "] " + formattedMessage;
+    }
+
+
+    /**
+     * the timestamp.
+     */
+    private final long timeStamp;
+
+
+    /**
+     * the level.
+     */
+    private final Level level;
+
+
+    /**
+     * the logger name.
+     */
+    private final String loggerName;
+
+
+    /**
+     * the thread name.
+     */
+    private final String threadName;
+
+
+    /**
+     * the formatted message.
+     */
+    private final String formattedMessage;
+
+
+    /**
+     * the logger context value object.
+     */
+    private final LoggerContextVO loggerContextVO;
+
+
+    /**
+     * the throwable.
+     */
+    private final IThrowableProxy throwableProxy;
+
+
+}
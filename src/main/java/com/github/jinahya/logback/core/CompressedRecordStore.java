@@ -0,0 +1,554 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * A record store collects records into an open block which is compressed into
+ * a sealed block once full. The limit bounds the number of bytes of sealed
+ * blocks plus the open block, and whole sealed blocks are evicted, oldest
+ * first, to stay within it. Records are never split across blocks; a record
+ * larger than a block is sealed as a block of its own. A block which deflate
+ * does not shrink is held as is so that a sealed block never takes more bytes
+ * than it holds. Reads inflate one block at a time through a small array,
+ * reusing a single inflater which is ended once the read is done.
+ * <p>
+ * The length reported by {@link #getLength()} is the number of uncompressed
+ * bytes while {@link #getCompressedLength()} reports the number of bytes
+ * actually held.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class CompressedRecordStore extends RecordStore {
+
+
+    /**
+     * The default size of each block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+
+    /**
+     * A sealed block.
+     */
+    private static class Block {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param bytes the held bytes.
+         * @param raw a flag for uncompressed bytes.
+         * @param lengths the lengths of records.
+         * @param length the number of uncompressed bytes.
+         * @param sequence the sequence number of the first record.
+         */
+        Block(final byte[] bytes, final boolean raw, final int[] lengths,
+              final int length, final long sequence) {
+
+            super();
+
+            this.bytes = bytes;
+            this.raw = raw;
+            this.lengths = lengths;
+            this.length = length;
+            this.sequence = sequence;
+        }
+
+
+        /**
+         * the held bytes; compressed unless {@link #raw}.
+         */
+        private final byte[] bytes;
+
+
+        /**
+         * a flag for uncompressed bytes.
+         */
+        private final boolean raw;
+
+
+        /**
+         * the lengths of records.
+         */
+        private final int[] lengths;
+
+
+        /**
+         * the number of uncompressed bytes.
+         */
+        private final int length;
+
+
+        /**
+         * the sequence number of the first record.
+         */
+        private final long sequence;
+
+
+    }
+
+
+    /**
+     * {@inheritDoc} The size of the open block is bounded by the limit.
+     *
+     * @param limit {@inheritDoc}
+     */
+    @Override
+    public void start(final long limit) {
+
+        super.start(limit);
+
+        open = new byte[limit < 0L ? blockSize
+                        : (int) Math.min(blockSize, limit)];
+        lengths = new int[16];
+
+        clear();
+    }
+
+
+    @Override
+    public void add(final byte[] record, final int offset, final int length) {
+
+        if (length > open.length) {
+            seal();
+            sealed.addLast(compress(record, offset, length, new int[]{length},
+                                    sequence));
+            compressed += sealed.peekLast().bytes.length;
+            this.length += length;
+            sequence++;
+            opening = sequence;
+            evict();
+            return;
+        }
+
+        if (opened + length > open.length) {
+            seal();
+        }
+
+        System.arraycopy(record, offset, open, opened, length);
+        opened += length;
+        if (count == lengths.length) {
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        lengths[count++] = length;
+        this.length += length;
+        sequence++;
+
+        evict();
+    }
+
+
+    /**
+     * {@inheritDoc} The deflater is ended and created again when a block is
+     * next sealed.
+     */
+    @Override
+    public void clear() {
+
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+
+        sealed.clear();
+        compressed = 0L;
+        opened = 0;
+        count = 0;
+        opening = sequence;
+        length = 0L;
+    }
+
+
+    /**
+     * {@inheritDoc} The length is the number of uncompressed bytes.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long getLength() {
+
+        return length;
+    }
+
+
+    /**
+     * Returns the number of bytes actually held which is the number of bytes
+     * of sealed blocks plus the number of bytes in the open block.
+     *
+     * @return the number of bytes held.
+     */
+    public long getCompressedLength() {
+
+        return compressed + opened;
+    }
+
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+
+        final Inflater inflater = new Inflater();
+        try {
+            for (final Block block : sealed) {
+                inflate(block, 0L, output, inflater);
+            }
+        } finally {
+            inflater.end();
+        }
+
+        output.write(open, 0, opened);
+    }
+
+
+    @Override
+    public long getSequence() {
+
+        return sequence;
+    }
+
+
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        return read(cursor, output, Long.MAX_VALUE);
+    }
+
+
+    /**
+     * {@inheritDoc} Records are written a whole block at a time.
+     *
+     * @param cursor {@inheritDoc}
+     * @param output {@inheritDoc}
+     * @param max {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output,
+                     final long max)
+        throws IOException {
+
+        long written = 0L;
+        long read = 0L;
+
+        final Inflater inflater = new Inflater();
+        try {
+            for (final Block block : sealed) {
+                final int skip = (int) Math.min(
+                    Math.max(0L, cursor.getSequence() - block.sequence),
+                    block.lengths.length);
+                if (skip == block.lengths.length) {
+                    continue;
+                }
+                if (read > 0L && written >= max) {
+                    cursor.advance(block.sequence + skip, read);
+                    return written;
+                }
+                long skipped = 0L;
+                for (int i = 0; i < skip; i++) {
+                    skipped += block.lengths[i];
+                }
+                inflate(block, skipped, output, inflater);
+                written += block.length - skipped;
+                read += block.lengths.length - skip;
+            }
+        } finally {
+            inflater.end();
+        }
+
+        final int skip = (int) Math.min(
+            Math.max(0L, cursor.getSequence() - opening), count);
+        if (read > 0L && written >= max && skip < count) {
+            cursor.advance(opening + skip, read);
+            return written;
+        }
+        int skipped = 0;
+        for (int i = 0; i < skip; i++) {
+            skipped += lengths[i];
+        }
+        output.write(open, skipped, opened - skipped);
+        written += opened - skipped;
+        read += count - skip;
+
+        cursor.advance(sequence, read);
+
+        return written;
+    }
+
+
+    /**
+     * Returns the size of each block.
+     *
+     * @return the size of each block.
+     */
+    public int getBlockSize() {
+
+        return blockSize;
+    }
+
+
+    /**
+     * Sets the size of each block. The new value takes effect when this store
+     * is started.
+     *
+     * @param blockSize the size of each block.
+     */
+    public void setBlockSize(final int blockSize) {
+
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException(
+                "blockSize(" + blockSize + ") <= 0");
+        }
+
+        this.blockSize = blockSize;
+    }
+
+
+    /**
+     * Returns the compression level.
+     *
+     * @return the compression level.
+     */
+    public int getLevel() {
+
+        return level;
+    }
+
+
+    /**
+     * Sets the compression level. The new value takes effect when this store
+     * is started.
+     *
+     * @param level the compression level; between {@code 0} and {@code 9} or
+     * {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setLevel(final int level) {
+
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("illegal level: " + level);
+        }
+
+        this.level = level;
+    }
+
+
+    /**
+     * Compresses the open block into a sealed block.
+     */
+    private void seal() {
+
+        if (count == 0) {
+            return;
+        }
+
+        sealed.addLast(compress(open, 0, opened, Arrays.copyOf(lengths, count),
+                                opening));
+        compressed += sealed.peekLast().bytes.length;
+
+        opened = 0;
+        count = 0;
+        opening = sequence;
+    }
+
+
+    /**
+     * Compresses specified bytes into a block. The bytes are held as is when
+     * the compressed form is not shorter.
+     *
+     * @param bytes the array containing the bytes.
+     * @param offset the offset of the bytes.
+     * @param length the number of bytes.
+     * @param lengths the lengths of records in the bytes.
+     * @param sequence the sequence number of the first record.
+     *
+     * @return a new block.
+     */
+    private Block compress(final byte[] bytes, final int offset,
+                           final int length, final int[] lengths,
+                           final long sequence) {
+
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        }
+        deflater.reset();
+        deflater.setInput(bytes, offset, length);
+        deflater.finish();
+
+        byte[] compressed = new byte[Math.max(64, length / 4)];
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length) {
+                compressed = Arrays.copyOf(compressed, size * 2);
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+
+        if (size >= length) {
+            return new Block(Arrays.copyOfRange(bytes, offset, offset + length),
+                             true, lengths, length, sequence);
+        }
+
+        return new Block(Arrays.copyOf(compressed, size), false, lengths,
+                         length, sequence);
+    }
+
+
+    /**
+     * Inflates specified block to specified output stream.
+     *
+     * @param block the block
+     * @param skip the number of leading uncompressed bytes to discard.
+     * @param output the output stream.
+     * @param inflater the inflater to reset and use.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void inflate(final Block block, long skip,
+                                final OutputStream output,
+                                final Inflater inflater)
+        throws IOException {
+
+        if (block.length == 0) {
+            return;
+        }
+
+        if (block.raw) {
+            output.write(block.bytes, (int) skip, block.length - (int) skip);
+            return;
+        }
+
+        inflater.reset();
+        try {
+            inflater.setInput(block.bytes);
+            final byte[] transfer = new byte[Math.min(
+                block.length, ArenaRecordStore.TRANSFER_SIZE)];
+            while (!inflater.finished()) {
+                final int n = inflater.inflate(transfer);
+                if (n == 0 && (inflater.needsInput()
+                               || inflater.needsDictionary())) {
+                    throw new IOException("truncated block");
+                }
+                final int s = (int) Math.min(skip, n);
+                output.write(transfer, s, n - s);
+                skip -= s;
+            }
+        } catch (final DataFormatException dfe) {
+            throw new IOException(dfe);
+        }
+    }
+
+
+    /**
+     * Evicts the oldest sealed blocks while exceeding the limit.
+     */
+    private void evict() {
+
+        while (limit >= 0L && compressed + opened > limit
+               && !sealed.isEmpty()) {
+            final Block block = sealed.removeFirst();
+            compressed -= block.bytes.length;
+            length -= block.length;
+        }
+    }
+
+
+    /**
+     * the size of each block.
+     */
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+
+    /**
+     * the compression level.
+     */
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+
+    /**
+     * the deflater; created when a block is sealed and ended on clear.
+     */
+    private Deflater deflater;
+
+
+    /**
+     * the sealed blocks.
+     */
+    private final ArrayDeque<Block> sealed = new ArrayDeque<>();
+
+
+    /**
+     * the number of bytes of sealed blocks.
+     */
+    private long compressed;
+
+
+    /**
+     * the open block.
+     */
+    private byte[] open;
+
+
+    /**
+     * the number of bytes in the open block.
+     */
+    private int opened;
+
+
+    /**
+     * the lengths of records in the open block.
+     */
+    private int[] lengths;
+
+
+    /**
+     * the number of records in the open block.
+     */
+    private int count;
+
+
+    /**
+     * the sequence number of the first record in the open block.
+     */
+    private long opening;
+
+
+    /**
+     * the number of uncompressed bytes held.
+     */
+    private long length;
+
+
+    /**
+     * the sequence number of the next record.
+     */
+    private long sequence;
+
+
+}
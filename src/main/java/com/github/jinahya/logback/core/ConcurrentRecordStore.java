@@ -0,0 +1,652 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A record store accepts records from multiple threads without locking.
+ * <p>
+ * A producer takes a sequence number and a position in a circular arena with a
+ * single compare-and-set of a packed {@code long}, writes the record into the
+ * arena, records the position and the length in the index slot of the
+ * sequence number and then writes the commit word of the slot last. Readers
+ * check the commit word of each slot, copy the record and re-check the commit
+ * word and the reservation afterwards, so that only fully written records are
+ * ever seen. Records still being written are not yet visible to readers and
+ * are not reported as evicted.
+ * <p>
+ * Producers never wait for each other. Old records are evicted when their
+ * bytes or their index slot are needed by a later reservation. A reservation
+ * never reuses bytes or a slot of a record still being written; when a
+ * stalled producer still holds them the new record is dropped instead, so the
+ * arena should be large compared to the records being written at once.
+ * <p>
+ * The sequence number is packed in 24 bits and the position in 40 bits, which
+ * is why the number of index slots is bounded by {@value #MAX_SLOTS}.
+ * <p>
+ * Only {@link #add(byte[], int, int)} and the read methods are thread-safe.
+ * The limit must not be negative.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class ConcurrentRecordStore extends RecordStore {
+
+
+    /**
+     * The maximum number of index slots.
+     */
+    public static final int MAX_SLOTS = 1 << 22;
+
+
+    /**
+     * The number of bits of a packed position.
+     */
+    private static final int POSITION_BITS = 40;
+
+
+    /**
+     * The mask of a packed position.
+     */
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1L;
+
+
+    /**
+     * The mask of a packed sequence number.
+     */
+    private static final long SEQUENCE_MASK = (1L << 24) - 1L;
+
+
+    /**
+     * Returns the smallest power of two which is not less than given value.
+     *
+     * @param value the value
+     *
+     * @return the smallest power of two not less than {@code value}.
+     */
+    private static int ceilingPowerOfTwo(final int value) {
+
+        final int highest = Integer.highestOneBit(Math.max(value, 1));
+
+        return highest == value ? highest : highest << 1;
+    }
+
+
+    /**
+     * Packs a sequence number and a position.
+     *
+     * @param sequence the sequence number.
+     * @param position the position.
+     *
+     * @return the packed value.
+     */
+    private static long pack(final long sequence, final long position) {
+
+        return ((sequence & SEQUENCE_MASK) << POSITION_BITS) | position;
+    }
+
+
+    /**
+     * Returns the sequence number of a packed value.
+     *
+     * @param packed the packed value.
+     *
+     * @return the sequence number in 24 bits.
+     */
+    private static long sequence(final long packed) {
+
+        return packed >>> POSITION_BITS;
+    }
+
+
+    /**
+     * Returns the position of a packed value.
+     *
+     * @param packed the packed value.
+     *
+     * @return the position.
+     */
+    private static long position(final long packed) {
+
+        return packed & POSITION_MASK;
+    }
+
+
+    /**
+     * Returns the number of sequence numbers from one to another.
+     *
+     * @param from the former sequence number.
+     * @param to the latter sequence number.
+     *
+     * @return the number of sequence numbers in between.
+     */
+    private static long behind(final long from, final long to) {
+
+        return (to - from) & SEQUENCE_MASK;
+    }
+
+
+    /**
+     * Returns the commit word of a record being written.
+     *
+     * @param sequence the sequence number of the record.
+     *
+     * @return the commit word.
+     */
+    private static long writing(final long sequence) {
+
+        return ((sequence & SEQUENCE_MASK) << 2) | 1L;
+    }
+
+
+    /**
+     * Returns the commit word of a committed record.
+     *
+     * @param sequence the sequence number of the record.
+     *
+     * @return the commit word.
+     */
+    private static long committed(final long sequence) {
+
+        return ((sequence & SEQUENCE_MASK) << 2) | 2L;
+    }
+
+
+    @Override
+    public void start(final long limit) {
+
+        if (limit < 0L) {
+            throw new IllegalArgumentException("limit(" + limit + ") < 0");
+        }
+
+        if (limit > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "limit(" + limit + ") > " + Integer.MAX_VALUE);
+        }
+
+        super.start(limit);
+
+        arena = new byte[(int) limit];
+        wrap = arena.length == 0 ? POSITION_MASK + 1L
+               : (POSITION_MASK + 1L) / arena.length * arena.length;
+        final int count = ceilingPowerOfTwo(Math.min(
+            MAX_SLOTS, slots > 0 ? slots : Math.max(64, arena.length / 16)));
+        commits = new AtomicLongArray(count);
+        positions = new long[count];
+        lengths = new int[count];
+        reservation.set(0L);
+        frontier.set(0L);
+        tail.set(0L);
+        advanced.set(0L);
+        floor = 0L;
+    }
+
+
+    /**
+     * Adds a record. This method is safe to be called concurrently. A record
+     * larger than the limit is dropped and reported as evicted. A record which
+     * would reuse bytes or an index slot of a record still being written by
+     * another thread is dropped without being reported.
+     *
+     * @param record {@inheritDoc}
+     * @param offset {@inheritDoc}
+     * @param length {@inheritDoc}
+     */
+    @Override
+    public void add(final byte[] record, final int offset, final int length) {
+
+        final int size = length > arena.length ? 0 : length;
+
+        long reserved;
+        for (;;) {
+            final long current = advance();
+            reserved = reservation.get();
+            if (behind(sequence(current), sequence(reserved))
+                >= commits.length()
+                || distance(position(current), position(reserved)) + size
+                   > arena.length) {
+                // the slot or the bytes are still being written
+                return;
+            }
+            if (reservation.compareAndSet(reserved, pack(
+                sequence(reserved) + 1L, plus(position(reserved), size)))) {
+                break;
+            }
+        }
+
+        evict(reserved, size);
+
+        final long sequence = sequence(reserved);
+        final int slot = slot(sequence);
+        commits.set(slot, writing(sequence));
+        positions[slot] = position(reserved);
+        lengths[slot] = length > arena.length ? -1 : length;
+        put(position(reserved), record, offset, size);
+        commits.set(slot, committed(sequence));
+
+        advance();
+    }
+
+
+    @Override
+    public boolean isConcurrent() {
+
+        return true;
+    }
+
+
+    @Override
+    public void clear() {
+
+        floor = expand(sequence(reservation.get()));
+        tail.set(frontier.get());
+    }
+
+
+    /**
+     * {@inheritDoc} The length of records still being added by other threads
+     * is not included.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long getLength() {
+
+        final long oldest = tail.get();
+
+        return distance(position(oldest), position(advance()));
+    }
+
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+
+        read(0L, output);
+    }
+
+
+    @Override
+    public long getSequence() {
+
+        return expand(sequence(reservation.get()));
+    }
+
+
+    /**
+     * {@inheritDoc} Records still being added by other threads are left for
+     * the next read.
+     *
+     * @param cursor {@inheritDoc}
+     * @param output {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        final long[] read = read(cursor.getSequence(), output);
+
+        cursor.advance(read[2], read[1]);
+
+        return read[0];
+    }
+
+
+    @Override
+    public byte[] toByteArray() {
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            write(output);
+        } catch (final IOException ioe) {
+            throw new AssertionError(ioe);
+        }
+
+        return output.toByteArray();
+    }
+
+
+    /**
+     * Returns the number of index slots.
+     *
+     * @return the number of index slots.
+     */
+    public int getSlots() {
+
+        return slots;
+    }
+
+
+    /**
+     * Sets the number of index slots which bounds the number of records held.
+     * The value is rounded up to a power of two, bounded by
+     * {@link #MAX_SLOTS}, and takes effect when this store is started.
+     *
+     * @param slots the number of index slots; zero or negative for a value
+     * derived from the limit.
+     */
+    public void setSlots(final int slots) {
+
+        this.slots = slots;
+    }
+
+
+    /**
+     * Writes committed records numbered from specified sequence number to
+     * specified output stream.
+     *
+     * @param from the lowest sequence number, inclusive.
+     * @param output the output stream.
+     *
+     * @return the number of bytes and the number of records written followed
+     * by the sequence number below which every record has been committed.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private long[] read(final long from, final OutputStream output)
+        throws IOException {
+
+        final long oldest = tail.get();
+        final long next = expand(sequence(advance()));
+
+        final long[] read = new long[]{0L, 0L, next};
+        byte[] record = new byte[0];
+        for (long sequence = Math.max(
+            Math.max(from, floor), expand(sequence(oldest)));
+             sequence < next; sequence++) {
+            final int slot = slot(sequence);
+            if (commits.get(slot) != committed(sequence)) {
+                continue;
+            }
+            final long position = positions[slot];
+            final int size = lengths[slot];
+            if (size < 0 || size > arena.length) {
+                continue;
+            }
+            if (record.length < size) {
+                record = new byte[size];
+            }
+            get(position, record, 0, size);
+            if (!valid(slot, sequence, position)) {
+                continue;
+            }
+            output.write(record, 0, size);
+            read[0] += size;
+            read[1]++;
+        }
+
+        return read;
+    }
+
+
+    /**
+     * Advances the committed frontier over records whose commit words are
+     * written.
+     *
+     * @return the current frontier, packed, below which every record is
+     * committed.
+     */
+    private long advance() {
+
+        for (;;) {
+            final long current = frontier.get();
+            final long sequence = sequence(current);
+            final int slot = slot(sequence);
+            if (commits.get(slot) != committed(sequence)) {
+                return current;
+            }
+            if (frontier.compareAndSet(current, pack(
+                sequence + 1L,
+                plus(position(current), Math.max(0, lengths[slot]))))) {
+                advanced.incrementAndGet();
+            }
+        }
+    }
+
+
+    /**
+     * Evicts the oldest records until the bytes and the index slot of a
+     * reservation are free.
+     *
+     * @param reserved the reservation, packed.
+     * @param size the number of bytes reserved.
+     */
+    private void evict(final long reserved, final int size) {
+
+        for (;;) {
+            final long oldest = tail.get();
+            if (behind(sequence(oldest), sequence(reserved))
+                < commits.length()
+                && distance(position(oldest), position(reserved)) + size
+                   <= arena.length) {
+                return;
+            }
+            final int slot = slot(sequence(oldest));
+            // fails if another producer has evicted the record since read
+            tail.compareAndSet(oldest, pack(
+                sequence(oldest) + 1L,
+                plus(position(oldest), Math.max(0, lengths[slot]))));
+        }
+    }
+
+
+    /**
+     * Returns the full sequence number of a packed one near the committed
+     * frontier.
+     *
+     * @param sequence the sequence number in 24 bits.
+     *
+     * @return the full sequence number.
+     */
+    private long expand(final long sequence) {
+
+        final long base = advanced.get();
+
+        return base + (((sequence - base) << POSITION_BITS) >> POSITION_BITS);
+    }
+
+
+    /**
+     * Returns the position given number of bytes after another.
+     *
+     * @param position the position.
+     * @param bytes the number of bytes.
+     *
+     * @return the position after {@code bytes}.
+     */
+    private long plus(final long position, final long bytes) {
+
+        return (position + bytes) % wrap;
+    }
+
+
+    /**
+     * Returns the number of bytes from one position to another.
+     *
+     * @param from the former position.
+     * @param to the latter position.
+     *
+     * @return the number of bytes in between.
+     */
+    private long distance(final long from, final long to) {
+
+        final long distance = (to - from) % wrap;
+
+        return distance < 0L ? distance + wrap : distance;
+    }
+
+
+    /**
+     * Returns the index slot of specified sequence number.
+     *
+     * @param sequence the sequence number.
+     *
+     * @return the index slot.
+     */
+    private int slot(final long sequence) {
+
+        return (int) (sequence & (commits.length() - 1));
+    }
+
+
+    /**
+     * Checks, after reading, whether the record of specified sequence number
+     * is still committed in its slot and its bytes have not been reused by
+     * later reservations.
+     *
+     * @param slot the slot of the record.
+     * @param sequence the sequence number of the record.
+     * @param position the position of the record.
+     *
+     * @return {@code true} if valid; {@code false} otherwise.
+     */
+    private boolean valid(final int slot, final long sequence,
+                          final long position) {
+
+        // a read-modify-write keeps preceding reads of the arena before it
+        return commits.getAndAdd(slot, 0L) == committed(sequence)
+               && distance(position, position(reservation.get()))
+                  <= arena.length;
+    }
+
+
+    /**
+     * Copies bytes into the arena wrapping around at the end.
+     *
+     * @param position the position in the arena.
+     * @param bytes the source array.
+     * @param offset the offset in {@code bytes}.
+     * @param length the number of bytes to copy.
+     */
+    private void put(final long position, final byte[] bytes, final int offset,
+                     final int length) {
+
+        if (length == 0) {
+            return;
+        }
+
+        final int at = (int) (position % arena.length);
+        final int first = Math.min(length, arena.length - at);
+        System.arraycopy(bytes, offset, arena, at, first);
+        System.arraycopy(bytes, offset + first, arena, 0, length - first);
+    }
+
+
+    /**
+     * Copies bytes out of the arena wrapping around at the end.
+     *
+     * @param position the position in the arena.
+     * @param bytes the destination array.
+     * @param offset the offset in {@code bytes}.
+     * @param length the number of bytes to copy.
+     */
+    private void get(final long position, final byte[] bytes, final int offset,
+                     final int length) {
+
+        if (length == 0) {
+            return;
+        }
+
+        final int at = (int) (position % arena.length);
+        final int first = Math.min(length, arena.length - at);
+        System.arraycopy(arena, at, bytes, offset, first);
+        System.arraycopy(arena, 0, bytes, offset + first, length - first);
+    }
+
+
+    /**
+     * the number of index slots.
+     */
+    private int slots = 0;
+
+
+    /**
+     * the circular arena.
+     */
+    private byte[] arena;
+
+
+    /**
+     * the modulus of positions; a multiple of the arena length.
+     */
+    private long wrap;
+
+
+    /**
+     * the commit words of slots; the sequence number in 24 bits shifted left
+     * by two, with {@code 1} while being written and {@code 2} once committed.
+     */
+    private AtomicLongArray commits;
+
+
+    /**
+     * the positions of records in slots; guarded by the commit words.
+     */
+    private long[] positions;
+
+
+    /**
+     * the lengths of records in slots, {@code -1} for dropped; guarded by the
+     * commit words.
+     */
+    private int[] lengths;
+
+
+    /**
+     * the next sequence number and the next position to reserve, packed.
+     */
+    private final AtomicLong reservation = new AtomicLong();
+
+
+    /**
+     * the sequence number and the position, packed, below which every record
+     * is committed.
+     */
+    private final AtomicLong frontier = new AtomicLong();
+
+
+    /**
+     * the sequence number and the position, packed, of the oldest record
+     * held.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+
+    /**
+     * the number of records the frontier has advanced over; may briefly lag
+     * the frontier.
+     */
+    private final AtomicLong advanced = new AtomicLong();
+
+
+    /**
+     * the sequence number below which records are cleared.
+     */
+    private volatile long floor;
+
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A record store holds records in direct byte buffer segments outside of the
+ * Java heap. The capacity is a {@code long} so that the arena can be larger
+ * than 2 GB. Bulk reads with {@link #write(java.io.OutputStream)} work for
+ * any size while {@link #toByteArray()} is limited by the maximum size of an
+ * array.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class DirectRecordStore extends ArenaRecordStore {
+
+
+    /**
+     * The default size of each segment.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1048576;
+
+
+    /**
+     * {@inheritDoc} The {@code limit} is ignored if a positive capacity has
+     * been set.
+     *
+     * @param limit {@inheritDoc}
+     *
+     * @see #setCapacity(long)
+     */
+    @Override
+    public void start(final long limit) {
+
+        final long size = capacity > 0L ? capacity : limit;
+        if (size < 0L) {
+            throw new IllegalArgumentException(
+                "neither limit nor capacity specified");
+        }
+
+        final long count = (size + segmentSize - 1) / segmentSize;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "too many segments: " + count);
+        }
+
+        segments = new ByteBuffer[(int) count];
+        for (int i = 0; i < segments.length; i++) {
+            final long position = (long) i * segmentSize;
+            segments[i] = allocate(
+                i, position, (int) Math.min(segmentSize, size - position));
+        }
+        total = size;
+
+        super.start(limit);
+    }
+
+
+    /**
+     * Returns the capacity.
+     *
+     * @return the capacity.
+     */
+    public long getCapacity() {
+
+        return capacity;
+    }
+
+
+    /**
+     * Sets the capacity in bytes which overrides the limit of the appender.
+     * The new value takes effect when this store is started.
+     *
+     * @param capacity the capacity; zero or negative for the limit of the
+     * appender.
+     */
+    public void setCapacity(final long capacity) {
+
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Returns the segment size.
+     *
+     * @return the segment size.
+     */
+    public int getSegmentSize() {
+
+        return segmentSize;
+    }
+
+
+    /**
+     * Sets the segment size. The new value takes effect when this store is
+     * started.
+     *
+     * @param segmentSize the segment size.
+     */
+    public void setSegmentSize(final int segmentSize) {
+
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException(
+                "segmentSize(" + segmentSize + ") <= 0");
+        }
+
+        this.segmentSize = segmentSize;
+    }
+
+
+    /**
+     * Allocates a segment. The default implementation allocates a direct
+     * byte buffer.
+     *
+     * @param index the index of the segment.
+     * @param position the position of the segment in the arena.
+     * @param size the size of the segment.
+     *
+     * @return a new segment.
+     */
+    protected ByteBuffer allocate(final int index, final long position,
+                                  final int size) {
+
+        return ByteBuffer.allocateDirect(size);
+    }
+
+
+    @Override
+    protected long capacity() {
+
+        return total;
+    }
+
+
+    @Override
+    protected ByteBuffer[] views(long position, long length) {
+
+        final List<ByteBuffer> views = new ArrayList<>();
+        while (length > 0L) {
+            // duplicated so that readers don't disturb the writer
+            final ByteBuffer segment
+                = segments[(int) (position / segmentSize)].duplicate();
+            final int at = (int) (position % segmentSize);
+            final int n = (int) Math.min(length, segment.capacity() - at);
+            // no covariant overrides in 1.7
+            ((Buffer) segment).limit(at + n);
+            ((Buffer) segment).position(at);
+            views.add(segment);
+            position = (position + n) % total;
+            length -= n;
+        }
+
+        return views.toArray(new ByteBuffer[views.size()]);
+    }
+
+
+    @Override
+    protected void put(long position, final byte[] bytes, int offset,
+                       int length) {
+
+        while (length > 0) {
+            final ByteBuffer segment = segments[(int) (position / segmentSize)];
+            final int at = (int) (position % segmentSize);
+            final int n = Math.min(length, segment.capacity() - at);
+            ((Buffer) segment).position(at); // no covariant overrides in 1.7
+            segment.put(bytes, offset, n);
+            position = (position + n) % total;
+            offset += n;
+            length -= n;
+        }
+    }
+
+
+    @Override
+    protected void get(long position, final byte[] bytes, int offset,
+                       int length) {
+
+        while (length > 0) {
+            // duplicated so that readers don't disturb the writer
+            final ByteBuffer segment
+                = segments[(int) (position / segmentSize)].duplicate();
+            final int at = (int) (position % segmentSize);
+            final int n = Math.min(length, segment.capacity() - at);
+            ((Buffer) segment).position(at); // no covariant overrides in 1.7
+            segment.get(bytes, offset, n);
+            position = (position + n) % total;
+            offset += n;
+            length -= n;
+        }
+    }
+
+
+    /**
+     * the capacity.
+     */
+    private long capacity = 0L;
+
+
+    /**
+     * the segment size.
+     */
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+
+    /**
+     * the segments.
+     */
+    private ByteBuffer[] segments;
+
+
+    /**
+     * the actual capacity of the arena.
+     */
+    private long total;
+
+
+}
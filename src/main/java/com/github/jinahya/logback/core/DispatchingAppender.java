@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A long-lived appender attached once to a logger which forwards events to
+ * the appenders of currently active recorders. Registering and unregistering
+ * a recorder touches only a concurrent set, so the appender list of the
+ * logger, which is copied on each change, stays as is. Each registration has
+ * a {@link CaptureScope} checked for each event on the logging thread.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+final class DispatchingAppender
+    extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+
+    /**
+     * The name of the appender attached to loggers.
+     */
+    static final String NAME = DispatchingAppender.class.getName();
+
+
+    /**
+     * A registration.
+     */
+    private static final class Capture {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param scope the scope
+         * @param owner the owner bound by the scope.
+         */
+        Capture(final CaptureScope scope, final Object owner) {
+
+            super();
+
+            this.scope = scope;
+            this.owner = owner;
+        }
+
+
+        /**
+         * the scope.
+         */
+        private final CaptureScope scope;
+
+
+        /**
+         * the owner bound by the scope.
+         */
+        private final Object owner;
+
+
+    }
+
+
+    /**
+     * Returns the dispatcher attached to specified logger. A new dispatcher is
+     * started and attached if none is attached yet, or if the attached one has
+     * been stopped, say, by a reset of the logger context. Targets of
+     * recorders became unreachable without being closed are unregistered
+     * first.
+     *
+     * @param logger the logger
+     *
+     * @return the dispatcher attached to the logger.
+     */
+    static DispatchingAppender get(final Logger logger) {
+
+        if (logger == null) {
+            throw new NullPointerException("null logger");
+        }
+
+        RecorderCleaner.expunge();
+
+        final Appender<ILoggingEvent> attached = logger.getAppender(NAME);
+        if (attached instanceof DispatchingAppender && attached.isStarted()) {
+            return (DispatchingAppender) attached;
+        }
+
+        synchronized (logger) {
+            final Appender<ILoggingEvent> appender = logger.getAppender(NAME);
+            if (appender instanceof DispatchingAppender
+                && appender.isStarted()) {
+                return (DispatchingAppender) appender;
+            }
+            if (appender != null) {
+                logger.detachAppender(appender);
+            }
+            final DispatchingAppender dispatcher = new DispatchingAppender();
+            dispatcher.setContext(logger.getLoggerContext());
+            dispatcher.setName(NAME);
+            dispatcher.start();
+            logger.addAppender(dispatcher);
+            return dispatcher;
+        }
+    }
+
+
+    @Override
+    public void stop() {
+
+        super.stop();
+
+        RecorderCleaner.expunge();
+
+        targets.clear();
+    }
+
+
+    @Override
+    protected void append(final ILoggingEvent eventObject) {
+
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        for (final Map.Entry<Appender<ILoggingEvent>, Capture> entry
+             : targets.entrySet()) {
+            final Capture capture = entry.getValue();
+            if (capture.scope.captures(capture.owner)) {
+                entry.getKey().doAppend(eventObject);
+            }
+        }
+    }
+
+
+    /**
+     * Registers specified appender to receive events in specified scope. This
+     * method should be invoked on the thread starting the recorder.
+     *
+     * @param target the appender to register.
+     * @param scope the scope
+     */
+    void register(final Appender<ILoggingEvent> target,
+                  final CaptureScope scope) {
+
+        if (target == null) {
+            throw new NullPointerException("null target");
+        }
+
+        if (scope == null) {
+            throw new NullPointerException("null scope");
+        }
+
+        targets.put(target, new Capture(scope, scope.bind()));
+    }
+
+
+    /**
+     * Unregisters specified appender.
+     *
+     * @param target the appender to unregister.
+     *
+     * @return {@code true} if the appender was registered; {@code false}
+     * otherwise.
+     */
+    boolean unregister(final Appender<ILoggingEvent> target) {
+
+        final Capture capture = targets.remove(target);
+        if (capture == null) {
+            return false;
+        }
+
+        capture.scope.release(capture.owner);
+
+        return true;
+    }
+
+
+    /**
+     * Returns the number of registered appenders.
+     *
+     * @return the number of registered appenders.
+     */
+    int getTargetCount() {
+
+        return targets.size();
+    }
+
+
+    /**
+     * the registered appenders.
+     */
+    private final Map<Appender<ILoggingEvent>, Capture> targets
+        = new ConcurrentHashMap<>();
+
+
+}
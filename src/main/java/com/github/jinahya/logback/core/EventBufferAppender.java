@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import java.util.List;
+
+
+/**
+ * An appender keeps up to a maximum number of the most recent events.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ * @param <E> event type parameter
+ */
+public abstract class EventBufferAppender<E>
+    extends UnsynchronizedAppenderBase<E> {
+
+
+    /**
+     * The default maximum number of events.
+     */
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+
+    @Override
+    public void start() {
+
+        if (maxSize <= 0) {
+            addError("non-positive maxSize: " + maxSize);
+            return;
+        }
+
+        super.start();
+    }
+
+
+    /**
+     * Returns the events held, oldest first. Events are still available after
+     * this appender is stopped.
+     *
+     * @return a list of events held.
+     */
+    public abstract List<E> snapshot();
+
+
+    /**
+     * Returns the number of events held.
+     *
+     * @return the number of events held.
+     */
+    public abstract int getLength();
+
+
+    /**
+     * Returns the maximum number of events.
+     *
+     * @return the maximum number of events.
+     */
+    public int getMaxSize() {
+
+        return maxSize;
+    }
+
+
+    /**
+     * Sets the maximum number of events. The new value takes effect when this
+     * appender is started.
+     *
+     * @param maxSize the maximum number of events.
+     */
+    public void setMaxSize(final int maxSize) {
+
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * the maximum number of events.
+     */
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+
+}
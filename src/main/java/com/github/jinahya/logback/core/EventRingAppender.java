@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * An appender keeps the most recent events in a ring which multiple threads
+ * append to without a lock. Each appending thread takes a sequence number
+ * and publishes its event with the number into the slot of the number, so a
+ * reader takes a snapshot of all events in one pass, oldest first, skipping
+ * slots whose events are still being published or already overwritten.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ * @param <E> event type parameter
+ */
+public class EventRingAppender<E> extends EventBufferAppender<E> {
+
+
+    /**
+     * An event with its sequence number.
+     *
+     * @param <E> event type parameter
+     */
+    private static final class Entry<E> {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param sequence the sequence number
+         * @param event the event
+         */
+        Entry(final long sequence, final E event) {
+
+            super();
+
+            this.sequence = sequence;
+            this.event = event;
+        }
+
+
+        /**
+         * the sequence number.
+         */
+        private final long sequence;
+
+
+        /**
+         * the event.
+         */
+        private final E event;
+
+
+    }
+
+
+    @Override
+    public void start() {
+
+        if (getMaxSize() > 0) {
+            slots = new AtomicReferenceArray<>(getMaxSize());
+            sequence.set(0L);
+        }
+
+        super.start();
+    }
+
+
+    @Override
+    protected void append(final E eventObject) {
+
+        final long next = sequence.getAndIncrement();
+        final Entry<E> entry = new Entry<>(next, eventObject);
+        final int index = (int) (next % slots.length());
+
+        // a slow thread must not overwrite a newer event in the slot
+        for (Entry<E> current; ((current = slots.get(index)) == null
+                                || current.sequence < next);) {
+            if (slots.compareAndSet(index, current, entry)) {
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc} The snapshot is taken in one pass.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public List<E> snapshot() {
+
+        final AtomicReferenceArray<Entry<E>> slots = this.slots;
+        if (slots == null) {
+            return new ArrayList<>(0);
+        }
+
+        final long to = sequence.get();
+        final long from = Math.max(0L, to - slots.length());
+        final List<E> events = new ArrayList<>((int) (to - from));
+        for (long s = from; s < to; s++) {
+            final Entry<E> entry = slots.get((int) (s % slots.length()));
+            if (entry != null && entry.sequence == s) {
+                events.add(entry.event);
+            }
+        }
+
+        return events;
+    }
+
+
+    @Override
+    public int getLength() {
+
+        final AtomicReferenceArray<Entry<E>> slots = this.slots;
+        if (slots == null) {
+            return 0;
+        }
+
+        return (int) Math.min(sequence.get(), slots.length());
+    }
+
+
+    /**
+     * the slots.
+     */
+    private volatile AtomicReferenceArray<Entry<E>> slots;
+
+
+    /**
+     * the sequence number of the next event.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+
+}
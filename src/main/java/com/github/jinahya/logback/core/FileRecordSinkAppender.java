@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.core.FileAppender;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * A file appender which also accepts encoded records as a {@link RecordSink}.
+ * Records are written under the lock of this appender so they never interleave
+ * with events appended directly. Prudent mode, which locks the file only
+ * around each appended event, is not supported.
+ * <pre>{@code
+ * <appender name="FILE" class="...FileRecordSinkAppender">
+ *   <file>failures.log</file>
+ *   <encoder>...</encoder>
+ * </appender>
+ * }</pre>
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ * @param <E> event type parameter
+ */
+public class FileRecordSinkAppender<E> extends FileAppender<E>
+    implements RecordSink {
+
+
+    @Override
+    public void start() {
+
+        if (isPrudent()) {
+            addError("prudent mode not supported");
+            return;
+        }
+
+        super.start();
+    }
+
+
+    @Override
+    public void write(final byte[] records, final int offset,
+                      final int length)
+        throws IOException {
+
+        lock.lock();
+        try {
+            final OutputStream output = getOutputStream();
+            if (!isStarted() || output == null) {
+                throw new IOException("not started");
+            }
+            output.write(records, offset, length);
+            output.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.boolex.EvaluationException;
+import ch.qos.logback.core.boolex.EventEvaluator;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+
+/**
+ * An appender keeps records only in its bounded buffer and drains them in bulk
+ * to attached record sink appenders when a triggering event is appended.
+ * Each drain writes the records buffered since the previous drain so that
+ * buffering simply continues afterwards. An event triggers when the evaluator,
+ * if any, evaluates it to {@code true}, or when it is a logging event whose
+ * level is greater than or equal to the trigger level, or whose marker
+ * contains the trigger marker.
+ * <pre>{@code
+ * <appender name="RECORDER" class="...FlightRecorderAppender">
+ *   <encoder>...</encoder>
+ *   <limit>1048576</limit>
+ *   <triggerLevel>ERROR</triggerLevel>
+ *   <appender-ref ref="FILE"/>
+ * </appender>
+ * }</pre>
+ * Attached appenders must be {@link RecordSink}s, such as
+ * {@link RecordSinkAppender} or {@link FileRecordSinkAppender}, which write
+ * drained records under their own lock. Records are delivered as encoded by
+ * this appender, bypassing the encoders of attached appenders.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ * @param <E> event type parameter
+ */
+public class FlightRecorderAppender<E> extends BufferedOutputStreamAppender<E>
+    implements AppenderAttachable<E> {
+
+
+    @Override
+    public void start() {
+
+        final Iterator<Appender<E>> i = appenders.iteratorForAppenders();
+        if (!i.hasNext()) {
+            addWarn("no appender attached");
+        }
+        while (i.hasNext()) {
+            final Appender<E> appender = i.next();
+            if (!(appender instanceof RecordSink)) {
+                addError("not a record sink: " + appender.getName());
+                return;
+            }
+        }
+
+        super.start();
+
+        if (isStarted()) {
+            cursor.set(new RecordCursor(getSequence()));
+        }
+    }
+
+
+    @Override
+    public void stop() {
+
+        super.stop();
+
+        appenders.detachAndStopAllAppenders();
+    }
+
+
+    @Override
+    protected void append(final E eventObject) {
+
+        super.append(eventObject);
+
+        if (isStarted() && triggers(eventObject)) {
+            triggered(eventObject);
+        }
+    }
+
+
+    /**
+     * Checks whether specified event triggers a drain.
+     *
+     * @param event the event
+     *
+     * @return {@code true} if triggers; {@code false} otherwise.
+     */
+    protected boolean triggers(final E event) {
+
+        if (evaluator != null) {
+            try {
+                if (evaluator.evaluate(event)) {
+                    return true;
+                }
+            } catch (final EvaluationException ee) {
+                addError("failed to evaluate", ee);
+            }
+        }
+
+        if (event instanceof ILoggingEvent) {
+            final ILoggingEvent loggingEvent = (ILoggingEvent) event;
+            if (loggingEvent.getLevel().isGreaterOrEqual(triggerLevel)) {
+                return true;
+            }
+            if (triggerMarker != null && loggingEvent.getMarker() != null
+                && loggingEvent.getMarker().contains(triggerMarker)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Notifies that specified event has triggered. This method is invoked
+     * without holding the lock. The default implementation invokes
+     * {@link #drain()}.
+     *
+     * @param event the triggering event.
+     */
+    protected void triggered(final E event) {
+
+        drain();
+    }
+
+
+    /**
+     * Writes records buffered since the previous drain to attached appenders.
+     *
+     * @return the number of bytes drained.
+     */
+    public long drain() {
+
+        synchronized (cursor) {
+            final ByteArrayOutputStream records = new ByteArrayOutputStream();
+            try {
+                read(cursor, records);
+            } catch (final IOException ioe) {
+                addError("failed to read records", ioe);
+                return 0L;
+            }
+            if (cursor.getEvicted() > 0L) {
+                addWarn(cursor.getEvicted() + " record(s) evicted before drain");
+            }
+            deliver(records);
+            return records.size();
+        }
+    }
+
+
+    /**
+     * Writes specified records to attached appenders each of which is a
+     * {@link RecordSink}. Appenders not started are skipped.
+     *
+     * @param records the records to write.
+     */
+    protected void deliver(final ByteArrayOutputStream records) {
+
+        final byte[] bytes = records.toByteArray();
+        for (final Iterator<Appender<E>> i = appenders.iteratorForAppenders();
+             i.hasNext();) {
+            final Appender<E> appender = i.next();
+            if (!appender.isStarted() || !(appender instanceof RecordSink)) {
+                continue;
+            }
+            try {
+                ((RecordSink) appender).write(bytes, 0, bytes.length);
+            } catch (final IOException ioe) {
+                addError("failed to deliver to " + appender.getName(), ioe);
+            }
+        }
+    }
+
+
+    @Override
+    public void addAppender(final Appender<E> newAppender) {
+
+        appenders.addAppender(newAppender);
+    }
+
+
+    @Override
+    public Iterator<Appender<E>> iteratorForAppenders() {
+
+        return appenders.iteratorForAppenders();
+    }
+
+
+    @Override
+    public Appender<E> getAppender(final String name) {
+
+        return appenders.getAppender(name);
+    }
+
+
+    @Override
+    public boolean isAttached(final Appender<E> appender) {
+
+        return appenders.isAttached(appender);
+    }
+
+
+    @Override
+    public void detachAndStopAllAppenders() {
+
+        appenders.detachAndStopAllAppenders();
+    }
+
+
+    @Override
+    public boolean detachAppender(final Appender<E> appender) {
+
+        return appenders.detachAppender(appender);
+    }
+
+
+    @Override
+    public boolean detachAppender(final String name) {
+
+        return appenders.detachAppender(name);
+    }
+
+
+    /**
+     * Returns the evaluator.
+     *
+     * @return the evaluator; {@code null} if not set.
+     */
+    public EventEvaluator<E> getEvaluator() {
+
+        return evaluator;
+    }
+
+
+    /**
+     * Sets the evaluator whose {@code true} triggers a drain.
+     *
+     * @param evaluator the evaluator; {@code null} for none.
+     */
+    public void setEvaluator(final EventEvaluator<E> evaluator) {
+
+        this.evaluator = evaluator;
+    }
+
+
+    /**
+     * Returns the name of the trigger level.
+     *
+     * @return the name of the trigger level.
+     */
+    public String getTriggerLevel() {
+
+        return triggerLevel.levelStr;
+    }
+
+
+    /**
+     * Sets the level at or above which logging events trigger a drain.
+     * Defaults to {@code ERROR}.
+     *
+     * @param triggerLevel the name of the level; {@code OFF} for none.
+     */
+    public void setTriggerLevel(final String triggerLevel) {
+
+        this.triggerLevel = Level.toLevel(triggerLevel, Level.ERROR);
+    }
+
+
+    /**
+     * Returns the name of the trigger marker.
+     *
+     * @return the name of the trigger marker; {@code null} if not set.
+     */
+    public String getTriggerMarker() {
+
+        return triggerMarker;
+    }
+
+
+    /**
+     * Sets the name of the marker with which logging events trigger a drain.
+     *
+     * @param triggerMarker the name of the marker; {@code null} for none.
+     */
+    public void setTriggerMarker(final String triggerMarker) {
+
+        this.triggerMarker = triggerMarker;
+    }
+
+
+    /**
+     * the attached appenders.
+     */
+    private final AppenderAttachableImpl<E> appenders
+        = new AppenderAttachableImpl<>();
+
+
+    /**
+     * the cursor of the last drain.
+     */
+    private final RecordCursor cursor = new RecordCursor();
+
+
+    /**
+     * the evaluator.
+     */
+    private EventEvaluator<E> evaluator;
+
+
+    /**
+     * the trigger level.
+     */
+    private Level triggerLevel = Level.ERROR;
+
+
+    /**
+     * the name of trigger marker.
+     */
+    private String triggerMarker;
+
+
+}
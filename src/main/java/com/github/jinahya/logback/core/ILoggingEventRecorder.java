@@ -21,12 +21,23 @@ package com.github.jinahya.logback.core;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.PatternLayout;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.Layout;
-import ch.qos.logback.core.read.CyclicBufferAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
 import java.io.IOException;
+import java.io.OutputStream;
 import static java.lang.invoke.MethodHandles.lookup;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import static org.slf4j.LoggerFactory.getLogger;
 
 
@@ -36,23 +47,200 @@ import static org.slf4j.LoggerFactory.getLogger;
  * @see <a href="https://gist.github.com/olim7t/881318">olim7t /
  * LogbackCapture.java</a>
  */
-public final class ILoggingEventRecorder {
+public final class ILoggingEventRecorder implements AutoCloseable {
+
+
+    /**
+     * Stops recording; refers everything to stop but the recorder.
+     */
+    private static final class Stop implements Runnable {
+
+
+        Stop(final DispatchingAppender dispatcher,
+             final EventBufferAppender<ILoggingEvent> appender) {
+
+            super();
+
+            this.dispatcher = dispatcher;
+            this.appender = appender;
+        }
+
+
+        @Override
+        public void run() {
+
+            final boolean unregistered = dispatcher.unregister(appender);
+            logger_.debug("appender unregistered: {}", unregistered);
+
+            appender.stop();
+            logger_.debug("appender stopped");
+        }
+
+
+        private transient final org.slf4j.Logger logger_
+            = getLogger(lookup().lookupClass());
+
+
+        private final DispatchingAppender dispatcher;
+
+
+        private final EventBufferAppender<ILoggingEvent> appender;
+
+
+    }
+
+
+    /**
+     * The size of the buffer of streaming finishes.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+
+    /**
+     * An output stream collects bytes into a single buffer and drains it to
+     * an output stream or a channel only when full or drained explicitly.
+     * Flushes are deferred to the final drain.
+     */
+    private static final class DrainingOutputStream extends OutputStream {
+
+
+        DrainingOutputStream(final OutputStream output,
+                             final WritableByteChannel channel) {
+
+            super();
+
+            this.output = output;
+            this.channel = channel;
+        }
+
+
+        @Override
+        public void write(final int b) throws IOException {
+
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+
+            buffer.put((byte) b);
+        }
+
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+            throws IOException {
+
+            for (int i = 0; i < len;) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                final int n = Math.min(len - i, buffer.remaining());
+                buffer.put(b, off + i, n);
+                i += n;
+            }
+        }
+
+
+        /**
+         * Encodes specified characters with specified encoder straight into
+         * the buffer, draining it whenever full.
+         *
+         * @param chars the characters to encode.
+         * @param encoder the encoder.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        void write(final CharSequence chars, final CharsetEncoder encoder)
+            throws IOException {
+
+            final CharBuffer input = CharBuffer.wrap(chars);
+            encoder.reset();
+            while (encoder.encode(input, buffer, true).isOverflow()) {
+                drain();
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+        }
+
+
+        /**
+         * Does nothing; flushes are deferred to {@link #drain()}.
+         */
+        @Override
+        public void flush() {
+        }
+
+
+        /**
+         * Writes buffered bytes to the target.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        void drain() throws IOException {
+
+            ((Buffer) buffer).flip(); // no covariant overrides in 1.7
+            if (channel != null) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } else {
+                output.write(buffer.array(), buffer.arrayOffset(),
+                             buffer.remaining());
+            }
+            ((Buffer) buffer).clear();
+        }
+
+
+        private final OutputStream output;
+
+
+        private final WritableByteChannel channel;
+
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+
+    }
 
 
     public static ILoggingEventRecorder start(final Logger logger,
                                               final int maxSize) {
 
+        return start(logger, maxSize, CaptureScope.ALL);
+    }
+
+
+    public static ILoggingEventRecorder start(final Logger logger,
+                                              final int maxSize,
+                                              final CaptureScope scope) {
+
+        return start(logger, maxSize, scope, CapturePolicy.REFERENCE);
+    }
+
+
+    public static ILoggingEventRecorder start(final Logger logger,
+                                              final int maxSize,
+                                              final CaptureScope scope,
+                                              final CapturePolicy policy) {
+
         if (logger == null) {
             throw new NullPointerException("null logger");
         }
 
-        final CyclicBufferAppender<ILoggingEvent> appender
-            = new CyclicBufferAppender<>();
+        if (scope == null) {
+            throw new NullPointerException("null scope");
+        }
+
+        if (policy == null) {
+            throw new NullPointerException("null policy");
+        }
+
+        final EventBufferAppender<ILoggingEvent> appender = policy.appender();
         appender.setMaxSize(maxSize);
         appender.setContext(logger.getLoggerContext());
 
         final ILoggingEventRecorder recorder
-            = new ILoggingEventRecorder(logger, appender);
+            = new ILoggingEventRecorder(logger, appender, scope);
 
         recorder.start();
 
@@ -76,6 +264,41 @@ public final class ILoggingEventRecorder {
     }
 
 
+    public static ILoggingEventRecorder start(final org.slf4j.Logger logger,
+                                              final int maxSize,
+                                              final CaptureScope scope) {
+
+        if (logger == null) {
+            throw new NullPointerException("null logger");
+        }
+
+        if (!Logger.class.isInstance(logger)) {
+            throw new IllegalArgumentException(
+                "logger(" + logger + ") is not an instance of " + Logger.class);
+        }
+
+        return start(Logger.class.cast(logger), maxSize, scope);
+    }
+
+
+    public static ILoggingEventRecorder start(final org.slf4j.Logger logger,
+                                              final int maxSize,
+                                              final CaptureScope scope,
+                                              final CapturePolicy policy) {
+
+        if (logger == null) {
+            throw new NullPointerException("null logger");
+        }
+
+        if (!Logger.class.isInstance(logger)) {
+            throw new IllegalArgumentException(
+                "logger(" + logger + ") is not an instance of " + Logger.class);
+        }
+
+        return start(Logger.class.cast(logger), maxSize, scope, policy);
+    }
+
+
     public static List<ILoggingEvent> finish(
         final ILoggingEventRecorder recorder,
         final List<ILoggingEvent> events) {
@@ -160,16 +383,298 @@ public final class ILoggingEventRecorder {
             throw new NullPointerException("null appendable");
         }
 
-        final PatternLayout layout = new PatternLayout();
-        layout.setPattern(pattern);
+        final PatternLayout layout = LayoutCache.getInstance().get(
+            recorder.logger.getLoggerContext(), pattern);
 
         return finish(recorder, layout, appendable);
     }
 
 
+    /**
+     * Finishes specified recorder rendering recorded events in parallel on
+     * specified pool. Events are rendered in chunks, each worker thread with
+     * its own layout of specified pattern, and appended in their original
+     * order.
+     *
+     * @param <T> appendable type parameter
+     * @param recorder the recorder to finish.
+     * @param pattern the pattern
+     * @param appendable the appendable to append rendered events.
+     * @param pool the pool to render on.
+     *
+     * @return given appendable.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static <T extends Appendable> T finish(
+        final ILoggingEventRecorder recorder, final String pattern,
+        final T appendable, final ForkJoinPool pool)
+        throws IOException {
+
+        if (appendable == null) {
+            throw new NullPointerException("null appendable");
+        }
+
+        for (final String chunk : render(recorder, pattern, pool)) {
+            appendable.append(chunk);
+        }
+
+        return appendable;
+    }
+
+
+    /**
+     * Finishes specified recorder rendering recorded events in parallel on
+     * specified pool and writes them encoded with specified charset.
+     *
+     * @param <T> output stream type parameter
+     * @param recorder the recorder to finish.
+     * @param pattern the pattern
+     * @param charset the charset
+     * @param output the output stream to write rendered events.
+     * @param pool the pool to render on.
+     *
+     * @return given output stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     *
+     * @see #finish(ILoggingEventRecorder, String, Appendable, ForkJoinPool)
+     */
+    public static <T extends OutputStream> T finish(
+        final ILoggingEventRecorder recorder, final String pattern,
+        final Charset charset, final T output, final ForkJoinPool pool)
+        throws IOException {
+
+        if (charset == null) {
+            throw new NullPointerException("null charset");
+        }
+
+        if (output == null) {
+            throw new NullPointerException("null output");
+        }
+
+        final String[] chunks = render(recorder, pattern, pool);
+        for (int i = 0; i < chunks.length; i++) {
+            output.write(chunks[i].getBytes(charset));
+            chunks[i] = null;
+        }
+
+        return output;
+    }
+
+
+    /**
+     * Finishes specified recorder streaming recorded events encoded with
+     * specified encoder to specified output stream. Encoded bytes go through
+     * a single buffer, so memory use does not grow with the number of events;
+     * events rendered with a layout are encoded straight into the buffer.
+     * A {@link LayoutWrappingEncoder} is never bound to the output; events are
+     * rendered with its layout, started and stopped by this method if not yet
+     * created, so that the encoder may be in use by an appender. Any other
+     * encoder must be a dedicated one, not started, which is started and
+     * stopped by this method.
+     *
+     * @param <T> output stream type parameter
+     * @param recorder the recorder to finish.
+     * @param encoder the encoder.
+     * @param output the output stream.
+     *
+     * @return given output stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalArgumentException if the encoder, not a layout wrapping
+     * one, has been started, or if the layout wrapping encoder has no layout
+     * even when started.
+     */
+    public static <T extends OutputStream> T finishToStream(
+        final ILoggingEventRecorder recorder,
+        final Encoder<ILoggingEvent> encoder, final T output)
+        throws IOException {
+
+        if (output == null) {
+            throw new NullPointerException("null output");
+        }
+
+        encode(recorder, encoder, new DrainingOutputStream(output, null));
+        output.flush();
+
+        return output;
+    }
+
+
+    /**
+     * Finishes specified recorder streaming recorded events encoded with
+     * specified encoder to specified channel.
+     *
+     * @param <T> channel type parameter
+     * @param recorder the recorder to finish.
+     * @param encoder the encoder.
+     * @param channel the channel
+     *
+     * @return given channel.
+     *
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalArgumentException if the encoder, not a layout wrapping
+     * one, has been started, or if the layout wrapping encoder has no layout
+     * even when started.
+     *
+     * @see #finishToStream(ILoggingEventRecorder, Encoder, OutputStream)
+     */
+    public static <T extends WritableByteChannel> T finishToChannel(
+        final ILoggingEventRecorder recorder,
+        final Encoder<ILoggingEvent> encoder, final T channel)
+        throws IOException {
+
+        if (channel == null) {
+            throw new NullPointerException("null channel");
+        }
+
+        encode(recorder, encoder, new DrainingOutputStream(null, channel));
+
+        return channel;
+    }
+
+
+    private static void encode(final ILoggingEventRecorder recorder,
+                               final Encoder<ILoggingEvent> encoder,
+                               final DrainingOutputStream output)
+        throws IOException {
+
+        if (recorder == null) {
+            throw new NullPointerException("null recorder");
+        }
+
+        if (encoder == null) {
+            throw new NullPointerException("null encoder");
+        }
+
+        if (encoder instanceof LayoutWrappingEncoder) {
+            try {
+                render(recorder, (LayoutWrappingEncoder<ILoggingEvent>) encoder,
+                       output);
+            } finally {
+                recorder.stop();
+            }
+            return;
+        }
+
+        if (encoder.isStarted()) {
+            // may be writing to the stream of an appender
+            throw new IllegalArgumentException("encoder already started");
+        }
+
+        try {
+            if (encoder.getContext() == null) {
+                encoder.setContext(recorder.logger.getLoggerContext());
+            }
+            encoder.start();
+            try {
+                encoder.init(output);
+                for (final ILoggingEvent event : recorder.events()) {
+                    encoder.doEncode(event);
+                }
+                encoder.close();
+                output.drain();
+            } finally {
+                encoder.stop();
+            }
+        } finally {
+            recorder.stop();
+        }
+    }
+
+
+    private static void render(
+        final ILoggingEventRecorder recorder,
+        final LayoutWrappingEncoder<ILoggingEvent> encoder,
+        final DrainingOutputStream output)
+        throws IOException {
+
+        Layout<ILoggingEvent> layout = encoder.getLayout();
+        final boolean created = layout == null;
+        if (created) {
+            if (encoder.getContext() == null) {
+                encoder.setContext(recorder.logger.getLoggerContext());
+            }
+            encoder.start();
+            layout = encoder.getLayout();
+            if (layout == null) {
+                encoder.stop();
+                throw new IllegalArgumentException("encoder has no layout");
+            }
+        }
+
+        try {
+            // framed as the encoder does without binding it to the output
+            final CharsetEncoder encoding = (encoder.getCharset() == null
+                                            ? Charset.defaultCharset()
+                                            : encoder.getCharset())
+                .newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            final StringBuilder header = new StringBuilder();
+            append(header, layout.getFileHeader());
+            append(header, layout.getPresentationHeader());
+            if (header.length() > 0) {
+                header.append(CoreConstants.LINE_SEPARATOR);
+                output.write(header, encoding);
+            }
+            for (final ILoggingEvent event : recorder.events()) {
+                output.write(layout.doLayout(event), encoding);
+            }
+            final StringBuilder footer = new StringBuilder();
+            append(footer, layout.getPresentationFooter());
+            append(footer, layout.getFileFooter());
+            if (footer.length() > 0) {
+                output.write(footer, encoding);
+            }
+            output.drain();
+        } finally {
+            if (created) {
+                encoder.stop();
+            }
+        }
+    }
+
+
+    private static void append(final StringBuilder builder,
+                               final String string) {
+
+        if (string != null) {
+            builder.append(string);
+        }
+    }
+
+
+    private static String[] render(final ILoggingEventRecorder recorder,
+                                   final String pattern,
+                                   final ForkJoinPool pool) {
+
+        if (recorder == null) {
+            throw new NullPointerException("null recorder");
+        }
+
+        if (pattern == null) {
+            throw new NullPointerException("null pattern");
+        }
+
+        if (pool == null) {
+            throw new NullPointerException("null pool");
+        }
+
+        final List<ILoggingEvent> events = recorder.events();
+
+        recorder.stop();
+
+        return new ParallelRendering(
+            events, recorder.logger.getLoggerContext(), pattern).render(pool);
+    }
+
+
     private ILoggingEventRecorder(
         final Logger logger,
-        final CyclicBufferAppender<ILoggingEvent> appender) {
+        final EventBufferAppender<ILoggingEvent> appender,
+        final CaptureScope scope) {
 
         super();
 
@@ -183,6 +688,7 @@ public final class ILoggingEventRecorder {
 
         this.logger = logger;
         this.appender = appender;
+        this.scope = scope;
     }
 
 
@@ -190,13 +696,7 @@ public final class ILoggingEventRecorder {
 
         logger_.debug("events()");
 
-        final int length = appender.getLength();
-        final List<ILoggingEvent> events = new ArrayList<>(length);
-        for (int i = 0; i < length; i++) {
-            events.add(appender.get(i));
-        }
-
-        return events;
+        return appender.snapshot();
     }
 
 
@@ -212,8 +712,12 @@ public final class ILoggingEventRecorder {
         appender.start();
         logger_.debug("appender started");
 
-        logger.addAppender(appender);
-        logger_.debug("appender attached");
+        final DispatchingAppender dispatcher = DispatchingAppender.get(logger);
+        dispatcher.register(appender, scope);
+        logger_.debug("appender registered");
+
+        cleanup = RecorderCleaner.register(
+            this, new Stop(dispatcher, appender));
 
         started = true;
     }
@@ -228,32 +732,23 @@ public final class ILoggingEventRecorder {
             return;
         }
 
-        final boolean detached = logger.detachAppender(appender);
-        logger_.debug("appender detached: {}", detached);
-
-        final int length = appender.getLength();
-        final List<ILoggingEvent> list = new ArrayList<>(length);
-        for (int i = 0; i < length; i++) {
-            list.add(appender.get(i));
-        }
-
-        appender.stop();
-        logger_.debug("appender stopped");
+        cleanup.clean();
+        cleanup = null;
 
         started = false;
+
+        RecorderCleaner.expunge();
     }
 
 
+    /**
+     * Stops recording without retrieving the events. Invoking this method on
+     * a finished recorder has no effect.
+     */
     @Override
-    protected void finalize() throws Throwable {
+    public void close() {
 
-        try {
-            stop();
-        } catch (final Exception e) {
-            e.printStackTrace(System.err);
-        }
-
-        super.finalize();
+        stop();
     }
 
 
@@ -264,7 +759,13 @@ public final class ILoggingEventRecorder {
     private final Logger logger;
 
 
-    private final CyclicBufferAppender<ILoggingEvent> appender;
+    private final EventBufferAppender<ILoggingEvent> appender;
+
+
+    private final CaptureScope scope;
+
+
+    private RecorderCleaner.Cleanup cleanup;
 
 
     private volatile boolean started = false;
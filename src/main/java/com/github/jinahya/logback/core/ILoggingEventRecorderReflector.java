@@ -18,17 +18,41 @@
 package com.github.jinahya.logback.core;
 
 
+import java.lang.invoke.MethodHandle;
+import static java.lang.invoke.MethodHandles.publicLookup;
+import java.lang.invoke.MethodType;
+import static java.lang.invoke.MethodType.methodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 
 
 /**
+ * Invokes {@link ILoggingEventRecorder} through method handles resolved once
+ * and typed with {@code Object}s, so that each call is an exact invocation
+ * without boxing, varargs arrays or access checks.
  *
  * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
  */
 public class ILoggingEventRecorderReflector {
 
 
+    private static final MethodType START_TYPE
+        = methodType(Object.class, Object.class, Integer.TYPE);
+
+
+    private static final MethodType FINISH_TYPE
+        = methodType(Object.class, Object.class);
+
+
+    private static final MethodType FINISH_WITH_TYPE
+        = methodType(Object.class, Object.class, Object.class);
+
+
+    private static final MethodType FINISH_WITH_AND_TYPE
+        = methodType(Object.class, Object.class, Object.class, Object.class);
+
+
     private static final String I_LOGGING_EVENT_RECORDER_NAME
         = "com.github.jinahya.logback.core.ILoggingEventRecorder";
 
@@ -49,22 +73,46 @@ public class ILoggingEventRecorderReflector {
     private static final Class<?> SLF4J_LOGGER_CLASS;
 
 
-    private static final Method START_WITH_LOGBACK_LOGGER;
+    private static final String LAYOUT_NAME = "ch.qos.logback.core.Layout";
+
+
+    private static final Class<?> LAYOUT_CLASS;
+
+
+    private static final MethodHandle START_WITH_LOGBACK_LOGGER;
+
+
+    private static final MethodHandle START_WITH_SLF4J_LOGGER;
+
+
+    private static final MethodHandle FINISH;
 
 
-    private static final Method START_WITH_SLF4J_LOGGER;
+    private static final MethodHandle FINISH_WITH_LIST;
 
 
-    private static final Method FINISH;
+    private static final MethodHandle FINISH_WITH_LAYOUT_AND_APPENDABLE;
 
 
-    private static final Method FINISH_WITH_LIST;
+    private static final MethodHandle FINISH_WITH_PATTERN_AND_APPENDABLE;
 
 
-    private static final Method FINISH_WITH_LAYOUT_AND_APPENDABLE;
+    private static MethodHandle bind(final Method method,
+                                     final MethodType type)
+        throws IllegalAccessException {
+
+        return publicLookup().unreflect(method).asType(type);
+    }
 
 
-    private static final Method FINISH_WITH_PATTERN_AND_APPENDABLE;
+    private static void check(final Class<?> type, final Object argument,
+                              final String name) {
+
+        if (argument != null && !type.isInstance(argument)) {
+            throw new IllegalArgumentException(
+                name + "(" + argument + ") is not an instance of " + type);
+        }
+    }
 
 
     static {
@@ -73,21 +121,33 @@ public class ILoggingEventRecorderReflector {
                 = Class.forName(I_LOGGING_EVENT_RECORDER_NAME);
             LOGBACK_LOGGER_CLASS = Class.forName(LOGBACK_LOGGER_NAME);
             SLF4J_LOGGER_CLASS = Class.forName(SLF4J_LOGGER_NAME);
-            START_WITH_LOGBACK_LOGGER = I_LOGGING_EVENT_RECORDER_CLASS
-                .getMethod("start", LOGBACK_LOGGER_CLASS, Integer.TYPE);
-            START_WITH_SLF4J_LOGGER = I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
-                "start", SLF4J_LOGGER_CLASS, Integer.TYPE);
-            FINISH = I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
-                "finish", I_LOGGING_EVENT_RECORDER_CLASS);
-            FINISH_WITH_LIST = I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
-                "finish", I_LOGGING_EVENT_RECORDER_CLASS, List.class);
-            FINISH_WITH_LAYOUT_AND_APPENDABLE = I_LOGGING_EVENT_RECORDER_CLASS
-                .getMethod("finish", I_LOGGING_EVENT_RECORDER_CLASS,
-                           Class.forName("ch.qos.logback.core.Layout"),
-                           Appendable.class);
-            FINISH_WITH_PATTERN_AND_APPENDABLE = I_LOGGING_EVENT_RECORDER_CLASS
-                .getMethod("finish", I_LOGGING_EVENT_RECORDER_CLASS,
-                           String.class, Appendable.class);
+            LAYOUT_CLASS = Class.forName(LAYOUT_NAME);
+            START_WITH_LOGBACK_LOGGER = bind(
+                I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
+                    "start", LOGBACK_LOGGER_CLASS, Integer.TYPE),
+                START_TYPE);
+            START_WITH_SLF4J_LOGGER = bind(
+                I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
+                    "start", SLF4J_LOGGER_CLASS, Integer.TYPE),
+                START_TYPE);
+            FINISH = bind(
+                I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
+                    "finish", I_LOGGING_EVENT_RECORDER_CLASS),
+                FINISH_TYPE);
+            FINISH_WITH_LIST = bind(
+                I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
+                    "finish", I_LOGGING_EVENT_RECORDER_CLASS, List.class),
+                FINISH_WITH_TYPE);
+            FINISH_WITH_LAYOUT_AND_APPENDABLE = bind(
+                I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
+                    "finish", I_LOGGING_EVENT_RECORDER_CLASS, LAYOUT_CLASS,
+                    Appendable.class),
+                FINISH_WITH_AND_TYPE);
+            FINISH_WITH_PATTERN_AND_APPENDABLE = bind(
+                I_LOGGING_EVENT_RECORDER_CLASS.getMethod(
+                    "finish", I_LOGGING_EVENT_RECORDER_CLASS, String.class,
+                    Appendable.class),
+                FINISH_WITH_AND_TYPE);
         } catch (final ReflectiveOperationException roe) {
             roe.printStackTrace(System.err);
             throw new InstantiationError(
@@ -99,12 +159,17 @@ public class ILoggingEventRecorderReflector {
     public static Object start(final Object logger, final int maxSize)
         throws ReflectiveOperationException {
 
-        if (SLF4J_LOGGER_CLASS.isInstance(logger)) {
-            return START_WITH_SLF4J_LOGGER.invoke(null, logger, maxSize);
-        }
-
-        if (LOGBACK_LOGGER_CLASS.isInstance(logger)) {
-            return START_WITH_LOGBACK_LOGGER.invoke(null, logger, maxSize);
+        try {
+            if (SLF4J_LOGGER_CLASS.isInstance(logger)) {
+                return (Object) START_WITH_SLF4J_LOGGER.invokeExact(
+                    logger, maxSize);
+            }
+            if (LOGBACK_LOGGER_CLASS.isInstance(logger)) {
+                return (Object) START_WITH_LOGBACK_LOGGER.invokeExact(
+                    logger, maxSize);
+            }
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
         }
 
         throw new IllegalArgumentException(
@@ -115,7 +180,12 @@ public class ILoggingEventRecorderReflector {
     public static Object finish(final Object recorder)
         throws ReflectiveOperationException {
 
-        return FINISH.invoke(null, recorder);
+        check(I_LOGGING_EVENT_RECORDER_CLASS, recorder, "recorder");
+        try {
+            return (Object) FINISH.invokeExact(recorder);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
 
@@ -123,7 +193,13 @@ public class ILoggingEventRecorderReflector {
                                         final Object list)
         throws ReflectiveOperationException {
 
-        return FINISH_WITH_LIST.invoke(null, recorder, list);
+        check(I_LOGGING_EVENT_RECORDER_CLASS, recorder, "recorder");
+        check(List.class, list, "list");
+        try {
+            return (Object) FINISH_WITH_LIST.invokeExact(recorder, list);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
 
@@ -131,8 +207,15 @@ public class ILoggingEventRecorderReflector {
         final Object recorder, final Object layout, final Object appendable)
         throws ReflectiveOperationException {
 
-        return FINISH_WITH_LAYOUT_AND_APPENDABLE.invoke(
-            null, recorder, layout, appendable);
+        check(I_LOGGING_EVENT_RECORDER_CLASS, recorder, "recorder");
+        check(LAYOUT_CLASS, layout, "layout");
+        check(Appendable.class, appendable, "appendable");
+        try {
+            return (Object) FINISH_WITH_LAYOUT_AND_APPENDABLE.invokeExact(
+                recorder, layout, appendable);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
 
@@ -140,8 +223,15 @@ public class ILoggingEventRecorderReflector {
         final Object recorder, final Object pattern, final Object appendable)
         throws ReflectiveOperationException {
 
-        return FINISH_WITH_PATTERN_AND_APPENDABLE.invoke(
-            null, recorder, pattern, appendable);
+        check(I_LOGGING_EVENT_RECORDER_CLASS, recorder, "recorder");
+        check(String.class, pattern, "pattern");
+        check(Appendable.class, appendable, "appendable");
+        try {
+            return (Object) FINISH_WITH_PATTERN_AND_APPENDABLE.invokeExact(
+                recorder, pattern, appendable);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
 
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggerContextListener;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+
+/**
+ * A bounded cache of started pattern layouts keyed by their patterns and
+ * logger contexts. Least recently used layouts are evicted once the cache is
+ * full, and the layouts of a logger context are evicted once the context is
+ * reset or stopped so that the cache does not keep stopped contexts reachable.
+ * Evicted layouts are left started since they may still be in use.
+ * <p>
+ * Cached layouts are shared; they must not be stopped or reconfigured by
+ * callers. Pattern layouts are safe to use concurrently as each rendering
+ * builds its own buffer and the date converter formats under a lock. That
+ * lock serializes concurrent renderings of date patterns, which is why
+ * parallel rendering keeps a layout per worker thread instead.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public final class LayoutCache {
+
+
+    /**
+     * The default maximum number of layouts.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+
+    /**
+     * A key of a context and a pattern.
+     */
+    private static final class Key {
+
+
+        Key(final LoggerContext context, final String pattern) {
+
+            super();
+
+            this.context = context;
+            this.pattern = pattern;
+        }
+
+
+        @Override
+        public boolean equals(final Object obj) {
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key key = (Key) obj;
+
+            return context == key.context && pattern.equals(key.pattern);
+        }
+
+
+        @Override
+        public int hashCode() {
+
+            return System.identityHashCode(context) * 31 + pattern.hashCode();
+        }
+
+
+        private final LoggerContext context;
+
+
+        private final String pattern;
+
+
+    }
+
+
+    /**
+     * A listener evicts layouts of a logger context reset or stopped.
+     */
+    private final class Evictor implements LoggerContextListener {
+
+
+        @Override
+        public boolean isResetResistant() {
+
+            return true;
+        }
+
+
+        @Override
+        public void onStart(final LoggerContext context) {
+
+            // nothing to evict
+        }
+
+
+        @Override
+        public void onReset(final LoggerContext context) {
+
+            evict(context, false);
+        }
+
+
+        @Override
+        public void onStop(final LoggerContext context) {
+
+            evict(context, true);
+        }
+
+
+        @Override
+        public void onLevelChange(final Logger logger, final Level level) {
+
+            // levels are not part of layouts
+        }
+
+
+    }
+
+
+    /**
+     * Returns the shared instance.
+     *
+     * @return the shared instance.
+     */
+    public static LayoutCache getInstance() {
+
+        return INSTANCE;
+    }
+
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maximumSize the maximum number of layouts.
+     */
+    public LayoutCache(final int maximumSize) {
+
+        super();
+
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException(
+                "maximumSize(" + maximumSize + ") <= 0");
+        }
+
+        this.maximumSize = maximumSize;
+        layouts = new LinkedHashMap<Key, PatternLayout>(16, .75f, true) {
+
+
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<Key, PatternLayout> eldest) {
+
+                return size() > LayoutCache.this.maximumSize;
+            }
+
+
+        };
+    }
+
+
+    /**
+     * Returns a started layout of specified pattern in specified context. A
+     * new layout is created and started on a miss.
+     *
+     * @param context the context
+     * @param pattern the pattern
+     *
+     * @return a started layout.
+     */
+    public PatternLayout get(final LoggerContext context,
+                             final String pattern) {
+
+        if (context == null) {
+            throw new NullPointerException("null context");
+        }
+
+        if (pattern == null) {
+            throw new NullPointerException("null pattern");
+        }
+
+        final Key key = new Key(context, pattern);
+
+        synchronized (layouts) {
+            final PatternLayout layout = layouts.get(key);
+            if (layout != null) {
+                hits++;
+                return layout;
+            }
+            misses++;
+        }
+
+        // parses out of the lock; a concurrent miss may parse the same
+        final PatternLayout layout = new PatternLayout();
+        layout.setContext(context);
+        layout.setPattern(pattern);
+        layout.start();
+
+        synchronized (layouts) {
+            final PatternLayout previous = layouts.get(key);
+            if (previous != null) {
+                return previous;
+            }
+            layouts.put(key, layout);
+            if (listened.add(context)) {
+                // stopping removes the listener from the context
+                context.addListener(evictor);
+            }
+        }
+
+        return layout;
+    }
+
+
+    /**
+     * Returns the number of lookups found a cached layout.
+     *
+     * @return the number of hits.
+     */
+    public long getHitCount() {
+
+        synchronized (layouts) {
+            return hits;
+        }
+    }
+
+
+    /**
+     * Returns the number of lookups created a new layout.
+     *
+     * @return the number of misses.
+     */
+    public long getMissCount() {
+
+        synchronized (layouts) {
+            return misses;
+        }
+    }
+
+
+    /**
+     * Returns the number of cached layouts.
+     *
+     * @return the number of cached layouts.
+     */
+    public int size() {
+
+        synchronized (layouts) {
+            return layouts.size();
+        }
+    }
+
+
+    /**
+     * Removes all cached layouts and resets the counters.
+     */
+    public void clear() {
+
+        synchronized (layouts) {
+            layouts.clear();
+            hits = 0L;
+            misses = 0L;
+        }
+    }
+
+
+    /**
+     * Returns the maximum number of layouts.
+     *
+     * @return the maximum number of layouts.
+     */
+    public int getMaximumSize() {
+
+        return maximumSize;
+    }
+
+
+    /**
+     * Evicts layouts of specified context.
+     *
+     * @param context the context
+     * @param stopped a flag for the context is stopped.
+     */
+    private void evict(final LoggerContext context, final boolean stopped) {
+
+        synchronized (layouts) {
+            for (final Iterator<Key> i = layouts.keySet().iterator();
+                 i.hasNext();) {
+                if (i.next().context == context) {
+                    i.remove();
+                }
+            }
+            if (stopped) {
+                listened.remove(context);
+            }
+        }
+    }
+
+
+    /**
+     * The shared instance.
+     */
+    private static final LayoutCache INSTANCE
+        = new LayoutCache(DEFAULT_MAXIMUM_SIZE);
+
+
+    /**
+     * the maximum number of layouts.
+     */
+    private final int maximumSize;
+
+
+    /**
+     * the layouts in access order.
+     */
+    private final Map<Key, PatternLayout> layouts;
+
+
+    /**
+     * the contexts to which the evictor has been added.
+     */
+    private final Set<LoggerContext> listened
+        = Collections.newSetFromMap(new WeakHashMap<LoggerContext, Boolean>());
+
+
+    /**
+     * the listener evicts layouts of contexts reset or stopped.
+     */
+    private final LoggerContextListener evictor = new Evictor();
+
+
+    /**
+     * the number of hits.
+     */
+    private long hits;
+
+
+    /**
+     * the number of misses.
+     */
+    private long misses;
+
+
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * A record store keeps records in a queue per level and evicts them by a
+ * configurable policy when either the byte limit or the count limit is
+ * exceeded. Records are written in the order they were added.
+ * <pre>{@code
+ * <appender name="..." class="...BufferedOutputStreamAppender">
+ *   <limit>65536</limit>
+ *   <store class="com.github.jinahya.logback.core.LevelRecordStore">
+ *     <policy>LOWEST_LEVEL</policy>
+ *     <countLimit>1024</countLimit>
+ *   </store>
+ *   ...
+ * </appender>
+ * }</pre>
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class LevelRecordStore extends RecordStore {
+
+
+    /**
+     * The number of level queues.
+     */
+    static final int LEVELS = 5;
+
+
+    /**
+     * Eviction policies.
+     */
+    public static enum Policy {
+
+
+        /**
+         * Evicts the oldest record whatever its level.
+         */
+        OLDEST,
+
+
+        /**
+         * Drops new records which do not fit.
+         */
+        NEWEST,
+
+
+        /**
+         * Evicts the oldest record of the lowest level held.
+         */
+        LOWEST_LEVEL
+
+    }
+
+
+    /**
+     * A held record.
+     */
+    private static class Entry {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param sequence the sequence number.
+         * @param bytes the bytes.
+         */
+        Entry(final long sequence, final byte[] bytes) {
+
+            super();
+
+            this.sequence = sequence;
+            this.bytes = bytes;
+        }
+
+
+        /**
+         * the sequence number.
+         */
+        private final long sequence;
+
+
+        /**
+         * the bytes.
+         */
+        private final byte[] bytes;
+
+
+    }
+
+
+    /**
+     * Returns the index of the queue for specified level. Unknown levels go
+     * to the lowest queue.
+     *
+     * @param level the level
+     *
+     * @return the index of the queue.
+     */
+    static int index(final int level) {
+
+        if (level >= Level.ERROR_INT) {
+            return 4;
+        }
+        if (level >= Level.WARN_INT) {
+            return 3;
+        }
+        if (level >= Level.INFO_INT) {
+            return 2;
+        }
+        if (level >= Level.DEBUG_INT) {
+            return 1;
+        }
+
+        return 0;
+    }
+
+
+    @Override
+    public void start(final long limit) {
+
+        super.start(limit);
+
+        queues.clear();
+        for (int i = 0; i < LEVELS; i++) {
+            queues.add(new ArrayDeque<Entry>());
+        }
+
+        clear();
+    }
+
+
+    @Override
+    public void add(final byte[] record, final int offset, final int length) {
+
+        add(System.currentTimeMillis(), UNKNOWN_LEVEL, record, offset, length);
+    }
+
+
+    /**
+     * {@inheritDoc} A record larger than the limit is dropped.
+     *
+     * @param timestamp {@inheritDoc}
+     * @param level {@inheritDoc}
+     * @param record {@inheritDoc}
+     * @param offset {@inheritDoc}
+     * @param length {@inheritDoc}
+     */
+    @Override
+    public void add(final long timestamp, final int level,
+                    final byte[] record, final int offset, final int length) {
+
+        if (limit >= 0L && length > limit) {
+            sequence++;
+            return;
+        }
+
+        if (policy == Policy.NEWEST
+            && exceeds(this.length + length, count + 1)) {
+            sequence++;
+            return;
+        }
+
+        queues.get(index(level)).addLast(new Entry(
+            sequence++, Arrays.copyOfRange(record, offset, offset + length)));
+        this.length += length;
+        count++;
+
+        while (exceeds(this.length, count)) {
+            this.length -= queues.get(victim()).removeFirst().bytes.length;
+            count--;
+        }
+    }
+
+
+    @Override
+    public void clear() {
+
+        for (final ArrayDeque<Entry> queue : queues) {
+            queue.clear();
+        }
+        length = 0L;
+        count = 0;
+    }
+
+
+    @Override
+    public long getLength() {
+
+        return length;
+    }
+
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+
+        for (final ByteBuffer buffer : buffers()) {
+            output.write(buffer.array());
+        }
+    }
+
+
+    @Override
+    public long getSequence() {
+
+        return sequence;
+    }
+
+
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        return read(cursor, output, Long.MAX_VALUE);
+    }
+
+
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output,
+                     final long max)
+        throws IOException {
+
+        final List<Iterator<Entry>> iterators = new ArrayList<>(LEVELS);
+        final Entry[] heads = new Entry[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            // only the newer entries are visited, from the tail
+            final List<Entry> newer = new ArrayList<>();
+            for (final Iterator<Entry> j = queues.get(i).descendingIterator();
+                 j.hasNext();) {
+                final Entry entry = j.next();
+                if (entry.sequence < cursor.getSequence()) {
+                    break;
+                }
+                newer.add(entry);
+            }
+            Collections.reverse(newer);
+            final Iterator<Entry> iterator = newer.iterator();
+            iterators.add(iterator);
+            heads[i] = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        long written = 0L;
+        long read = 0L;
+        long next = sequence;
+        for (int oldest; (oldest = oldest(heads)) != -1; read++) {
+            if (read > 0L && written >= max) {
+                next = heads[oldest].sequence;
+                break;
+            }
+            output.write(heads[oldest].bytes);
+            written += heads[oldest].bytes.length;
+            final Iterator<Entry> iterator = iterators.get(oldest);
+            heads[oldest] = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        cursor.advance(next, read);
+
+        return written;
+    }
+
+
+    @Override
+    protected ByteBuffer[] buffers() {
+
+        final List<Iterator<Entry>> iterators = new ArrayList<>(LEVELS);
+        final Entry[] heads = new Entry[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            final Iterator<Entry> iterator = queues.get(i).iterator();
+            iterators.add(iterator);
+            heads[i] = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        final ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0, oldest; (oldest = oldest(heads)) != -1; i++) {
+            buffers[i] = ByteBuffer.wrap(heads[oldest].bytes);
+            final Iterator<Entry> iterator = iterators.get(oldest);
+            heads[oldest] = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        return buffers;
+    }
+
+
+    /**
+     * Returns the index of the queue from which a record is evicted. This
+     * method is invoked only while at least one record is held.
+     *
+     * @return the index of the queue to evict from.
+     */
+    protected int victim() {
+
+        if (policy == Policy.LOWEST_LEVEL) {
+            for (int i = 0; i < LEVELS; i++) {
+                if (!queues.get(i).isEmpty()) {
+                    return i;
+                }
+            }
+        }
+
+        final Entry[] heads = new Entry[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            heads[i] = queues.get(i).peekFirst();
+        }
+
+        return oldest(heads);
+    }
+
+
+    /**
+     * Returns the number of records held.
+     *
+     * @return the number of records held.
+     */
+    public int getCount() {
+
+        return count;
+    }
+
+
+    /**
+     * Returns the eviction policy.
+     *
+     * @return the eviction policy.
+     */
+    public Policy getPolicy() {
+
+        return policy;
+    }
+
+
+    /**
+     * Sets the eviction policy.
+     *
+     * @param policy the eviction policy
+     */
+    public void setPolicy(final Policy policy) {
+
+        if (policy == null) {
+            throw new NullPointerException("null policy");
+        }
+
+        this.policy = policy;
+    }
+
+
+    /**
+     * Returns the maximum number of records.
+     *
+     * @return the maximum number of records.
+     */
+    public int getCountLimit() {
+
+        return countLimit;
+    }
+
+
+    /**
+     * Sets the maximum number of records.
+     *
+     * @param countLimit the maximum number of records; zero or negative for no
+     * limit.
+     */
+    public void setCountLimit(final int countLimit) {
+
+        this.countLimit = countLimit;
+    }
+
+
+    private boolean exceeds(final long length, final int count) {
+
+        return (limit >= 0L && length > limit)
+               || (countLimit > 0 && count > countLimit);
+    }
+
+
+    /**
+     * Returns the index of the entry with the smallest sequence number.
+     *
+     * @param heads the entries; {@code null} elements are ignored.
+     *
+     * @return the index of the oldest entry; {@code -1} if none.
+     */
+    private static int oldest(final Entry[] heads) {
+
+        int oldest = -1;
+        for (int i = 0; i < heads.length; i++) {
+            if (heads[i] != null
+                && (oldest == -1
+                    || heads[i].sequence < heads[oldest].sequence)) {
+                oldest = i;
+            }
+        }
+
+        return oldest;
+    }
+
+
+    /**
+     * the eviction policy.
+     */
+    private Policy policy = Policy.OLDEST;
+
+
+    /**
+     * the maximum number of records.
+     */
+    private int countLimit = 0;
+
+
+    /**
+     * the queues of records per level; created when started.
+     */
+    private final List<ArrayDeque<Entry>> queues = new ArrayList<>(LEVELS);
+
+
+    /**
+     * the number of bytes held.
+     */
+    private long length = 0L;
+
+
+    /**
+     * the number of records held.
+     */
+    private int count = 0;
+
+
+    /**
+     * the next sequence number.
+     */
+    private long sequence = 0L;
+
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A record store holds each record as a separate array. This is the default
+ * store of {@link BufferedOutputStreamAppender}.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class ListRecordStore extends RecordStore {
+
+
+    @Override
+    public void start(final long limit) {
+
+        super.start(limit);
+
+        clear();
+    }
+
+
+    @Override
+    public void add(final byte[] record, final int offset, final int length) {
+
+        records.add(Arrays.copyOfRange(record, offset, offset + length));
+        this.length += length;
+        sequence++;
+
+        while (limit >= 0 && this.length > limit && !records.isEmpty()) {
+            this.length -= records.remove(0).length;
+        }
+    }
+
+
+    @Override
+    public void clear() {
+
+        records.clear();
+        length = 0L;
+    }
+
+
+    @Override
+    public long getLength() {
+
+        return length;
+    }
+
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+
+        for (final byte[] record : records) {
+            output.write(record);
+        }
+    }
+
+
+    @Override
+    public byte[] toByteArray() {
+
+        final byte[] array = new byte[(int) length];
+
+        int position = 0;
+        for (final byte[] record : records) {
+            System.arraycopy(record, 0, array, position, record.length);
+            position += record.length;
+        }
+
+        return array;
+    }
+
+
+    @Override
+    public long getSequence() {
+
+        return sequence;
+    }
+
+
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        return read(cursor, output, Long.MAX_VALUE);
+    }
+
+
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output,
+                     final long max)
+        throws IOException {
+
+        final int size = records.size();
+        final int first = (int) Math.min(
+            Math.max(0L, cursor.getSequence() - (sequence - size)), size);
+
+        long written = 0L;
+        int end = first;
+        while (end < size && (written < max || end == first)) {
+            final byte[] record = records.get(end++);
+            output.write(record);
+            written += record.length;
+        }
+
+        cursor.advance(end == size ? sequence : sequence - size + end,
+                       end - first);
+
+        return written;
+    }
+
+
+    @Override
+    protected ByteBuffer[] buffers() {
+
+        final ByteBuffer[] buffers = new ByteBuffer[records.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(records.get(i));
+        }
+
+        return buffers;
+    }
+
+
+    /**
+     * {@inheritDoc} Records are held as private arrays never modified.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected ByteBuffer[] immutableBuffers() {
+
+        return buffers();
+    }
+
+
+    /**
+     * the buffered record list.
+     */
+    private final List<byte[]> records = new ArrayList<>();
+
+
+    /**
+     * the number of bytes buffered so far.
+     */
+    private long length = 0L;
+
+
+    /**
+     * the sequence number of the next record.
+     */
+    private long sequence = 0L;
+
+
+}
@@ -19,8 +19,8 @@ package com.github.jinahya.logback.core;
 
 
 import ch.qos.logback.classic.Logger;
-import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
 import static java.lang.invoke.MethodHandles.lookup;
 import java.nio.charset.Charset;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -32,7 +32,53 @@ import static org.slf4j.LoggerFactory.getLogger;
  * @see <a href="https://gist.github.com/olim7t/881318">olim7t /
  * LogbackCapture.java</a>
  */
-public final class LogRecorder {
+public final class LogRecorder implements AutoCloseable {
+
+
+    /**
+     * Stops recording; refers everything to stop but the recorder.
+     */
+    private static final class Stop implements Runnable {
+
+
+        Stop(final DispatchingAppender dispatcher,
+             final BufferedOutputStreamAppender<ILoggingEvent> appender,
+             final LayoutWrappingEncoder<ILoggingEvent> encoder) {
+
+            super();
+
+            this.dispatcher = dispatcher;
+            this.appender = appender;
+            this.encoder = encoder;
+        }
+
+
+        @Override
+        public void run() {
+
+            final boolean unregistered = dispatcher.unregister(appender);
+            logger_.trace("appender unregistered: {}", unregistered);
+
+            appender.stop();
+
+            encoder.stop();
+        }
+
+
+        private transient final org.slf4j.Logger logger_
+            = getLogger(lookup().lookupClass());
+
+
+        private final DispatchingAppender dispatcher;
+
+
+        private final BufferedOutputStreamAppender<ILoggingEvent> appender;
+
+
+        private final LayoutWrappingEncoder<ILoggingEvent> encoder;
+
+
+    }
 
 
     /**
@@ -48,13 +94,39 @@ public final class LogRecorder {
     public static LogRecorder start(final Logger logger, final String pattern,
                                     final Charset charset, final int limit) {
 
+        return start(logger, pattern, charset, limit, CaptureScope.ALL);
+    }
+
+
+    /**
+     * Starts recoding logs for given {@code logger} logged by threads in given
+     * {@code scope}.
+     *
+     * @param logger the logger instance.
+     * @param pattern the pattern
+     * @param charset the charset
+     * @param limit the maximum number of bytes to hold.
+     * @param scope the scope of threads to capture.
+     *
+     * @return a LogRecoder instance.
+     */
+    public static LogRecorder start(final Logger logger, final String pattern,
+                                    final Charset charset, final int limit,
+                                    final CaptureScope scope) {
+
         if (logger == null) {
             throw new NullPointerException("null logger");
         }
 
-        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        if (scope == null) {
+            throw new NullPointerException("null scope");
+        }
+
+        final LayoutWrappingEncoder<ILoggingEvent> encoder
+            = new LayoutWrappingEncoder<>();
         encoder.setContext(logger.getLoggerContext());
-        encoder.setPattern(pattern);
+        encoder.setLayout(LayoutCache.getInstance().get(
+            logger.getLoggerContext(), pattern));
         encoder.setCharset(charset);
         encoder.setImmediateFlush(true);
 
@@ -64,7 +136,8 @@ public final class LogRecorder {
         appender.setLimit(limit);
         appender.setEncoder(encoder);
 
-        final LogRecorder recorder = new LogRecorder(logger, appender, encoder);
+        final LogRecorder recorder
+            = new LogRecorder(logger, appender, encoder, scope);
 
         recorder.start();
 
@@ -99,6 +172,36 @@ public final class LogRecorder {
     }
 
 
+    /**
+     * Starts recording log for given {@code logger} logged by threads in given
+     * {@code scope}.
+     *
+     * @param logger the logger
+     * @param pattern the pattern
+     * @param charset the charset
+     * @param limit the maximum byte to hold
+     * @param scope the scope of threads to capture.
+     *
+     * @return a LogRecord instance.
+     */
+    public static LogRecorder start(final org.slf4j.Logger logger,
+                                    final String pattern, final Charset charset,
+                                    final int limit, final CaptureScope scope) {
+
+        if (logger == null) {
+            throw new NullPointerException("null logger");
+        }
+
+        if (!Logger.class.isInstance(logger)) {
+            throw new IllegalArgumentException(
+                "logger(" + logger + ") is not an instance of " + Logger.class);
+        }
+
+        return start(Logger.class.cast(logger), pattern, charset, limit,
+                     scope);
+    }
+
+
     /**
      * Finishes recording for given {@code logger} and returns the records.
      *
@@ -126,7 +229,8 @@ public final class LogRecorder {
     private LogRecorder(
         final Logger logger,
         final BufferedOutputStreamAppender<ILoggingEvent> appender,
-        final PatternLayoutEncoder encoder) {
+        final LayoutWrappingEncoder<ILoggingEvent> encoder,
+        final CaptureScope scope) {
 
         super();
 
@@ -141,6 +245,7 @@ public final class LogRecorder {
         this.logger = logger;
         this.appender = appender;
         this.encoder = encoder;
+        this.scope = scope;
     }
 
 
@@ -159,8 +264,12 @@ public final class LogRecorder {
         appender.start();
         logger_.trace("appender started");
 
-        logger.addAppender(appender);
-        logger_.trace("appender attached");
+        final DispatchingAppender dispatcher = DispatchingAppender.get(logger);
+        dispatcher.register(appender, scope);
+        logger_.trace("appender registered");
+
+        cleanup = RecorderCleaner.register(
+            this, new Stop(dispatcher, appender, encoder));
 
         started = true;
     }
@@ -175,27 +284,23 @@ public final class LogRecorder {
             return;
         }
 
-        final boolean detached = logger.detachAppender(appender);
-        logger_.trace("appender detached: {}", detached);
-
-        appender.stop();
-
-        encoder.stop();
+        cleanup.clean();
+        cleanup = null;
 
         started = false;
+
+        RecorderCleaner.expunge();
     }
 
 
+    /**
+     * Stops recording without retrieving the records. Invoking this method on
+     * a finished recorder has no effect.
+     */
     @Override
-    protected void finalize() throws Throwable {
-
-        try {
-            stop();
-        } catch (final Exception e) {
-            e.printStackTrace(System.err);
-        }
+    public void close() {
 
-        super.finalize();
+        stop();
     }
 
 
@@ -209,7 +314,13 @@ public final class LogRecorder {
     private final BufferedOutputStreamAppender<ILoggingEvent> appender;
 
 
-    private final PatternLayoutEncoder encoder;
+    private final LayoutWrappingEncoder<ILoggingEvent> encoder;
+
+
+    private final CaptureScope scope;
+
+
+    private RecorderCleaner.Cleanup cleanup;
 
 
     private volatile boolean started = false;
@@ -18,17 +18,28 @@
 package com.github.jinahya.logback.core;
 
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.methodType;
+import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
 
 
 /**
+ * Invokes {@link LogRecorder} through method handles resolved once and typed
+ * with {@code Object}s, so that each call is an exact invocation without
+ * boxing, varargs arrays or access checks.
  *
  * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
  */
 public class LogRecorderReflector {
 
 
+    private static final MethodType START_TYPE = methodType(
+        Object.class, Object.class, String.class, Charset.class, Integer.TYPE);
+
+
     private static final String LOG_RECORDER_NAME
         = "com.github.jinahya.logback.core.LogRecorder";
 
@@ -49,13 +60,23 @@ public class LogRecorderReflector {
     private static final Class<?> SLF4J_LOGGER_CLASS;
 
 
-    private static final Method START_WITH_LOGBACK_LOGGER;
+    private static final MethodHandle START_WITH_LOGBACK_LOGGER;
+
 
+    private static final MethodHandle START_WITH_SLF4J_LOGGER;
 
-    private static final Method START_WITH_SLF4J_LOGGER;
 
+    private static final MethodHandle FINISH;
 
-    private static final Method FINISH;
+
+    private static void check(final Class<?> type, final Object argument,
+                              final String name) {
+
+        if (argument != null && !type.isInstance(argument)) {
+            throw new IllegalArgumentException(
+                name + "(" + argument + ") is not an instance of " + type);
+        }
+    }
 
 
     static {
@@ -63,13 +84,19 @@ public class LogRecorderReflector {
             LOG_RECORDER_CLASS = Class.forName(LOG_RECORDER_NAME);
             LOGBACK_LOGGER_CLASS = Class.forName(LOGBACK_LOGGER_NAME);
             SLF4J_LOGGER_CLASS = Class.forName(SLF4J_LOGGER_NAME);
-            START_WITH_LOGBACK_LOGGER = LOG_RECORDER_CLASS.getMethod(
-                "start", LOGBACK_LOGGER_CLASS, String.class, Charset.class,
-                Integer.TYPE);
-            START_WITH_SLF4J_LOGGER = LOG_RECORDER_CLASS.getMethod(
-                "start", SLF4J_LOGGER_CLASS, String.class, Charset.class,
-                Integer.TYPE);
-            FINISH = LOG_RECORDER_CLASS.getMethod("finish", LOG_RECORDER_CLASS);
+            START_WITH_LOGBACK_LOGGER = publicLookup().unreflect(
+                LOG_RECORDER_CLASS.getMethod(
+                    "start", LOGBACK_LOGGER_CLASS, String.class,
+                    Charset.class, Integer.TYPE))
+                .asType(START_TYPE);
+            START_WITH_SLF4J_LOGGER = publicLookup().unreflect(
+                LOG_RECORDER_CLASS.getMethod(
+                    "start", SLF4J_LOGGER_CLASS, String.class, Charset.class,
+                    Integer.TYPE))
+                .asType(START_TYPE);
+            FINISH = publicLookup().unreflect(
+                LOG_RECORDER_CLASS.getMethod("finish", LOG_RECORDER_CLASS))
+                .asType(methodType(String.class, Object.class));
         } catch (final ReflectiveOperationException roe) {
             roe.printStackTrace(System.err);
             throw new InstantiationError(
@@ -97,14 +124,17 @@ public class LogRecorderReflector {
                                final Charset charset, final int limit)
         throws ReflectiveOperationException {
 
-        if (SLF4J_LOGGER_CLASS.isInstance(logger)) {
-            return START_WITH_SLF4J_LOGGER.invoke(
-                null, logger, pattern, charset, limit);
-        }
-
-        if (LOGBACK_LOGGER_CLASS.isInstance(logger)) {
-            return START_WITH_LOGBACK_LOGGER.invoke(
-                null, logger, pattern, charset, limit);
+        try {
+            if (SLF4J_LOGGER_CLASS.isInstance(logger)) {
+                return (Object) START_WITH_SLF4J_LOGGER.invokeExact(
+                    logger, pattern, charset, limit);
+            }
+            if (LOGBACK_LOGGER_CLASS.isInstance(logger)) {
+                return (Object) START_WITH_LOGBACK_LOGGER.invokeExact(
+                    logger, pattern, charset, limit);
+            }
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
         }
 
         throw new IllegalArgumentException(
@@ -127,7 +157,12 @@ public class LogRecorderReflector {
     public static String finish(final Object recorder)
         throws ReflectiveOperationException {
 
-        return (String) FINISH.invoke(null, recorder);
+        check(LOG_RECORDER_CLASS, recorder, "recorder");
+        try {
+            return (String) FINISH.invokeExact(recorder);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
 
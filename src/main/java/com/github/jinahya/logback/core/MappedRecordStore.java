@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * A record store holds records in a memory-mapped file on local disk. Adding
+ * records involves no {@code write} system calls. The file is only a spill
+ * area; its content is not recovered when this store is started again.
+ * <p>
+ * This store is usually set as the overflow of a heap store.
+ * <pre>{@code
+ * <appender class="...BufferedOutputStreamAppender">
+ *   <store class="...RingRecordStore">
+ *     <overflow class="...MappedRecordStore">
+ *       <file>/var/tmp/app.spill</file>
+ *       <capacity>1073741824</capacity>
+ *     </overflow>
+ *   </store>
+ * </appender>
+ * }</pre>
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ * @see ArenaRecordStore#setOverflow(RecordStore)
+ */
+public class MappedRecordStore extends DirectRecordStore {
+
+
+    @Override
+    public void start(final long limit) {
+
+        if (file == null) {
+            throw new IllegalArgumentException("no file specified");
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            channel = raf.getChannel();
+            try {
+                super.start(limit); // mappings remain valid after closing
+            } finally {
+                channel = null;
+            }
+        } catch (final IOException ioe) {
+            throw new IllegalArgumentException(
+                "failed to map file: " + file, ioe);
+        }
+    }
+
+
+    /**
+     * Returns the path of the file.
+     *
+     * @return the path of the file.
+     */
+    public String getFile() {
+
+        return file;
+    }
+
+
+    /**
+     * Sets the path of the file. The new value takes effect when this store is
+     * started.
+     *
+     * @param file the path of the file.
+     */
+    public void setFile(final String file) {
+
+        this.file = file;
+    }
+
+
+    /**
+     * {@inheritDoc} This method maps a region of the file.
+     *
+     * @param index {@inheritDoc}
+     * @param position {@inheritDoc}
+     * @param size {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected ByteBuffer allocate(final int index, final long position,
+                                  final int size) {
+
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        } catch (final IOException ioe) {
+            throw new IllegalArgumentException(
+                "failed to map region at " + position, ioe);
+        }
+    }
+
+
+    /**
+     * the path of the file.
+     */
+    private String file;
+
+
+    /**
+     * the channel being mapped while starting.
+     */
+    private transient FileChannel channel;
+
+
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * A flight recorder keeps a separate small buffer for each value of an MDC
+ * key, such as a request id, and emits a buffer only if its request failed.
+ * A request fails when any of its events triggers. A request ends when an
+ * event marked with the end marker is appended or when {@link #end(String)}
+ * is invoked; the buffer of a failed request is then delivered to attached
+ * appenders while the buffer of any other request is simply dropped.
+ * <p>
+ * The total number of bytes of all buffers is bounded by the budget. When
+ * exceeded, buffers of least recently appended requests are removed as if
+ * ended. Events without the MDC key are recorded as a plain
+ * {@link FlightRecorderAppender} does.
+ * <pre>{@code
+ * <appender name="REQUESTS" class="...MdcFlightRecorderAppender">
+ *   <encoder>...</encoder>
+ *   <mdcKey>requestId</mdcKey>
+ *   <keyLimit>65536</keyLimit>
+ *   <budget>16777216</budget>
+ *   <endMarker>END</endMarker>
+ *   <appender-ref ref="FILE"/>
+ * </appender>
+ * }</pre>
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class MdcFlightRecorderAppender
+    extends FlightRecorderAppender<ILoggingEvent> {
+
+
+    /**
+     * The default limit of each buffer.
+     */
+    public static final int DEFAULT_KEY_LIMIT = 65536;
+
+
+    /**
+     * The default budget of all buffers.
+     */
+    public static final long DEFAULT_BUDGET = 16777216L;
+
+
+    /**
+     * A buffer of a request.
+     */
+    private static class Request {
+
+
+        /**
+         * the store.
+         */
+        private final RecordStore store = new ListRecordStore();
+
+
+        /**
+         * the flag for failed.
+         */
+        private boolean failed;
+
+
+    }
+
+
+    @Override
+    public void start() {
+
+        if (mdcKey == null) {
+            addError("no mdcKey specified");
+            return;
+        }
+
+        if (isConcurrent()) {
+            addError("concurrent mode not supported");
+            return;
+        }
+
+        super.start();
+    }
+
+
+    @Override
+    public void stop() {
+
+        lock.lock();
+        try {
+            for (final Iterator<Request> i = requests.values().iterator();
+                 i.hasNext();) {
+                final Request request = i.next();
+                if (request.failed) {
+                    ended.add(request);
+                }
+                i.remove();
+            }
+            held = 0L;
+        } finally {
+            lock.unlock();
+        }
+        deliverEnded();
+
+        super.stop();
+    }
+
+
+    @Override
+    protected void append(final ILoggingEvent eventObject) {
+
+        super.append(eventObject);
+
+        final String key = key(eventObject);
+        if (key != null && endMarker != null
+            && eventObject.getMarker() != null
+            && eventObject.getMarker().contains(endMarker)) {
+            end(key);
+        }
+
+        deliverEnded();
+    }
+
+
+    @Override
+    protected void writeOut(final ILoggingEvent event) throws IOException {
+
+        final String key = key(event);
+        if (key == null) {
+            super.writeOut(event);
+            return;
+        }
+
+        Request request = requests.get(key); // moves to the tail
+        if (request == null) {
+            request = new Request();
+            request.store.start(keyLimit);
+            requests.put(key, request);
+        }
+
+        final long before = request.store.getLength();
+        writing = request;
+        try {
+            super.writeOut(event);
+        } finally {
+            writing = null;
+            held += request.store.getLength() - before;
+        }
+
+        // removes least recently appended requests
+        for (final Iterator<Request> i = requests.values().iterator();
+             held > budget && i.hasNext();) {
+            final Request eldest = i.next();
+            if (eldest == request) {
+                break;
+            }
+            i.remove();
+            held -= eldest.store.getLength();
+            if (eldest.failed) {
+                ended.add(eldest);
+            }
+        }
+    }
+
+
+    @Override
+    protected RecordStore store(final ILoggingEvent event) {
+
+        if (writing != null) {
+            return writing.store;
+        }
+
+        return super.store(event);
+    }
+
+
+    /**
+     * {@inheritDoc} The request of an event with the MDC key is marked as
+     * failed rather than drained.
+     *
+     * @param event {@inheritDoc}
+     */
+    @Override
+    protected void triggered(final ILoggingEvent event) {
+
+        final String key = key(event);
+        if (key == null) {
+            super.triggered(event);
+            return;
+        }
+
+        lock.lock();
+        try {
+            final Request request = requests.get(key);
+            if (request != null) {
+                request.failed = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Ends the request of specified value of the MDC key. The buffer of the
+     * request is delivered if the request failed and dropped otherwise.
+     *
+     * @param key the value of the MDC key.
+     *
+     * @return the number of bytes delivered.
+     */
+    public long end(final String key) {
+
+        final Request request;
+        lock.lock();
+        try {
+            request = requests.remove(key);
+            if (request != null) {
+                held -= request.store.getLength();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (request == null || !request.failed) {
+            return 0L;
+        }
+
+        return deliver(request);
+    }
+
+
+    /**
+     * Returns the number of requests currently buffered.
+     *
+     * @return the number of requests buffered.
+     */
+    public int getRequestCount() {
+
+        lock.lock();
+        try {
+            return requests.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the value of the MDC key of specified event.
+     *
+     * @param event the event
+     *
+     * @return the value of the MDC key; {@code null} if absent.
+     */
+    private String key(final ILoggingEvent event) {
+
+        final Map<String, String> map = event.getMDCPropertyMap();
+
+        return map == null ? null : map.get(mdcKey);
+    }
+
+
+    /**
+     * Delivers buffers of failed requests removed while holding the lock.
+     */
+    private void deliverEnded() {
+
+        for (Request request; (request = ended.poll()) != null;) {
+            deliver(request);
+        }
+    }
+
+
+    /**
+     * Delivers the buffer of specified request.
+     *
+     * @param request the request
+     *
+     * @return the number of bytes delivered.
+     */
+    private long deliver(final Request request) {
+
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        try {
+            request.store.write(records);
+        } catch (final IOException ioe) {
+            throw new AssertionError(ioe);
+        }
+        deliver(records);
+
+        return records.size();
+    }
+
+
+    /**
+     * Returns the MDC key.
+     *
+     * @return the MDC key.
+     */
+    public String getMdcKey() {
+
+        return mdcKey;
+    }
+
+
+    /**
+     * Sets the MDC key whose values identify requests.
+     *
+     * @param mdcKey the MDC key
+     */
+    public void setMdcKey(final String mdcKey) {
+
+        this.mdcKey = mdcKey;
+    }
+
+
+    /**
+     * Returns the limit of each buffer.
+     *
+     * @return the limit of each buffer.
+     */
+    public int getKeyLimit() {
+
+        return keyLimit;
+    }
+
+
+    /**
+     * Sets the limit of each buffer.
+     *
+     * @param keyLimit the limit of each buffer; negative for no limit.
+     */
+    public void setKeyLimit(final int keyLimit) {
+
+        this.keyLimit = keyLimit;
+    }
+
+
+    /**
+     * Returns the budget of all buffers.
+     *
+     * @return the budget of all buffers.
+     */
+    public long getBudget() {
+
+        return budget;
+    }
+
+
+    /**
+     * Sets the maximum number of bytes of all buffers.
+     *
+     * @param budget the budget of all buffers.
+     */
+    public void setBudget(final long budget) {
+
+        this.budget = budget;
+    }
+
+
+    /**
+     * Returns the name of the end marker.
+     *
+     * @return the name of the end marker; {@code null} if not set.
+     */
+    public String getEndMarker() {
+
+        return endMarker;
+    }
+
+
+    /**
+     * Sets the name of the marker with which an event ends its request.
+     *
+     * @param endMarker the name of the end marker; {@code null} for none.
+     */
+    public void setEndMarker(final String endMarker) {
+
+        this.endMarker = endMarker;
+    }
+
+
+    /**
+     * the MDC key.
+     */
+    private String mdcKey;
+
+
+    /**
+     * the limit of each buffer.
+     */
+    private int keyLimit = DEFAULT_KEY_LIMIT;
+
+
+    /**
+     * the budget of all buffers.
+     */
+    private long budget = DEFAULT_BUDGET;
+
+
+    /**
+     * the name of the end marker.
+     */
+    private String endMarker;
+
+
+    /**
+     * the buffers of requests in the order of last append; guarded by the
+     * lock.
+     */
+    private final Map<String, Request> requests
+        = new LinkedHashMap<>(16, .75f, true);
+
+
+    /**
+     * the number of bytes of all buffers; guarded by the lock.
+     */
+    private long held;
+
+
+    /**
+     * the request being written out.
+     */
+    private Request writing;
+
+
+    /**
+     * the failed requests removed and yet to be delivered.
+     */
+    private final Queue<Request> ended = new ConcurrentLinkedQueue<>();
+
+
+}
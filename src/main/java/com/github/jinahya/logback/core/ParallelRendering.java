@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Renders events in chunks on a fork-join pool. Each worker thread renders
+ * with its own layout, rather than a shared one from {@link LayoutCache}, so
+ * that workers do not serialize on the lock of a shared date converter.
+ * Rendered chunks are kept in their original order.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+final class ParallelRendering {
+
+
+    /**
+     * The number of events of each chunk.
+     */
+    static final int CHUNK_SIZE = 1024;
+
+
+    /**
+     * A task rendering a range of chunks.
+     */
+    private final class Task extends RecursiveAction {
+
+
+        private static final long serialVersionUID = 1L;
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param low the index of the first chunk, inclusive.
+         * @param high the index of the last chunk, exclusive.
+         */
+        Task(final int low, final int high) {
+
+            super();
+
+            this.low = low;
+            this.high = high;
+        }
+
+
+        @Override
+        protected void compute() {
+
+            if (high - low > 1) {
+                final int middle = (low + high) >>> 1;
+                invokeAll(new Task(low, middle), new Task(middle, high));
+                return;
+            }
+
+            final PatternLayout layout = layout();
+            final int from = low * CHUNK_SIZE;
+            final int to = Math.min(from + CHUNK_SIZE, events.size());
+            final StringBuilder chunk = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                chunk.append(layout.doLayout(events.get(i)));
+            }
+            chunks[low] = chunk.toString();
+        }
+
+
+        /**
+         * the index of the first chunk.
+         */
+        private final int low;
+
+
+        /**
+         * the index of the last chunk, exclusive.
+         */
+        private final int high;
+
+
+    }
+
+
+    /**
+     * Creates a new instance.
+     *
+     * @param events the events to render.
+     * @param context the context of layouts.
+     * @param pattern the pattern of layouts.
+     */
+    ParallelRendering(final List<ILoggingEvent> events,
+                      final LoggerContext context, final String pattern) {
+
+        super();
+
+        this.events = events;
+        this.context = context;
+        this.pattern = pattern;
+
+        chunks = new String[(events.size() + CHUNK_SIZE - 1) / CHUNK_SIZE];
+    }
+
+
+    /**
+     * Renders all events on specified pool.
+     *
+     * @param pool the pool
+     *
+     * @return rendered chunks in order.
+     */
+    String[] render(final ForkJoinPool pool) {
+
+        if (chunks.length == 0) {
+            return chunks;
+        }
+
+        try {
+            pool.invoke(new Task(0, chunks.length));
+        } finally {
+            for (final PatternLayout layout : layouts.values()) {
+                layout.stop();
+            }
+            layouts.clear();
+        }
+
+        return chunks;
+    }
+
+
+    /**
+     * Returns the layout of the current worker thread.
+     *
+     * @return the layout of the current thread.
+     */
+    private PatternLayout layout() {
+
+        final Thread worker = Thread.currentThread();
+        PatternLayout layout = layouts.get(worker);
+        if (layout == null) {
+            layout = new PatternLayout();
+            layout.setContext(context);
+            layout.setPattern(pattern);
+            layout.start();
+            layouts.put(worker, layout);
+        }
+
+        return layout;
+    }
+
+
+    /**
+     * the events to render.
+     */
+    private final List<ILoggingEvent> events;
+
+
+    /**
+     * the context of layouts.
+     */
+    private final LoggerContext context;
+
+
+    /**
+     * the pattern of layouts.
+     */
+    private final String pattern;
+
+
+    /**
+     * the rendered chunks.
+     */
+    private final String[] chunks;
+
+
+    /**
+     * the layouts of worker threads.
+     */
+    private final Map<Thread, PatternLayout> layouts
+        = new ConcurrentHashMap<>();
+
+
+}
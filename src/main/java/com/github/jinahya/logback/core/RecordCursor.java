@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+/**
+ * A position in the sequence of records added to a {@link RecordStore}. Each
+ * record is given a sequence number, starting from zero, in the order it was
+ * added. A cursor is advanced by
+ * {@link RecordStore#read(RecordCursor, java.io.OutputStream)} past the
+ * records read so that subsequent reads see only newer records.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class RecordCursor {
+
+
+    /**
+     * Creates a new instance positioned at the first record.
+     */
+    public RecordCursor() {
+
+        this(0L);
+    }
+
+
+    /**
+     * Creates a new instance positioned at specified sequence number.
+     *
+     * @param sequence the sequence number of the next record to read.
+     */
+    public RecordCursor(final long sequence) {
+
+        super();
+
+        this.sequence = sequence;
+    }
+
+
+    /**
+     * Returns the sequence number of the next record to read.
+     *
+     * @return the sequence number of the next record to read.
+     */
+    public long getSequence() {
+
+        return sequence;
+    }
+
+
+    /**
+     * Returns the number of records read by the last read.
+     *
+     * @return the number of records read by the last read.
+     */
+    public long getCount() {
+
+        return count;
+    }
+
+
+    /**
+     * Returns the number of records evicted, or cleared, before the last read
+     * caught up with them.
+     *
+     * @return the number of records missed by the last read.
+     */
+    public long getEvicted() {
+
+        return evicted;
+    }
+
+
+    /**
+     * Copies the state of specified cursor.
+     *
+     * @param cursor the cursor to copy.
+     */
+    void set(final RecordCursor cursor) {
+
+        sequence = cursor.sequence;
+        count = cursor.count;
+        evicted = cursor.evicted;
+    }
+
+
+    /**
+     * Moves this cursor after a read.
+     *
+     * @param next the sequence number of the next record to be added.
+     * @param count the number of records read.
+     */
+    void advance(final long next, final long count) {
+
+        this.count = count;
+        evicted = Math.max(0L, next - sequence - count);
+        sequence = next;
+    }
+
+
+    /**
+     * the sequence number of the next record to read.
+     */
+    private long sequence;
+
+
+    /**
+     * the number of records read by the last read.
+     */
+    private long count;
+
+
+    /**
+     * the number of records missed by the last read.
+     */
+    private long evicted;
+
+
+}
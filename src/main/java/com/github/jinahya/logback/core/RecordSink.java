@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.IOException;
+
+
+/**
+ * A destination of records already encoded elsewhere, such as those drained by
+ * a {@link FlightRecorderAppender}. Implementations write records under the
+ * same lock which guards their own appends so that records never interleave
+ * with, or tear, events appended directly.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public interface RecordSink {
+
+
+    /**
+     * Writes specified records as they are.
+     *
+     * @param records the array containing the records.
+     * @param offset the offset of the records.
+     * @param length the number of bytes of the records.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    void write(byte[] records, int offset, int length) throws IOException;
+
+
+}
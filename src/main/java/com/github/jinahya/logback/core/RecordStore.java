@@ -0,0 +1,458 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+
+/**
+ * A storage of records buffered by {@link BufferedOutputStreamAppender}.
+ * Stores evict their oldest records when the number of bytes held exceeds the
+ * limit. A record is either added at once with
+ * {@link #add(byte[], int, int)} or streamed with {@link #begin()},
+ * {@link #append(byte[], int, int)} and {@link #commit()}.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public abstract class RecordStore {
+
+
+    /**
+     * A value for unknown levels of events.
+     */
+    public static final int UNKNOWN_LEVEL = Integer.MIN_VALUE;
+
+
+    /**
+     * Starts this store with specified limit. Any previously stored records
+     * are discarded.
+     *
+     * @param limit the maximum number of bytes to hold. Negative value for no
+     * limit.
+     */
+    public void start(final long limit) {
+
+        this.limit = limit;
+
+        started = true;
+    }
+
+
+    /**
+     * Returns whether this store has been started.
+     *
+     * @return {@code true} if started; {@code false} otherwise.
+     */
+    public boolean isStarted() {
+
+        return started;
+    }
+
+
+    /**
+     * Returns the limit this store has been started with.
+     *
+     * @return the limit
+     */
+    public long getLimit() {
+
+        return limit;
+    }
+
+
+    /**
+     * Adds a record. Implementations must not retain given {@code record}.
+     *
+     * @param record the array containing the record.
+     * @param offset the offset of the record in {@code record}.
+     * @param length the number of bytes of the record.
+     */
+    public abstract void add(byte[] record, int offset, int length);
+
+
+    /**
+     * Adds a record along with the timestamp and the level of its event. The
+     * default implementation ignores the timestamp and the level.
+     *
+     * @param timestamp the timestamp of the event.
+     * @param level the level of the event; {@link #UNKNOWN_LEVEL} if unknown.
+     * @param record the array containing the record.
+     * @param offset the offset of the record in {@code record}.
+     * @param length the number of bytes of the record.
+     *
+     * @see #add(byte[], int, int)
+     */
+    public void add(final long timestamp, final int level,
+                    final byte[] record, final int offset, final int length) {
+
+        add(record, offset, length);
+    }
+
+
+    /**
+     * Begins a new record with the timestamp and the level of its event. The
+     * default implementation keeps them for {@link #commit()} and invokes
+     * {@link #begin()}.
+     *
+     * @param timestamp the timestamp of the event.
+     * @param level the level of the event; {@link #UNKNOWN_LEVEL} if unknown.
+     */
+    public void begin(final long timestamp, final int level) {
+
+        this.timestamp = timestamp;
+        this.level = level;
+
+        begin();
+    }
+
+
+    /**
+     * Begins a new record which subsequent {@link #append(byte[], int, int)}
+     * calls write to. Does nothing if a record has already been begun and not
+     * yet committed.
+     */
+    public void begin() {
+
+        pending = true;
+    }
+
+
+    /**
+     * Appends bytes to the current record. A new record is begun if there is
+     * none.
+     *
+     * @param bytes the array containing bytes.
+     * @param offset the offset in {@code bytes}.
+     * @param length the number of bytes to append.
+     *
+     * @see #begin()
+     */
+    public void append(final byte[] bytes, final int offset,
+                       final int length) {
+
+        if (!pending) {
+            begin();
+        }
+
+        if (scratch.length - scratched < length) {
+            scratch = Arrays.copyOf(
+                scratch, Math.max(scratch.length * 2, scratched + length));
+        }
+        System.arraycopy(bytes, offset, scratch, scratched, length);
+        scratched += length;
+    }
+
+
+    /**
+     * Commits the current record, if any, as a new record.
+     */
+    public void commit() {
+
+        if (!pending) {
+            return;
+        }
+
+        add(timestamp, level, scratch, 0, scratched);
+
+        abort();
+    }
+
+
+    /**
+     * Discards the current record, if any.
+     */
+    public void abort() {
+
+        pending = false;
+        scratched = 0;
+        timestamp = System.currentTimeMillis();
+        level = UNKNOWN_LEVEL;
+    }
+
+
+    /**
+     * Removes all records.
+     */
+    public abstract void clear();
+
+
+    /**
+     * Returns the number of bytes currently held.
+     *
+     * @return the number of bytes currently held.
+     */
+    public abstract long getLength();
+
+
+    /**
+     * Writes all records, oldest first, to specified output stream.
+     *
+     * @param output the output stream
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public abstract void write(OutputStream output) throws IOException;
+
+
+    /**
+     * Returns whether records can be added, with either add method, and read
+     * concurrently. The default implementation returns {@code false}.
+     *
+     * @return {@code true} if concurrent; {@code false} otherwise.
+     */
+    public boolean isConcurrent() {
+
+        return false;
+    }
+
+
+    /**
+     * Returns whether {@link #getLength()}, {@link #write(OutputStream)} and
+     * {@link #toByteArray()} read only state which this store publishes as a
+     * whole, so that they may be invoked while records are being added with
+     * the result validated afterwards. Such reads may see bytes being
+     * overwritten but never a structure being changed. The default
+     * implementation returns {@code false}.
+     *
+     * @return {@code true} if optimistically readable; {@code false}
+     * otherwise.
+     */
+    public boolean isOptimisticallyReadable() {
+
+        return false;
+    }
+
+
+    /**
+     * Returns a concatenated records.
+     *
+     * @return a concatenated records.
+     */
+    public byte[] toByteArray() {
+
+        final long length = getLength();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                "length(" + length + ") > " + Integer.MAX_VALUE);
+        }
+
+        final ByteArrayOutputStream output
+            = new ByteArrayOutputStream((int) length);
+        try {
+            write(output);
+        } catch (final IOException ioe) {
+            throw new AssertionError(ioe);
+        }
+
+        return output.toByteArray();
+    }
+
+
+    /**
+     * Writes all records to specified channel handing them over as a batch of
+     * buffers. The channel should be in blocking mode.
+     *
+     * @param channel the channel
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public long write(final GatheringByteChannel channel) throws IOException {
+
+        final ByteBuffer[] buffers = buffers();
+
+        long written = 0L;
+        for (int i = 0; i < buffers.length;) {
+            written += channel.write(buffers, i, buffers.length - i);
+            while (i < buffers.length && !buffers[i].hasRemaining()) {
+                i++;
+            }
+        }
+
+        return written;
+    }
+
+
+    /**
+     * Writes all records to specified channel. A gathering channel is handed
+     * the records as {@link #write(GatheringByteChannel)} does; any other
+     * channel is handed them one buffer at a time. The channel should be in
+     * blocking mode.
+     *
+     * @param channel the channel
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public long transferTo(final WritableByteChannel channel)
+        throws IOException {
+
+        if (channel instanceof GatheringByteChannel) {
+            return write((GatheringByteChannel) channel);
+        }
+
+        long written = 0L;
+        for (final ByteBuffer buffer : buffers()) {
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+        }
+
+        return written;
+    }
+
+
+    /**
+     * Returns the sequence number of the next record to be added. The
+     * default implementation throws an
+     * {@link UnsupportedOperationException}.
+     *
+     * @return the sequence number of the next record.
+     *
+     * @see RecordCursor
+     */
+    public long getSequence() {
+
+        throw new UnsupportedOperationException(
+            "sequences not supported by " + getClass().getName());
+    }
+
+
+    /**
+     * Writes records added at or after the position of specified cursor to
+     * specified output stream and moves the cursor past them. The cost is
+     * proportional to the records written rather than the records held. The
+     * default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param cursor the cursor
+     * @param output the output stream
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        throw new UnsupportedOperationException(
+            "sequences not supported by " + getClass().getName());
+    }
+
+
+    /**
+     * Writes records added at or after the position of specified cursor, up to
+     * about specified number of bytes, to specified output stream and moves
+     * the cursor past the records written. At least one record is written if
+     * any. The default implementation ignores {@code max} and invokes
+     * {@link #read(RecordCursor, OutputStream)}.
+     *
+     * @param cursor the cursor
+     * @param output the output stream
+     * @param max the number of bytes after which no more records are written.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public long read(final RecordCursor cursor, final OutputStream output,
+                     final long max)
+        throws IOException {
+
+        return read(cursor, output);
+    }
+
+
+    /**
+     * Returns buffers whose remaining bytes are all records in order. The
+     * buffers may share content with this store and are valid only until this
+     * store is modified. The default implementation wraps
+     * {@link #toByteArray()}.
+     *
+     * @return buffers of records.
+     */
+    protected ByteBuffer[] buffers() {
+
+        return new ByteBuffer[]{ByteBuffer.wrap(toByteArray())};
+    }
+
+
+    /**
+     * Returns buffers whose remaining bytes are all records in order and whose
+     * content is never modified, so that they stay valid however this store is
+     * modified afterwards. The default implementation returns {@code null}.
+     *
+     * @return immutable buffers of records; {@code null} if not supported.
+     */
+    protected ByteBuffer[] immutableBuffers() {
+
+        return null;
+    }
+
+
+    /**
+     * the limit.
+     */
+    protected long limit = -1L;
+
+
+    /**
+     * the flag for started.
+     */
+    private boolean started = false;
+
+
+    /**
+     * the flag for a record begun but not yet committed.
+     */
+    private boolean pending = false;
+
+
+    /**
+     * the scratch array for the current record.
+     */
+    private byte[] scratch = new byte[256];
+
+
+    /**
+     * the number of bytes in {@link #scratch}.
+     */
+    private int scratched = 0;
+
+
+    /**
+     * the timestamp of the current record.
+     */
+    private long timestamp = System.currentTimeMillis();
+
+
+    /**
+     * the level of the current record.
+     */
+    private int level = UNKNOWN_LEVEL;
+
+
+}
@@ -0,0 +1,598 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import java.lang.invoke.MethodHandle;
+import static java.lang.invoke.MethodHandles.publicLookup;
+import java.lang.invoke.MethodType;
+import static java.lang.invoke.MethodType.methodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * A reflective bridge to {@link LogRecorder} and {@link ILoggingEventRecorder}
+ * classes visible from a specific class loader, such as the class loader of a
+ * web application. Unlike {@link LogRecorderReflector} and
+ * {@link ILoggingEventRecorderReflector}, nothing is resolved until the first
+ * invocation, and classes missing from the class loader are reported by the
+ * invocation rather than by an error on class initialization.
+ * <p>
+ * A bridge holds its class loader, and the classes resolved from it, only
+ * weakly and is cached by its class loader for as long as the class loader is
+ * reachable. Method handles are cached by each resolved recorder class, and
+ * failed resolutions are cached as well so that a missing class is looked up
+ * only once.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public final class RecorderBridge {
+
+
+    private static final String LOG_RECORDER_NAME
+        = "com.github.jinahya.logback.core.LogRecorder";
+
+
+    private static final String I_LOGGING_EVENT_RECORDER_NAME
+        = "com.github.jinahya.logback.core.ILoggingEventRecorder";
+
+
+    private static final String LOGBACK_LOGGER_NAME
+        = "ch.qos.logback.classic.Logger";
+
+
+    private static final String SLF4J_LOGGER_NAME = "org.slf4j.Logger";
+
+
+    private static final String LAYOUT_NAME = "ch.qos.logback.core.Layout";
+
+
+    private static final int LOG_RECORDER_RESOLUTION = 0;
+
+
+    private static final int EVENT_RECORDER_RESOLUTION = 1;
+
+
+    private static final int RECORDER = 0;
+
+
+    private static final int LOGBACK_LOGGER = 1;
+
+
+    private static final int SLF4J_LOGGER = 2;
+
+
+    private static final int LAYOUT = 3;
+
+
+    private static final int START_WITH_LOGBACK_LOGGER = 0;
+
+
+    private static final int START_WITH_SLF4J_LOGGER = 1;
+
+
+    private static final int FINISH = 2;
+
+
+    private static final int FINISH_WITH_LIST = 3;
+
+
+    private static final int FINISH_WITH_LAYOUT_AND_APPENDABLE = 4;
+
+
+    private static final int FINISH_WITH_PATTERN_AND_APPENDABLE = 5;
+
+
+    /**
+     * The types and the handles resolved for a recorder class, or the failure
+     * of resolving them.
+     */
+    private static final class Handles {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param types the types.
+         * @param handles the handles.
+         * @param failure the failure; {@code null} if resolved.
+         */
+        Handles(final Class<?>[] types, final MethodHandle[] handles,
+                final ReflectiveOperationException failure) {
+
+            super();
+
+            this.types = types;
+            this.handles = handles;
+            this.failure = failure;
+        }
+
+
+        /**
+         * Throws the failure, if any.
+         *
+         * @return this instance.
+         *
+         * @throws ReflectiveOperationException if failed to resolve.
+         */
+        Handles resolved() throws ReflectiveOperationException {
+
+            if (failure != null) {
+                throw new ReflectiveOperationException(
+                    "failed to resolve: " + failure.getMessage(), failure);
+            }
+
+            return this;
+        }
+
+
+        /**
+         * the recorder class, the logback logger class, the slf4j logger class
+         * and the layout class as seen by the recorder class.
+         */
+        private final Class<?>[] types;
+
+
+        /**
+         * the handles.
+         */
+        private final MethodHandle[] handles;
+
+
+        /**
+         * the failure.
+         */
+        private final ReflectiveOperationException failure;
+
+
+    }
+
+
+    private static MethodHandle bind(final Class<?> type, final String name,
+                                     final MethodType exact,
+                                     final MethodType erased)
+        throws ReflectiveOperationException {
+
+        return publicLookup().findStatic(type, name, exact).asType(erased);
+    }
+
+
+    private static Handles resolve(final Class<?> recorder)
+        throws ReflectiveOperationException {
+
+        final ClassLoader loader = recorder.getClassLoader();
+        final Class<?>[] types = new Class<?>[]{
+            recorder,
+            Class.forName(LOGBACK_LOGGER_NAME, false, loader),
+            Class.forName(SLF4J_LOGGER_NAME, false, loader),
+            Class.forName(LAYOUT_NAME, false, loader)
+        };
+
+        if (LOG_RECORDER_NAME.equals(recorder.getName())) {
+            final MethodType start = methodType(
+                Object.class, Object.class, String.class, Charset.class,
+                Integer.TYPE);
+            return new Handles(types, new MethodHandle[]{
+                bind(recorder, "start", methodType(
+                     recorder, types[LOGBACK_LOGGER], String.class,
+                     Charset.class, Integer.TYPE), start),
+                bind(recorder, "start", methodType(
+                     recorder, types[SLF4J_LOGGER], String.class,
+                     Charset.class, Integer.TYPE), start),
+                bind(recorder, "finish", methodType(String.class, recorder),
+                     methodType(String.class, Object.class))
+            }, null);
+        }
+
+        final MethodType start
+            = methodType(Object.class, Object.class, Integer.TYPE);
+        final MethodType finishWithAnd = methodType(
+            Object.class, Object.class, Object.class, Object.class);
+        return new Handles(types, new MethodHandle[]{
+            bind(recorder, "start", methodType(
+                 recorder, types[LOGBACK_LOGGER], Integer.TYPE), start),
+            bind(recorder, "start", methodType(
+                 recorder, types[SLF4J_LOGGER], Integer.TYPE), start),
+            bind(recorder, "finish", methodType(List.class, recorder),
+                 methodType(Object.class, Object.class)),
+            bind(recorder, "finish",
+                 methodType(List.class, recorder, List.class),
+                 methodType(Object.class, Object.class, Object.class)),
+            bind(recorder, "finish", methodType(
+                 Appendable.class, recorder, types[LAYOUT], Appendable.class),
+                 finishWithAnd),
+            bind(recorder, "finish", methodType(
+                 Appendable.class, recorder, String.class, Appendable.class),
+                 finishWithAnd)
+        }, null);
+    }
+
+
+    private static void check(final Class<?> type, final Object argument,
+                              final String name) {
+
+        if (argument != null && !type.isInstance(argument)) {
+            throw new IllegalArgumentException(
+                name + "(" + argument + ") is not an instance of " + type);
+        }
+    }
+
+
+    /**
+     * Returns the bridge of specified class loader.
+     *
+     * @param loader the class loader
+     *
+     * @return the bridge of the class loader.
+     */
+    public static RecorderBridge of(final ClassLoader loader) {
+
+        if (loader == null) {
+            throw new NullPointerException("null loader");
+        }
+
+        synchronized (BRIDGES) {
+            RecorderBridge bridge = BRIDGES.get(loader);
+            if (bridge == null) {
+                bridge = new RecorderBridge(loader);
+                BRIDGES.put(loader, bridge);
+            }
+            return bridge;
+        }
+    }
+
+
+    /**
+     * Invokes
+     * {@link LogRecorder#start(ch.qos.logback.classic.Logger, java.lang.String, java.nio.charset.Charset, int)}
+     * or
+     * {@link LogRecorder#start(org.slf4j.Logger, java.lang.String, java.nio.charset.Charset, int)}
+     * depending on the type of specified logger.
+     *
+     * @param logger the logger
+     * @param pattern the pattern
+     * @param charset the charset
+     * @param limit the limit
+     *
+     * @return a {@link LogRecorder} instance.
+     *
+     * @throws ReflectiveOperationException if a reflective operation error
+     * occurs.
+     */
+    public Object startLogRecorder(final Object logger, final String pattern,
+                                   final Charset charset, final int limit)
+        throws ReflectiveOperationException {
+
+        final Handles handles
+            = handles(LOG_RECORDER_NAME, LOG_RECORDER_RESOLUTION);
+        final MethodHandle handle = start(handles, logger);
+        try {
+            return (Object) handle.invokeExact(logger, pattern, charset, limit);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+
+    /**
+     * Invokes {@link LogRecorder#finish(LogRecorder)}.
+     *
+     * @param recorder the recorder to finish.
+     *
+     * @return buffered log records.
+     *
+     * @throws ReflectiveOperationException if a reflective operation error
+     * occurs.
+     */
+    public String finishLogRecorder(final Object recorder)
+        throws ReflectiveOperationException {
+
+        final Handles handles
+            = handles(LOG_RECORDER_NAME, LOG_RECORDER_RESOLUTION);
+        check(handles.types[RECORDER], recorder, "recorder");
+        try {
+            return (String) handles.handles[FINISH].invokeExact(recorder);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+
+    /**
+     * Invokes
+     * {@link ILoggingEventRecorder#start(ch.qos.logback.classic.Logger, int)}
+     * or {@link ILoggingEventRecorder#start(org.slf4j.Logger, int)} depending
+     * on the type of specified logger.
+     *
+     * @param logger the logger
+     * @param maxSize the maximum number of events.
+     *
+     * @return an {@link ILoggingEventRecorder} instance.
+     *
+     * @throws ReflectiveOperationException if a reflective operation error
+     * occurs.
+     */
+    public Object startEventRecorder(final Object logger, final int maxSize)
+        throws ReflectiveOperationException {
+
+        final Handles handles = handles(
+            I_LOGGING_EVENT_RECORDER_NAME, EVENT_RECORDER_RESOLUTION);
+        final MethodHandle handle = start(handles, logger);
+        try {
+            return (Object) handle.invokeExact(logger, maxSize);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+
+    /**
+     * Invokes {@link ILoggingEventRecorder#finish(ILoggingEventRecorder)}.
+     *
+     * @param recorder the recorder to finish.
+     *
+     * @return a list of recorded events.
+     *
+     * @throws ReflectiveOperationException if a reflective operation error
+     * occurs.
+     */
+    public Object finishEventRecorder(final Object recorder)
+        throws ReflectiveOperationException {
+
+        final Handles handles = handles(
+            I_LOGGING_EVENT_RECORDER_NAME, EVENT_RECORDER_RESOLUTION);
+        check(handles.types[RECORDER], recorder, "recorder");
+        try {
+            return (Object) handles.handles[FINISH].invokeExact(recorder);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+
+    /**
+     * Invokes
+     * {@link ILoggingEventRecorder#finish(ILoggingEventRecorder, java.util.List)}.
+     *
+     * @param recorder the recorder to finish.
+     * @param list the list to which recorded events are added.
+     *
+     * @return given list.
+     *
+     * @throws ReflectiveOperationException if a reflective operation error
+     * occurs.
+     */
+    public Object finishEventRecorderWithList(final Object recorder,
+                                              final Object list)
+        throws ReflectiveOperationException {
+
+        final Handles handles = handles(
+            I_LOGGING_EVENT_RECORDER_NAME, EVENT_RECORDER_RESOLUTION);
+        check(handles.types[RECORDER], recorder, "recorder");
+        check(List.class, list, "list");
+        try {
+            return (Object) handles.handles[FINISH_WITH_LIST].invokeExact(
+                recorder, list);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+
+    /**
+     * Invokes
+     * {@link ILoggingEventRecorder#finish(ILoggingEventRecorder, ch.qos.logback.core.Layout, java.lang.Appendable)}.
+     *
+     * @param recorder the recorder to finish.
+     * @param layout the layout
+     * @param appendable the appendable to append rendered events.
+     *
+     * @return given appendable.
+     *
+     * @throws ReflectiveOperationException if a reflective operation error
+     * occurs.
+     */
+    public Object finishEventRecorderWithLayoutAndAppendable(
+        final Object recorder, final Object layout, final Object appendable)
+        throws ReflectiveOperationException {
+
+        final Handles handles = handles(
+            I_LOGGING_EVENT_RECORDER_NAME, EVENT_RECORDER_RESOLUTION);
+        check(handles.types[RECORDER], recorder, "recorder");
+        check(handles.types[LAYOUT], layout, "layout");
+        check(Appendable.class, appendable, "appendable");
+        try {
+            return (Object) handles.handles[FINISH_WITH_LAYOUT_AND_APPENDABLE]
+                .invokeExact(recorder, layout, appendable);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+
+    /**
+     * Invokes
+     * {@link ILoggingEventRecorder#finish(ILoggingEventRecorder, java.lang.String, java.lang.Appendable)}.
+     *
+     * @param recorder the recorder to finish.
+     * @param pattern the pattern
+     * @param appendable the appendable to append rendered events.
+     *
+     * @return given appendable.
+     *
+     * @throws ReflectiveOperationException if a reflective operation error
+     * occurs.
+     */
+    public Object finishEventRecorderWithPatternAndAppendable(
+        final Object recorder, final String pattern, final Object appendable)
+        throws ReflectiveOperationException {
+
+        final Handles handles = handles(
+            I_LOGGING_EVENT_RECORDER_NAME, EVENT_RECORDER_RESOLUTION);
+        check(handles.types[RECORDER], recorder, "recorder");
+        check(Appendable.class, appendable, "appendable");
+        try {
+            return (Object) handles.handles[FINISH_WITH_PATTERN_AND_APPENDABLE]
+                .invokeExact(recorder, (Object) pattern, appendable);
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+
+    /**
+     * Returns the class loader of this bridge.
+     *
+     * @return the class loader; {@code null} if already collected.
+     */
+    public ClassLoader getClassLoader() {
+
+        return loader.get();
+    }
+
+
+    private RecorderBridge(final ClassLoader loader) {
+
+        super();
+
+        this.loader = new WeakReference<>(loader);
+    }
+
+
+    /**
+     * Returns the handles of the recorder class of specified name, resolving
+     * the class on the first invocation.
+     *
+     * @param name the name of the recorder class.
+     * @param index the index of the resolution of the recorder class.
+     *
+     * @return the handles.
+     *
+     * @throws ReflectiveOperationException if failed to resolve.
+     */
+    private Handles handles(final String name, final int index)
+        throws ReflectiveOperationException {
+
+        Object resolution = resolutions.get(index);
+        if (resolution == null) {
+            final ClassLoader loader = this.loader.get();
+            if (loader == null) {
+                throw new IllegalStateException("class loader collected");
+            }
+            try {
+                resolution = new WeakReference<Class<?>>(
+                    Class.forName(name, false, loader));
+            } catch (final ClassNotFoundException cnfe) {
+                resolution = cnfe;
+            }
+            if (!resolutions.compareAndSet(index, null, resolution)) {
+                resolution = resolutions.get(index);
+            }
+        }
+
+        if (resolution instanceof ClassNotFoundException) {
+            throw new ClassNotFoundException(
+                name, (ClassNotFoundException) resolution);
+        }
+
+        @SuppressWarnings("unchecked") // only classes are referenced
+        final Class<?> recorder
+            = ((WeakReference<Class<?>>) resolution).get();
+        if (recorder == null) {
+            throw new IllegalStateException("class loader collected");
+        }
+
+        return HANDLES.get(recorder).resolved();
+    }
+
+
+    /**
+     * Returns the handle of {@code start} for the type of specified logger.
+     *
+     * @param handles the handles.
+     * @param logger the logger
+     *
+     * @return the handle of {@code start}.
+     */
+    private static MethodHandle start(final Handles handles,
+                                      final Object logger) {
+
+        if (handles.types[LOGBACK_LOGGER].isInstance(logger)) {
+            return handles.handles[START_WITH_LOGBACK_LOGGER];
+        }
+
+        if (handles.types[SLF4J_LOGGER].isInstance(logger)) {
+            return handles.handles[START_WITH_SLF4J_LOGGER];
+        }
+
+        if (logger == null) {
+            throw new NullPointerException("null logger");
+        }
+
+        throw new IllegalArgumentException("unknown logger type: " + logger);
+    }
+
+
+    /**
+     * the bridges of class loaders.
+     */
+    private static final Map<ClassLoader, RecorderBridge> BRIDGES
+        = new WeakHashMap<>();
+
+
+    /**
+     * the handles of recorder classes.
+     */
+    private static final ClassValue<Handles> HANDLES
+        = new ClassValue<Handles>() {
+
+
+            @Override
+            protected Handles computeValue(final Class<?> type) {
+
+                try {
+                    return resolve(type);
+                } catch (final ReflectiveOperationException roe) {
+                    return new Handles(null, null, roe);
+                }
+            }
+
+
+        };
+
+
+    /**
+     * the class loader.
+     */
+    private final WeakReference<ClassLoader> loader;
+
+
+    /**
+     * the weakly referenced recorder classes, or failures to load them, of
+     * the log recorder and the logging event recorder.
+     */
+    private final AtomicReferenceArray<Object> resolutions
+        = new AtomicReferenceArray<>(2);
+
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import static java.lang.invoke.MethodHandles.lookup;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.slf4j.LoggerFactory.getLogger;
+
+
+/**
+ * Cleans up recorders which became unreachable without being closed. Each
+ * started recorder is tracked by a phantom reference with a cleanup action
+ * which holds everything to stop but the recorder itself. Enqueued references
+ * are expunged whenever a recorder starts or stops and whenever a dispatcher
+ * is looked up or stopped, so no finalizer or extra thread is involved and
+ * dispatching events stays free of the reference queue.
+ * <p>
+ * Leak reporting, which is off by default, logs a warning, with the stack
+ * trace of where it started, for each recorder cleaned up this way. It can be
+ * turned on with the {@value #LEAK_REPORTING_PROPERTY} system property or
+ * with {@link #setLeakReporting(boolean)}.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public final class RecorderCleaner {
+
+
+    /**
+     * The name of the system property turning leak reporting on.
+     */
+    public static final String LEAK_REPORTING_PROPERTY
+        = RecorderCleaner.class.getName() + ".leakReporting";
+
+
+    /**
+     * A registration of a recorder.
+     */
+    static final class Cleanup extends PhantomReference<Object> {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param recorder the recorder
+         * @param action the cleanup action.
+         * @param origin where the recorder started; may be {@code null}.
+         */
+        private Cleanup(final Object recorder, final Runnable action,
+                        final Throwable origin) {
+
+            super(recorder, QUEUE);
+
+            this.action = action;
+            this.origin = origin;
+        }
+
+
+        /**
+         * Runs the cleanup action unless already run.
+         */
+        void clean() {
+
+            if (cleaned.compareAndSet(false, true)) {
+                CLEANUPS.remove(this);
+                clear();
+                action.run();
+            }
+        }
+
+
+        /**
+         * the cleanup action.
+         */
+        private final Runnable action;
+
+
+        /**
+         * where the recorder started.
+         */
+        private final Throwable origin;
+
+
+        /**
+         * the flag for cleaned.
+         */
+        private final AtomicBoolean cleaned = new AtomicBoolean();
+
+
+    }
+
+
+    /**
+     * Registers specified recorder with specified cleanup action. The action
+     * must not refer the recorder.
+     *
+     * @param recorder the recorder
+     * @param action the cleanup action.
+     *
+     * @return a cleanup whose {@link Cleanup#clean()} should be invoked when
+     * the recorder stops.
+     */
+    static Cleanup register(final Object recorder, final Runnable action) {
+
+        if (recorder == null) {
+            throw new NullPointerException("null recorder");
+        }
+
+        if (action == null) {
+            throw new NullPointerException("null action");
+        }
+
+        expunge();
+
+        final Cleanup cleanup = new Cleanup(
+            recorder, action,
+            leakReporting ? new Throwable("recorder started") : null);
+        CLEANUPS.put(cleanup, Boolean.TRUE);
+
+        return cleanup;
+    }
+
+
+    /**
+     * Cleans up recorders became unreachable without being closed.
+     *
+     * @return the number of recorders cleaned up.
+     */
+    static int expunge() {
+
+        int count = 0;
+        for (Reference<?> reference; (reference = QUEUE.poll()) != null;) {
+            final Cleanup cleanup = (Cleanup) reference;
+            if (cleanup.origin != null) {
+                LOGGER.warn("recorder not closed", cleanup.origin);
+            }
+            try {
+                cleanup.clean();
+            } catch (final RuntimeException re) {
+                LOGGER.error("failed to clean up a recorder", re);
+            }
+            count++;
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Returns whether leak reporting is on.
+     *
+     * @return {@code true} if leak reporting is on; {@code false} otherwise.
+     */
+    public static boolean isLeakReporting() {
+
+        return leakReporting;
+    }
+
+
+    /**
+     * Turns leak reporting on or off. Only recorders started while on are
+     * reported.
+     *
+     * @param leakReporting {@code true} for on; {@code false} for off.
+     */
+    public static void setLeakReporting(final boolean leakReporting) {
+
+        RecorderCleaner.leakReporting = leakReporting;
+    }
+
+
+    private RecorderCleaner() {
+
+        super();
+    }
+
+
+    private static final org.slf4j.Logger LOGGER
+        = getLogger(lookup().lookupClass());
+
+
+    /**
+     * the queue of unreachable recorders.
+     */
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+
+    /**
+     * the pending cleanups; keeps the references reachable.
+     */
+    private static final Map<Cleanup, Boolean> CLEANUPS
+        = new ConcurrentHashMap<>();
+
+
+    /**
+     * the flag for leak reporting.
+     */
+    private static volatile boolean leakReporting
+        = Boolean.getBoolean(LEAK_REPORTING_PROPERTY);
+
+
+}
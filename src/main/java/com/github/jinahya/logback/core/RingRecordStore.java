@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+
+/**
+ * A record store holds records in a single circular byte arena. The live
+ * window is read with at most two contiguous copies and streamed records are
+ * written directly into the arena so that no allocation takes place in steady
+ * state.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class RingRecordStore extends ArenaRecordStore {
+
+
+    /**
+     * The initial size of the arena when started without a limit.
+     */
+    static final int INITIAL_ARENA_SIZE = 8192;
+
+
+    @Override
+    public void start(final long limit) {
+
+        if (limit > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "limit(" + limit + ") > " + Integer.MAX_VALUE);
+        }
+
+        arena = new byte[limit < 0L ? INITIAL_ARENA_SIZE : (int) limit];
+
+        super.start(limit);
+    }
+
+
+    /**
+     * {@inheritDoc} This method writes directly from the arena.
+     *
+     * @param position {@inheritDoc}
+     * @param length {@inheritDoc}
+     * @param output {@inheritDoc}
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    protected void write(final long position, final long length,
+                         final OutputStream output)
+        throws IOException {
+
+        final byte[] arena = this.arena;
+
+        final int first = (int) Math.min(length, arena.length - position);
+        output.write(arena, (int) position, first);
+        if (first < length) {
+            output.write(arena, 0, (int) length - first);
+        }
+    }
+
+
+    @Override
+    protected long capacity() {
+
+        return arena.length;
+    }
+
+
+    @Override
+    protected void ensureCapacity(final long required) {
+
+        if (limit >= 0L || required <= arena.length) {
+            return;
+        }
+
+        if (required > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("arena too large");
+        }
+
+        int size = Math.max(arena.length, 1);
+        while (size < required) {
+            size = size > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : size * 2;
+        }
+
+        final byte[] grown = new byte[size];
+        get(start(), grown, 0, (int) held()); // including the current record
+        arena = grown;
+        relocated();
+    }
+
+
+    /**
+     * Shrinks the arena, if grown without a limit, once it holds no more than
+     * a quarter of its capacity. The new arena is the smallest power of two,
+     * not less than the initial size, holding twice the bytes held.
+     */
+    void trim() {
+
+        if (limit >= 0L || arena.length <= INITIAL_ARENA_SIZE
+            || held() > arena.length / 4) {
+            return;
+        }
+
+        int size = INITIAL_ARENA_SIZE;
+        while (size < held() * 2L) {
+            size *= 2;
+        }
+
+        final byte[] trimmed = new byte[size];
+        get(start(), trimmed, 0, (int) held());
+        arena = trimmed;
+        relocated();
+    }
+
+
+    @Override
+    protected void transfer(final long position, final int length,
+                            final RecordStore target) {
+
+        final int first = Math.min(length, arena.length - (int) position);
+        target.append(arena, (int) position, first);
+        if (first < length) {
+            target.append(arena, 0, length - first);
+        }
+    }
+
+
+    @Override
+    protected ByteBuffer[] views(final long position, final long length) {
+
+        final int first = (int) Math.min(length, arena.length - position);
+        if (first == length) {
+            return new ByteBuffer[]{
+                ByteBuffer.wrap(arena, (int) position, first)};
+        }
+
+        return new ByteBuffer[]{
+            ByteBuffer.wrap(arena, (int) position, first),
+            ByteBuffer.wrap(arena, 0, (int) length - first)};
+    }
+
+
+    @Override
+    protected void put(final long position, final byte[] bytes,
+                       final int offset, final int length) {
+
+        final int first = Math.min(length, arena.length - (int) position);
+        System.arraycopy(bytes, offset, arena, (int) position, first);
+        System.arraycopy(bytes, offset + first, arena, 0, length - first);
+    }
+
+
+    @Override
+    protected void get(final long position, final byte[] bytes,
+                       final int offset, final int length) {
+
+        final int first = Math.min(length, arena.length - (int) position);
+        System.arraycopy(arena, (int) position, bytes, offset, first);
+        System.arraycopy(arena, 0, bytes, offset + first, length - first);
+    }
+
+
+    /**
+     * the circular arena.
+     */
+    private byte[] arena;
+
+
+}
@@ -0,0 +1,678 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A record store spreads records over a number of independently locked
+ * stripes chosen by the adding thread, so that threads on different stripes
+ * never contend. Each record is stored with a header, counted in the limit, of
+ * its timestamp, a global sequence number and its length. The limit bounds all
+ * stripes together through a shared count of held bytes; while exceeded, the
+ * adding thread evicts the oldest records of its own stripe if the stripe
+ * holds more than its share of the limit, and otherwise the oldest record at
+ * the head of any stripe, so that a busy stripe may use most of the limit
+ * while threads rarely lock stripes other than their own. Readers merge the
+ * stripes by timestamp and sequence so that the output looks like a single
+ * chronological log.
+ * <p>
+ * Each stripe is an unbounded {@link RingRecordStore} whose arena grows as
+ * required and shrinks once evictions leave it mostly empty, so that the
+ * arenas together stay proportional to the limit. Each stripe also keeps the sequence numbers of
+ * its records, which are ascending, so that readers seek each stripe to the
+ * first record to read by a binary search. Readers walk each stripe with its
+ * own cursor, copying a chunk of records at a time while holding the lock of
+ * the stripe.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class StripedRecordStore extends RecordStore {
+
+
+    /**
+     * The number of bytes of each record header.
+     */
+    static final int HEADER_SIZE = 20;
+
+
+    /**
+     * The number of bytes copied from a stripe at a time while merging.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+
+    /**
+     * The initial size of the sequence index of each stripe.
+     */
+    static final int INITIAL_INDEX_SIZE = 64;
+
+
+    /**
+     * A stripe.
+     */
+    private static class Stripe {
+
+
+        /**
+         * Adds a record. The sequence number is taken while holding the lock
+         * so that a record is in its stripe once its number is taken.
+         *
+         * @param timestamp the timestamp
+         * @param sequence the global sequence
+         * @param held the number of bytes held by all stripes.
+         * @param record the array containing the record.
+         * @param offset the offset of the record.
+         * @param length the length of the record.
+         */
+        synchronized void add(final long timestamp, final AtomicLong sequence,
+                              final AtomicLong held, final byte[] record,
+                              final int offset, final int length) {
+
+            final long number = sequence.getAndIncrement();
+
+            putLong(timestamp, 0);
+            putLong(number, 8);
+            for (int i = 0; i < 4; i++) {
+                header[16 + i] = (byte) (length >> ((3 - i) * 8));
+            }
+
+            store.begin();
+            store.append(header, 0, HEADER_SIZE);
+            store.append(record, offset, length);
+            store.commit();
+
+            if (count == numbers.length) {
+                final long[] grown = new long[numbers.length * 2];
+                for (int i = 0; i < count; i++) {
+                    grown[i] = numbers[(head + i) % numbers.length];
+                }
+                numbers = grown;
+                head = 0;
+            }
+            numbers[(head + count) % numbers.length] = number;
+            if (count++ == 0) {
+                first = number;
+            }
+            held.addAndGet(HEADER_SIZE + (long) length);
+        }
+
+
+        /**
+         * Evicts the oldest records of this stripe while all stripes together
+         * hold more than specified limit and this stripe holds more than
+         * specified share, keeping at least specified number of records.
+         *
+         * @param held the number of bytes held by all stripes.
+         * @param limit the limit.
+         * @param share the number of bytes this stripe may keep.
+         * @param keep the number of records to keep.
+         */
+        synchronized void evict(final AtomicLong held, final long limit,
+                                final long share, final int keep) {
+
+            if (held.get() <= limit) {
+                return;
+            }
+
+            while (held.get() > limit && count > keep
+                   && store.getLength() > share) {
+                held.addAndGet(-store.evictFirst());
+                head = (head + 1) % numbers.length;
+                first = --count == 0 ? Long.MAX_VALUE : numbers[head];
+            }
+
+            store.trim();
+        }
+
+
+        /**
+         * Removes all records of this stripe.
+         *
+         * @param held the number of bytes held by all stripes.
+         */
+        synchronized void clear(final AtomicLong held) {
+
+            held.addAndGet(-store.getLength());
+            store.clear();
+            store.trim();
+            head = 0;
+            count = 0;
+            first = Long.MAX_VALUE;
+        }
+
+
+        /**
+         * Returns the position, in the store of this stripe, of the first
+         * record numbered at or after specified sequence number.
+         *
+         * @param from the sequence number.
+         *
+         * @return the local sequence number of the first record to read.
+         */
+        synchronized long seek(final long from) {
+
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (numbers[(head + middle) % numbers.length] < from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return store.getSequence() - count + low;
+        }
+
+
+        /**
+         * Reads a chunk of records including their headers.
+         *
+         * @param cursor the cursor of this stripe.
+         * @param output the output stream.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        synchronized void read(final RecordCursor cursor,
+                               final OutputStream output)
+            throws IOException {
+
+            store.read(cursor, output, CHUNK_SIZE);
+        }
+
+
+        private void putLong(final long value, final int offset) {
+
+            for (int i = 0; i < 8; i++) {
+                header[offset + i] = (byte) (value >> ((7 - i) * 8));
+            }
+        }
+
+
+        /**
+         * the store.
+         */
+        private final RingRecordStore store = new RingRecordStore();
+
+
+        /**
+         * the header array.
+         */
+        private final byte[] header = new byte[HEADER_SIZE];
+
+
+        /**
+         * the circular index of sequence numbers of records.
+         */
+        private long[] numbers = new long[INITIAL_INDEX_SIZE];
+
+
+        /**
+         * the index of the oldest record in {@link #numbers}.
+         */
+        private int head;
+
+
+        /**
+         * the number of records.
+         */
+        private int count;
+
+
+        /**
+         * the sequence number of the oldest record; {@link Long#MAX_VALUE} if
+         * empty.
+         */
+        private volatile long first = Long.MAX_VALUE;
+
+
+    }
+
+
+    /**
+     * A chunk of records copied from a stripe.
+     */
+    private static class Chunk extends ByteArrayOutputStream {
+
+
+        /**
+         * Creates a new instance.
+         */
+        Chunk() {
+
+            super(CHUNK_SIZE);
+        }
+
+
+        /**
+         * Returns the internal array.
+         *
+         * @return the internal array.
+         */
+        byte[] buffer() {
+
+            return buf;
+        }
+
+
+    }
+
+
+    /**
+     * A cursor over the records of a stripe.
+     */
+    private static class Cursor implements Comparable<Cursor> {
+
+
+        /**
+         * Creates a new instance.
+         *
+         * @param stripe the stripe.
+         * @param local the local sequence number of the first record to read.
+         */
+        Cursor(final Stripe stripe, final long local) {
+
+            super();
+
+            this.stripe = stripe;
+            this.local = new RecordCursor(local);
+        }
+
+
+        /**
+         * Moves to the next record copying the next chunk of the stripe as
+         * required.
+         *
+         * @return {@code true} if moved; {@code false} if no more records.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        boolean next() throws IOException {
+
+            position += HEADER_SIZE + length;
+            if (position >= chunk.size()) {
+                chunk.reset();
+                stripe.read(local, chunk);
+                position = 0;
+                length = 0;
+                if (chunk.size() == 0) {
+                    return false;
+                }
+            }
+
+            final byte[] bytes = chunk.buffer();
+            timestamp = getLong(bytes, position);
+            sequence = getLong(bytes, position + 8);
+            length = 0;
+            for (int i = 0; i < 4; i++) {
+                length = (length << 8) | (bytes[position + 16 + i] & 0xFF);
+            }
+
+            return true;
+        }
+
+
+        /**
+         * Writes the current record to specified output stream.
+         *
+         * @param output the output stream.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        void write(final OutputStream output) throws IOException {
+
+            output.write(chunk.buffer(), position + HEADER_SIZE, length);
+        }
+
+
+        @Override
+        public int compareTo(final Cursor o) {
+
+            if (timestamp != o.timestamp) {
+                return timestamp < o.timestamp ? -1 : 1;
+            }
+
+            return sequence < o.sequence ? -1
+                   : (sequence == o.sequence ? 0 : 1);
+        }
+
+
+        /**
+         * the stripe.
+         */
+        private final Stripe stripe;
+
+
+        /**
+         * the cursor within the stripe.
+         */
+        private final RecordCursor local;
+
+
+        /**
+         * the current chunk.
+         */
+        private final Chunk chunk = new Chunk();
+
+
+        /**
+         * the position of the current record header in the chunk.
+         */
+        private int position = -HEADER_SIZE;
+
+
+        /**
+         * the timestamp of the current record.
+         */
+        private long timestamp;
+
+
+        /**
+         * the sequence of the current record.
+         */
+        private long sequence;
+
+
+        /**
+         * the length of the current record.
+         */
+        private int length;
+
+
+    }
+
+
+    private static long getLong(final byte[] bytes, final int offset) {
+
+        long value = 0L;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFFL);
+        }
+
+        return value;
+    }
+
+
+    @Override
+    public void start(final long limit) {
+
+        super.start(limit);
+
+        final int count = stripeCount > 0
+                          ? Integer.highestOneBit(stripeCount)
+                          : Integer.highestOneBit(
+                              Runtime.getRuntime().availableProcessors() * 2
+                              - 1);
+        stripes = new Stripe[count];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+            stripes[i].store.start(-1L);
+        }
+        sequence.set(0L);
+        held.set(0L);
+    }
+
+
+    /**
+     * {@inheritDoc} The current time is used as the timestamp.
+     *
+     * @param record {@inheritDoc}
+     * @param offset {@inheritDoc}
+     * @param length {@inheritDoc}
+     */
+    @Override
+    public void add(final byte[] record, final int offset, final int length) {
+
+        add(System.currentTimeMillis(), UNKNOWN_LEVEL, record, offset, length);
+    }
+
+
+    /**
+     * {@inheritDoc} While the stripes together hold more than the limit, the
+     * oldest records of the stripe of the current thread are evicted if it
+     * holds more than its share of the limit; otherwise the oldest record of
+     * any stripe is evicted.
+     *
+     * @param timestamp {@inheritDoc}
+     * @param level {@inheritDoc}
+     * @param record {@inheritDoc}
+     * @param offset {@inheritDoc}
+     * @param length {@inheritDoc}
+     */
+    @Override
+    public void add(final long timestamp, final int level,
+                    final byte[] record, final int offset, final int length) {
+
+        final Stripe stripe = stripes[
+            (int) Thread.currentThread().getId() & (stripes.length - 1)];
+
+        stripe.add(timestamp, sequence, held, record, offset, length);
+
+        if (limit < 0L || held.get() <= limit) {
+            return;
+        }
+
+        // the record just added is kept unless others can't make room
+        stripe.evict(held, limit, limit / stripes.length, 1);
+
+        while (held.get() > limit) {
+            Stripe oldest = null;
+            for (final Stripe candidate : stripes) {
+                if (candidate.first != Long.MAX_VALUE
+                    && (oldest == null || candidate.first < oldest.first)) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) { // emptied by others
+                break;
+            }
+            oldest.evict(held, limit, 0L, 0);
+        }
+    }
+
+
+    @Override
+    public boolean isConcurrent() {
+
+        return true;
+    }
+
+
+    @Override
+    public void clear() {
+
+        for (final Stripe stripe : stripes) {
+            stripe.clear(held);
+        }
+    }
+
+
+    /**
+     * {@inheritDoc} The length excludes record headers.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long getLength() {
+
+        long length = 0L;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                length += stripe.store.getLength()
+                          - (long) stripe.store.getCount() * HEADER_SIZE;
+            }
+        }
+
+        return length;
+    }
+
+
+    /**
+     * Returns the sum of the capacities of the arenas of the stripes.
+     *
+     * @return the sum of the capacities of the arenas.
+     */
+    long capacity() {
+
+        long capacity = 0L;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                capacity += stripe.store.capacity();
+            }
+        }
+
+        return capacity;
+    }
+
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+
+        merge(0L, Long.MAX_VALUE, output);
+    }
+
+
+    @Override
+    public long getSequence() {
+
+        return sequence.get();
+    }
+
+
+    /**
+     * {@inheritDoc} Each stripe is sought to its first record at or after the
+     * cursor, and records added after this method is invoked are not visited,
+     * so that the cost is proportional to the records written.
+     *
+     * @param cursor {@inheritDoc}
+     * @param output {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public long read(final RecordCursor cursor, final OutputStream output)
+        throws IOException {
+
+        // every record numbered below this is already in its stripe
+        final long next = sequence.get();
+
+        final long[] merged = merge(cursor.getSequence(), next, output);
+
+        cursor.advance(next, merged[1]);
+
+        return merged[0];
+    }
+
+
+    /**
+     * Merges records of the stripes numbered in specified range to specified
+     * output stream. Records evicted while merging are skipped.
+     *
+     * @param from the lowest sequence number, inclusive.
+     * @param to the highest sequence number, exclusive.
+     * @param output the output stream.
+     *
+     * @return the number of bytes and the number of records written.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private long[] merge(final long from, final long to,
+                         final OutputStream output)
+        throws IOException {
+
+        final PriorityQueue<Cursor> queue = new PriorityQueue<>(stripes.length);
+        for (final Stripe stripe : stripes) {
+            final Cursor cursor = new Cursor(stripe, stripe.seek(from));
+            if (cursor.next() && cursor.sequence < to) {
+                queue.add(cursor);
+            }
+        }
+
+        // numbers ascend within a stripe; a cursor past the range is dropped
+        final long[] merged = new long[2];
+        for (Cursor cursor; (cursor = queue.poll()) != null;) {
+            cursor.write(output);
+            merged[0] += cursor.length;
+            merged[1]++;
+            if (cursor.next() && cursor.sequence < to) {
+                queue.add(cursor);
+            }
+        }
+
+        return merged;
+    }
+
+
+    /**
+     * Returns the number of stripes.
+     *
+     * @return the number of stripes.
+     */
+    public int getStripeCount() {
+
+        return stripeCount;
+    }
+
+
+    /**
+     * Sets the number of stripes. The value is rounded down to a power of two
+     * and takes effect when this store is started.
+     *
+     * @param stripeCount the number of stripes; zero or negative for a value
+     * derived from the number of available processors.
+     */
+    public void setStripeCount(final int stripeCount) {
+
+        this.stripeCount = stripeCount;
+    }
+
+
+    /**
+     * the number of stripes.
+     */
+    private int stripeCount = 0;
+
+
+    /**
+     * the stripes.
+     */
+    private Stripe[] stripes;
+
+
+    /**
+     * the global sequence.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+
+    /**
+     * the number of bytes, including headers, held by all stripes.
+     */
+    private final AtomicLong held = new AtomicLong();
+
+
+}
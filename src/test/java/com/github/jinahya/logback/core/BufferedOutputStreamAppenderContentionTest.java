@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+
+/**
+ * Checks that {@link BufferedOutputStreamAppender} neither loses, duplicates
+ * nor tears records appended from multiple threads, in locked and concurrent
+ * modes. Throughput is measured by the {@code ContentionBenchmark} of the
+ * benchmarks module.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class BufferedOutputStreamAppenderContentionTest {
+
+
+    private static final int EVENTS_PER_THREAD = 500;
+
+
+    @DataProvider
+    private static Object[][] stores() {
+
+        return new Object[][]{
+            {"ring", 4}, {"ring", 16},
+            {"concurrent", 4}, {"concurrent", 16},
+            {"striped", 4}, {"striped", 16}
+        };
+    }
+
+
+    private static RecordStore store(final String name) {
+
+        switch (name) {
+            case "ring":
+                return new RingRecordStore();
+            case "concurrent":
+                return new ConcurrentRecordStore();
+            case "striped":
+                return new StripedRecordStore();
+            default:
+                throw new IllegalArgumentException("unknown store: " + name);
+        }
+    }
+
+
+    /**
+     * Appends {@value #EVENTS_PER_THREAD} events, each rendered as
+     * {@code <thread> <index>}, from each of specified number of threads and
+     * returns the dumped lines.
+     */
+    private String[] run(final String store, final int threads,
+                         final int limit)
+        throws Exception {
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        final RecordStore recordStore = store(store);
+        final BufferedOutputStreamAppender<ILoggingEvent> appender
+            = new BufferedOutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setLimit(limit);
+        appender.setStore(recordStore);
+        appender.setConcurrent(recordStore.isConcurrent());
+        appender.start();
+        assertTrue(appender.isStarted());
+
+        final ch.qos.logback.classic.Logger logger
+            = context.getLogger("contention");
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Future<?>[] futures = new Future<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures[t] = executor.submit(() -> {
+                latch.await();
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                    appender.doAppend(new LoggingEvent(
+                        getClass().getName(), logger, Level.INFO, "{} {}",
+                        null, new Object[]{thread, i}));
+                }
+                return null;
+            });
+        }
+        latch.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1L, TimeUnit.MINUTES));
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+
+        assertTrue(appender.getLength() <= limit);
+        final String dumped = appender.toString(StandardCharsets.UTF_8);
+        assertEquals(dumped.length(), appender.getLength());
+
+        appender.stop();
+        encoder.stop();
+
+        return dumped.isEmpty() ? new String[0] : dumped.split("\n");
+    }
+
+
+    @Test(dataProvider = "stores")
+    public void holdsEveryRecordOnce(final String store, final int threads)
+        throws Exception {
+
+        final String[] lines = run(store, threads, 1048576);
+        assertEquals(lines.length, threads * EVENTS_PER_THREAD);
+
+        final Set<String> distinct = new HashSet<>();
+        for (final String line : lines) {
+            assertTrue(distinct.add(line), "duplicate: " + line);
+        }
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                assertTrue(distinct.contains(t + " " + i), t + " " + i);
+            }
+        }
+    }
+
+
+    @Test(dataProvider = "stores")
+    public void evictsWholeRecordsInOrder(final String store,
+                                          final int threads)
+        throws Exception {
+
+        final String[] lines = run(store, threads, 4096);
+        assertTrue(lines.length > 0);
+
+        final int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (final String line : lines) {
+            final String[] split = line.split(" ");
+            assertEquals(split.length, 2, line);
+            final int thread = Integer.parseInt(split[0]);
+            final int index = Integer.parseInt(split[1]);
+            assertTrue(index > last[thread], "out of order: " + line);
+            last[thread] = index;
+        }
+    }
+
+
+    private final LoggerContext context = new LoggerContext();
+
+
+}
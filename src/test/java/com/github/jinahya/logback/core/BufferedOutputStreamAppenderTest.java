@@ -18,16 +18,28 @@
 package com.github.jinahya.logback.core;
 
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.classic.util.ContextSelectorStaticBinder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import static java.lang.invoke.MethodHandles.lookup;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import static java.util.concurrent.ThreadLocalRandom.current;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 
@@ -41,6 +53,33 @@ public class BufferedOutputStreamAppenderTest {
     @Test(enabled = true, invocationCount = 1)
     public void test() {
 
+        test(null, false);
+    }
+
+
+    @Test
+    public void testWithRingRecordStore() {
+
+        test(new RingRecordStore(), false);
+    }
+
+
+    @Test
+    public void testDirect() {
+
+        test(null, true);
+    }
+
+
+    @Test
+    public void testDirectWithRingRecordStore() {
+
+        test(new RingRecordStore(), true);
+    }
+
+
+    private void test(final RecordStore store, final boolean direct) {
+
         final LoggerContext context;
         switch (current().nextInt(3)) {
             case 0:
@@ -67,6 +106,8 @@ public class BufferedOutputStreamAppenderTest {
         appender.setContext(context);
         appender.setEncoder(encoder);
         appender.setLimit(100);
+        appender.setStore(store);
+        appender.setDirect(direct);
         appender.start();
 
         ((ch.qos.logback.classic.Logger) logger).addAppender(appender);
@@ -85,6 +126,200 @@ public class BufferedOutputStreamAppenderTest {
         encoder.stop();
 
         logger.debug("string: {}", appender.toString(encoder.getCharset()).replace("\n", "\\n"));
+
+        assertTrue(appender.getLength() <= 100);
+        assertTrue(appender.toString(encoder.getCharset()).endsWith("error: 4\n"));
+    }
+
+
+    @Test
+    public void toStringWithCompressedRecordStore() {
+
+        final LoggerContext context
+            = ((ch.qos.logback.classic.Logger) logger).getLoggerContext();
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        final CompressedRecordStore store = new CompressedRecordStore();
+        store.setBlockSize(64);
+
+        final BufferedOutputStreamAppender<ILoggingEvent> appender
+            = new BufferedOutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setLimit(-1);
+        appender.setStore(store);
+        appender.start();
+
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            final String message = "\ud55c\uae00 " + i;
+            appender.doAppend(new LoggingEvent(
+                getClass().getName(), (ch.qos.logback.classic.Logger) logger,
+                Level.INFO, message, null, null));
+            expected.append(message).append('\n');
+        }
+
+        appender.stop();
+        encoder.stop();
+
+        assertEquals(appender.toString(StandardCharsets.UTF_8),
+                     expected.toString());
+    }
+
+
+    @DataProvider
+    private static Object[][] stores() {
+
+        return new Object[][]{
+            {new ListRecordStore(), false},
+            {new RingRecordStore(), false},
+            {new RingRecordStore(), true},
+            {new LevelRecordStore(), false}
+        };
+    }
+
+
+    @DataProvider
+    private static Object[][] chunkedStores() {
+
+        return new Object[][]{
+            {new ListRecordStore(), false},
+            {new RingRecordStore(), false},
+            {new RingRecordStore(), true},
+            {new LevelRecordStore(), false},
+            {new CompressedRecordStore(), false}
+        };
+    }
+
+
+    /**
+     * Asserts that each line consists of a single repeated character.
+     */
+    private static void assertWhole(final byte[] bytes) {
+
+        assertTrue(bytes.length == 0 || bytes[bytes.length - 1] == '\n');
+        for (int start = 0, i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                for (int j = start; j < i; j++) {
+                    assertEquals(bytes[j], bytes[start]);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+
+    @Test(dataProvider = "stores")
+    public void readWhileAppending(final RecordStore store,
+                                   final boolean direct)
+        throws InterruptedException, IOException {
+
+        final LoggerContext context
+            = ((ch.qos.logback.classic.Logger) logger).getLoggerContext();
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        final BufferedOutputStreamAppender<ILoggingEvent> appender
+            = new BufferedOutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setLimit(4096);
+        appender.setStore(store);
+        appender.setDirect(direct);
+        appender.start();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    final char[] message = new char[current().nextInt(1, 64)];
+                    Arrays.fill(message, (char) ('a' + i % 26));
+                    appender.doAppend(new LoggingEvent(
+                        getClass().getName(),
+                        (ch.qos.logback.classic.Logger) logger, Level.INFO,
+                        new String(message), null, null));
+                }
+            });
+        }
+        executor.shutdown();
+
+        final RecordCursor cursor = new RecordCursor();
+        while (!executor.isTerminated()) {
+            assertWhole(appender.toByteArray());
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            appender.write(output);
+            assertWhole(output.toByteArray());
+            output.reset();
+            appender.read(cursor, output);
+            assertWhole(output.toByteArray());
+            output.reset();
+            appender.transferTo(Channels.newChannel(output));
+            assertWhole(output.toByteArray());
+        }
+        executor.awaitTermination(1L, TimeUnit.MINUTES);
+
+        appender.stop();
+        encoder.stop();
+
+        assertWhole(appender.toByteArray());
+        assertTrue(appender.getLength() <= 4096);
+        assertEquals(appender.getSequence(), 20000L);
+    }
+
+
+    @Test(dataProvider = "chunkedStores")
+    public void transferInChunks(final RecordStore store,
+                                 final boolean direct)
+        throws IOException {
+
+        final LoggerContext context
+            = ((ch.qos.logback.classic.Logger) logger).getLoggerContext();
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        final BufferedOutputStreamAppender<ILoggingEvent> appender
+            = new BufferedOutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setLimit(BufferedOutputStreamAppender.CHUNK_SIZE * 4);
+        appender.setStore(store);
+        appender.setDirect(direct);
+        appender.start();
+
+        for (int i = 0; i < 20000; i++) {
+            final char[] message = new char[current().nextInt(1, 64)];
+            Arrays.fill(message, (char) ('a' + i % 26));
+            appender.doAppend(new LoggingEvent(
+                getClass().getName(), (ch.qos.logback.classic.Logger) logger,
+                Level.INFO, new String(message), null, null));
+        }
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(appender.transferTo(Channels.newChannel(output)),
+                     appender.getLength());
+        assertEquals(output.toByteArray(), appender.toByteArray());
+
+        output.reset();
+        appender.write(output);
+        assertEquals(output.toByteArray(), appender.toByteArray());
+        assertEquals(appender.toString(StandardCharsets.UTF_8),
+                     new String(output.toByteArray(), StandardCharsets.UTF_8));
+
+        appender.stop();
+        encoder.stop();
     }
 
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import java.io.IOException;
+import java.util.List;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.slf4j.MDC;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class CapturePolicyTest {
+
+
+    @DataProvider
+    private static Object[][] compacts() {
+
+        return new Object[][]{{CapturePolicy.COMPACT}, {CapturePolicy.COLUMNAR}};
+    }
+
+
+    private List<ILoggingEvent> record(final CapturePolicy policy) {
+
+        final ILoggingEventRecorder recorder = ILoggingEventRecorder.start(
+            logger, 16, CaptureScope.THREAD, policy);
+        MDC.put("key", "value");
+        try {
+            logger.info("hello {}", "world", new RuntimeException("thrown"));
+        } finally {
+            MDC.remove("key");
+        }
+
+        return ILoggingEventRecorder.finish(recorder);
+    }
+
+
+    @Test
+    public void compact() {
+
+        final List<ILoggingEvent> events = record(CapturePolicy.COMPACT);
+        assertEquals(events.size(), 1);
+
+        final ILoggingEvent event = events.get(0);
+        assertTrue(event instanceof CompactLoggingEvent);
+        assertEquals(event.getLevel(), Level.INFO);
+        assertEquals(event.getFormattedMessage(), "hello world");
+        assertEquals(event.getLoggerName(), logger.getName());
+        assertEquals(event.getThreadName(), Thread.currentThread().getName());
+        assertTrue(event.getTimeStamp() > 0L);
+        assertNull(event.getArgumentArray());
+        assertNull(event.getThrowableProxy());
+        assertTrue(event.getMDCPropertyMap().isEmpty());
+        assertFalse(event.hasCallerData());
+    }
+
+
+    @Test
+    public void full() {
+
+        final List<ILoggingEvent> events = record(CapturePolicy.FULL);
+        assertEquals(events.size(), 1);
+
+        final ILoggingEvent event = events.get(0);
+        assertEquals(event.getFormattedMessage(), "hello world");
+        assertEquals(event.getMDCPropertyMap().get("key"), "value");
+        assertEquals(event.getThrowableProxy().getMessage(), "thrown");
+    }
+
+
+    @Test
+    public void columnar() {
+
+        final List<ILoggingEvent> events = record(CapturePolicy.COLUMNAR);
+        assertEquals(events.size(), 1);
+
+        final ILoggingEvent event = events.get(0);
+        assertEquals(event.getFormattedMessage(), "hello world");
+        assertEquals(event.getThreadName(), Thread.currentThread().getName());
+        assertEquals(event.getThrowableProxy().getMessage(), "thrown");
+        assertTrue(event.getMDCPropertyMap().isEmpty());
+    }
+
+
+    @Test(dataProvider = "compacts")
+    public void renderCompact(final CapturePolicy policy) throws IOException {
+
+        final ILoggingEventRecorder recorder = ILoggingEventRecorder.start(
+            logger, 16, CaptureScope.THREAD, policy);
+        logger.info("one");
+        logger.warn("two {}", 2);
+
+        final StringBuilder builder = ILoggingEventRecorder.finish(
+            recorder, "%level %logger [%thread] %class %mdc %message%n",
+            new StringBuilder());
+        final String thread = Thread.currentThread().getName();
+        assertEquals(builder.toString(),
+                     "INFO " + logger.getName() + " [" + thread + "] ?  one\n"
+                     + "WARN " + logger.getName() + " [" + thread
+                     + "] ?  two 2\n");
+    }
+
+
+    private transient final Logger logger
+        = (Logger) getLogger(CapturePolicyTest.class.getName() + ".p");
+
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Logger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class CaptureScopeTest {
+
+
+    private static void join(final Thread thread) throws InterruptedException {
+
+        thread.start();
+        thread.join();
+    }
+
+
+    private LogRecorder start(final CaptureScope scope) {
+
+        return LogRecorder.start(logger, "%message%n", StandardCharsets.UTF_8,
+                                 1024, scope);
+    }
+
+
+    @Test
+    public void all() throws InterruptedException {
+
+        final LogRecorder recorder = start(CaptureScope.ALL);
+        logger.info("main");
+        join(new Thread(() -> logger.info("other")));
+
+        assertEquals(LogRecorder.finish(recorder), "main\nother\n");
+    }
+
+
+    @Test
+    public void thread() throws InterruptedException {
+
+        final LogRecorder recorder = start(CaptureScope.THREAD);
+        logger.info("main");
+        join(new Thread(() -> logger.info("other")));
+
+        assertEquals(LogRecorder.finish(recorder), "main\n");
+    }
+
+
+    @Test
+    public void threadGroup() throws InterruptedException {
+
+        final LogRecorder recorder = start(CaptureScope.THREAD_GROUP);
+        join(new Thread(() -> logger.info("same")));
+        join(new Thread(new ThreadGroup("other"),
+                        () -> logger.info("other")));
+
+        assertEquals(LogRecorder.finish(recorder), "same\n");
+    }
+
+
+    @Test
+    public void context() throws Exception {
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+            }).get(); // created outside the context
+
+            final LogRecorder recorder = start(CaptureScope.CONTEXT);
+            join(new Thread(() -> {
+                logger.info("child");
+                final Thread grandchild
+                    = new Thread(() -> logger.info("grandchild"));
+                grandchild.start();
+                try {
+                    grandchild.join();
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            final Future<?> future = executor.submit(
+                () -> logger.info("pooled"));
+            future.get();
+
+            assertEquals(LogRecorder.finish(recorder), "child\ngrandchild\n");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    @Test
+    public void nestedContexts() throws InterruptedException {
+
+        final LogRecorder outer = start(CaptureScope.CONTEXT);
+        final LogRecorder inner = start(CaptureScope.CONTEXT);
+        join(new Thread(() -> logger.info("both")));
+        assertEquals(LogRecorder.finish(inner), "both\n");
+        join(new Thread(() -> logger.info("outer")));
+        assertEquals(LogRecorder.finish(outer), "both\nouter\n");
+
+        final LogRecorder after = start(CaptureScope.THREAD);
+        join(new Thread(() -> logger.info("none")));
+        assertEquals(LogRecorder.finish(after), "");
+    }
+
+
+    private transient final Logger logger
+        = (Logger) getLogger(CaptureScopeTest.class.getName() + ".s");
+
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class ColumnarEventAppenderTest {
+
+
+    private ColumnarEventAppender start(final int maxSize) {
+
+        final ColumnarEventAppender appender = new ColumnarEventAppender();
+        appender.setContext(context);
+        appender.setMaxSize(maxSize);
+        appender.start();
+
+        return appender;
+    }
+
+
+    private ILoggingEvent event(final Level level, final String message,
+                                final Throwable throwable,
+                                final Object... arguments) {
+
+        return new LoggingEvent(getClass().getName(), logger, level, message,
+                                throwable, arguments);
+    }
+
+
+    @Test
+    public void snapshot() {
+
+        final ColumnarEventAppender appender = start(3);
+        assertTrue(appender.snapshot().isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            appender.doAppend(event(Level.INFO, "message {}", null, i));
+        }
+        assertEquals(appender.getLength(), 3);
+
+        final List<ILoggingEvent> events = appender.snapshot();
+        assertEquals(events.size(), 3);
+        for (int i = 0; i < 3; i++) {
+            final ILoggingEvent event = events.get(i);
+            assertEquals(event.getFormattedMessage(), "message " + (i + 2));
+            assertEquals(event.getLevel(), Level.INFO);
+            assertEquals(event.getLoggerName(), logger.getName());
+            assertEquals(event.getThreadName(),
+                         Thread.currentThread().getName());
+        }
+
+        appender.doAppend(event(Level.ERROR, "later", null));
+        assertEquals(events.get(0).getFormattedMessage(), "message 2");
+    }
+
+
+    @Test
+    public void levelsAndThrowables() {
+
+        final ColumnarEventAppender appender = start(8);
+        final Level[] levels = {
+            Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR
+        };
+        for (final Level level : levels) {
+            appender.doAppend(event(level, "level", null));
+        }
+        appender.doAppend(event(Level.ERROR, "thrown",
+                                new IllegalStateException("failed")));
+
+        final List<ILoggingEvent> events = appender.snapshot();
+        for (int i = 0; i < levels.length; i++) {
+            assertEquals(events.get(i).getLevel(), levels[i]);
+            assertNull(events.get(i).getThrowableProxy());
+        }
+        assertEquals(events.get(5).getThrowableProxy().getMessage(), "failed");
+    }
+
+
+    @Test
+    public void arguments() {
+
+        final ColumnarEventAppender appender = start(8);
+        appender.doAppend(event(Level.INFO, "{} {} {}", null, null,
+                                new int[]{1, 2}, new Object[]{"a", 'b'}));
+
+        assertEquals(appender.snapshot().get(0).getFormattedMessage(),
+                     "null [1, 2] [a, b]");
+    }
+
+
+    @Test
+    public void templateLimit() {
+
+        final ColumnarEventAppender appender = new ColumnarEventAppender();
+        appender.setContext(context);
+        appender.setMaxSize(8);
+        appender.setTemplateLimit(1);
+        appender.start();
+
+        appender.doAppend(event(Level.INFO, "first {}", null, 1));
+        appender.doAppend(event(Level.INFO, "second {}", null, 2));
+        appender.doAppend(event(Level.INFO, "first {}", null, 3));
+
+        final List<ILoggingEvent> events = appender.snapshot();
+        assertEquals(events.get(0).getFormattedMessage(), "first 1");
+        assertEquals(events.get(1).getFormattedMessage(), "second 2");
+        assertEquals(events.get(2).getFormattedMessage(), "first 3");
+    }
+
+
+    @Test
+    public void argumentsPackedAcrossWraps() {
+
+        final ColumnarEventAppender appender = start(4);
+
+        for (int i = 0; i < 64; i++) {
+            final Object[] arguments = new Object[i % 24];
+            final StringBuilder template = new StringBuilder("m");
+            final StringBuilder expected = new StringBuilder("m");
+            for (int j = 0; j < arguments.length; j++) {
+                arguments[j] = i * 100 + j;
+                template.append(" {}");
+                expected.append(' ').append(i * 100 + j);
+            }
+            appender.doAppend(event(Level.INFO, template.toString(), null,
+                                    arguments));
+            if (i % 8 == 0) {
+                // another template in between
+                appender.doAppend(event(Level.INFO, "x" + i + " {}", null,
+                                        i));
+            }
+
+            final List<ILoggingEvent> events = appender.snapshot();
+            assertEquals(events.get(events.size() - (i % 8 == 0 ? 2 : 1))
+                .getFormattedMessage(), expected.toString());
+        }
+    }
+
+
+    @Test
+    public void namesRebuiltWhenFull() {
+
+        final ColumnarEventAppender appender = new ColumnarEventAppender();
+        appender.setContext(context);
+        appender.setMaxSize(2);
+        appender.setNameLimit(1);
+        appender.start();
+
+        for (int i = 0; i < 100; i++) {
+            final LoggingEvent event = new LoggingEvent(
+                getClass().getName(), context.getLogger("logger" + i),
+                Level.INFO, "message", null, null);
+            event.setThreadName("thread" + i);
+            appender.doAppend(event);
+        }
+
+        final List<ILoggingEvent> events = appender.snapshot();
+        assertEquals(events.size(), 2);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(events.get(i).getLoggerName(), "logger" + (98 + i));
+            assertEquals(events.get(i).getThreadName(), "thread" + (98 + i));
+        }
+    }
+
+
+    private final LoggerContext context = new LoggerContext();
+
+
+    private final Logger logger = context.getLogger("columnar");
+
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static java.util.concurrent.ThreadLocalRandom.current;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class CompressedRecordStoreTest {
+
+
+    private static byte[] record(final int i) {
+
+        return ("2015-01-01 00:00:00.000 [main] DEBUG c.g.j.l.c.Some - message "
+                + i + "\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+
+    private static CompressedRecordStore store() {
+
+        final CompressedRecordStore store = new CompressedRecordStore();
+        store.setBlockSize(256);
+
+        return store;
+    }
+
+
+    @Test(invocationCount = 8)
+    public void unlimited() throws IOException {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final CompressedRecordStore actual = store();
+        actual.start(-1L);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        assertEquals(actual.getLength(), expected.getLength());
+        assertTrue(actual.getCompressedLength() <= expected.getLength());
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        actual.write(output);
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void holdsIncompressibleBlocksAsIs() throws IOException {
+
+        final CompressedRecordStore store = new CompressedRecordStore();
+        store.setBlockSize(16);
+        store.start(-1L);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 64; i++) {
+            final byte[] record = new byte[current().nextInt(1, 16)];
+            current().nextBytes(record);
+            store.add(record, 0, record.length);
+            expected.write(record);
+        }
+
+        assertEquals(store.getLength(), expected.size());
+        assertTrue(store.getCompressedLength() <= store.getLength());
+        assertEquals(store.toByteArray(), expected.toByteArray());
+
+        final RecordCursor cursor = new RecordCursor();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.read(cursor, output);
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void retainsMoreThanLimit() {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final CompressedRecordStore actual = new CompressedRecordStore();
+        actual.start(8192L);
+
+        for (int i = 0; i < 10000; i++) {
+            final byte[] record = record(i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        assertTrue(actual.getCompressedLength() <= 8192L);
+        assertTrue(actual.getLength() > 8192L * 2);
+
+        final byte[] whole = expected.toByteArray();
+        final byte[] tail = actual.toByteArray();
+        assertEquals(tail.length, actual.getLength());
+        assertEquals(tail, Arrays.copyOfRange(
+                     whole, whole.length - tail.length, whole.length));
+    }
+
+
+    @Test
+    public void compressesAfterClear() {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final CompressedRecordStore actual = store();
+        actual.start(-1L);
+
+        for (int i = 0; i < 256; i++) {
+            final byte[] record = record(i);
+            actual.add(record, 0, record.length);
+        }
+        actual.clear();
+        assertEquals(actual.getLength(), 0L);
+
+        for (int i = 0; i < 256; i++) {
+            final byte[] record = record(i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+        assertTrue(actual.getCompressedLength() < actual.getLength());
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void oversized() {
+
+        final CompressedRecordStore store = new CompressedRecordStore();
+        store.setBlockSize(16);
+        store.start(-1L);
+
+        final byte[] small = record(0);
+        final byte[] large = new byte[1024];
+        Arrays.fill(large, (byte) 'x');
+        store.add(small, 0, 8);
+        store.add(large, 0, large.length);
+        store.add(small, 0, 8);
+
+        final byte[] bytes = store.toByteArray();
+        assertEquals(bytes.length, 8 + 1024 + 8);
+        assertEquals(Arrays.copyOfRange(bytes, 8, 8 + 1024), large);
+    }
+
+
+    @Test(invocationCount = 4)
+    public void readWithCursor() throws IOException {
+
+        final CompressedRecordStore store = store();
+        store.start(current().nextInt(4096));
+
+        final List<byte[]> all = new ArrayList<>();
+        final RecordCursor cursor = new RecordCursor();
+        for (int i = 0; i < 4096; i++) {
+            final byte[] record = record(i);
+            all.add(record);
+            store.add(record, 0, record.length);
+            if (current().nextInt(64) != 0) {
+                continue;
+            }
+            final long from = cursor.getSequence();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(store.read(cursor, output), output.size());
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            for (long j = from + cursor.getEvicted(); j < cursor.getSequence();
+                 j++) {
+                expected.write(all.get((int) j));
+            }
+            assertEquals(output.toByteArray(), expected.toByteArray());
+        }
+        assertEquals(store.getSequence(), all.size());
+    }
+
+
+
+    @Test(invocationCount = 4)
+    public void readWithCursorInChunks() throws IOException {
+
+        final CompressedRecordStore store = store();
+        store.start(-1L);
+
+        final List<byte[]> all = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(i);
+            all.add(record);
+            store.add(record, 0, record.length);
+        }
+
+        final RecordCursor cursor = new RecordCursor();
+        final ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        while (cursor.getSequence() < store.getSequence()) {
+            final long from = cursor.getSequence();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(store.read(cursor, output, current().nextInt(4096)),
+                         output.size());
+            assertTrue(cursor.getCount() > 0L);
+            assertEquals(cursor.getEvicted(), 0L);
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            for (long j = from; j < cursor.getSequence(); j++) {
+                expected.write(all.get((int) j));
+            }
+            assertEquals(output.toByteArray(), expected.toByteArray());
+            output.writeTo(whole);
+        }
+        assertEquals(whole.toByteArray(), store.toByteArray());
+    }
+
+
+}
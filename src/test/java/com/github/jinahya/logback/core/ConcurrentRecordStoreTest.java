@@ -0,0 +1,262 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.ThreadLocalRandom.current;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class ConcurrentRecordStoreTest {
+
+
+    /**
+     * Creates a record of given length filled with given value and terminated
+     * with a new line.
+     */
+    private static byte[] record(final int length, final int value) {
+
+        final byte[] record = new byte[length];
+        Arrays.fill(record, (byte) ('a' + value % 26));
+        record[length - 1] = '\n';
+
+        return record;
+    }
+
+
+    private static void assertWhole(final byte[] bytes) {
+
+        for (int start = 0, i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                for (int j = start; j < i; j++) {
+                    assertEquals(bytes[j], bytes[start]);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+
+    @Test
+    public void keepsNewest() {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final ConcurrentRecordStore actual = new ConcurrentRecordStore();
+        actual.start(1024L);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(1, 32), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        final byte[] whole = expected.toByteArray();
+        final byte[] tail = actual.toByteArray();
+        assertTrue(tail.length > 0);
+        assertTrue(tail.length <= 1024);
+        assertEquals(actual.getLength(), tail.length);
+        assertEquals(tail, Arrays.copyOfRange(
+                     whole, whole.length - tail.length, whole.length));
+    }
+
+
+    @Test
+    public void clear() {
+
+        final ConcurrentRecordStore store = new ConcurrentRecordStore();
+        store.start(1024L);
+
+        store.add(record(8, 0), 0, 8);
+        store.clear();
+        assertEquals(store.getLength(), 0L);
+
+        store.add(record(8, 1), 0, 8);
+        assertEquals(store.toByteArray(), record(8, 1));
+    }
+
+
+    @Test
+    public void readWhileAdding() throws Exception {
+
+        final ConcurrentRecordStore store = new ConcurrentRecordStore();
+        store.start(4096L);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int value = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    final byte[] record = record(
+                        current().nextInt(2, 64), value);
+                    store.add(record, 0, record.length);
+                }
+            }));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertWhole(store.toByteArray());
+        }
+
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1L, TimeUnit.MINUTES);
+
+        assertWhole(store.toByteArray());
+    }
+
+
+    private static void assertTail(final List<byte[]> all, final long from,
+                                   final RecordCursor cursor,
+                                   final byte[] read)
+        throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (long i = from + cursor.getEvicted(); i < cursor.getSequence();
+             i++) {
+            expected.write(all.get((int) i));
+        }
+        assertEquals(read, expected.toByteArray());
+        assertEquals(cursor.getSequence() - from,
+                     cursor.getEvicted() + cursor.getCount());
+    }
+
+
+    @Test(invocationCount = 4)
+    public void readWithCursor() throws IOException {
+        final RecordStore actual = new ConcurrentRecordStore();
+        actual.start(1024L);
+
+        final List<byte[]> all = new ArrayList<>();
+        final RecordCursor cursor = new RecordCursor();
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(1, 64), i);
+            all.add(record);
+            actual.add(record, 0, record.length);
+            if (current().nextInt(16) == 0) {
+                final long from = cursor.getSequence();
+                final ByteArrayOutputStream output
+                    = new ByteArrayOutputStream();
+                assertEquals(actual.read(cursor, output), output.size());
+                assertTail(all, from, cursor, output.toByteArray());
+            }
+        }
+        assertEquals(actual.getSequence(), all.size());
+    }
+
+
+
+    @Test
+    public void tailWhileAdding() throws Exception {
+
+        final ConcurrentRecordStore store = new ConcurrentRecordStore();
+        store.start(1048576L);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int value = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    final byte[] record = record(
+                        current().nextInt(2, 64), value);
+                    store.add(record, 0, record.length);
+                }
+            }));
+        }
+
+        final RecordCursor cursor = new RecordCursor();
+        long read = 0L;
+        while (cursor.getSequence() < 8000L) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            store.read(cursor, output);
+            assertWhole(output.toByteArray());
+            // records being added are not yet visible, never evicted
+            assertEquals(cursor.getEvicted(), 0L);
+            read += cursor.getCount();
+        }
+        assertEquals(read, 8000L);
+
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1L, TimeUnit.MINUTES);
+    }
+
+
+    @Test
+    public void readBeyondPackedSequences() throws IOException {
+
+        final ConcurrentRecordStore store = new ConcurrentRecordStore();
+        store.start(64L);
+
+        final byte[] record = record(1, 0);
+        final RecordCursor cursor = new RecordCursor();
+        final long count = (1L << 24) + 8L;
+        for (long i = 0L; i < count; i++) {
+            store.add(record, 0, record.length);
+        }
+        assertEquals(store.getSequence(), count);
+        assertEquals(store.getLength(), 64L);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.read(cursor, output);
+        assertEquals(output.size(), 64);
+        assertEquals(cursor.getSequence(), count);
+        assertEquals(cursor.getEvicted(), count - 64L);
+    }
+
+
+    @Test
+    public void dropsLargerThanLimit() throws IOException {
+
+        final ConcurrentRecordStore store = new ConcurrentRecordStore();
+        store.start(16L);
+
+        store.add(record(8, 0), 0, 8);
+        store.add(record(32, 1), 0, 32);
+
+        final RecordCursor cursor = new RecordCursor();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.read(cursor, output);
+        assertEquals(output.toByteArray(), record(8, 0));
+        assertEquals(cursor.getSequence(), 2L);
+        assertEquals(cursor.getEvicted(), 1L);
+    }
+
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import static java.util.concurrent.ThreadLocalRandom.current;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class DirectRecordStoreTest {
+
+
+    private static byte[] record(final int length, final int value) {
+
+        final byte[] record = new byte[length];
+        for (int i = 0; i < record.length; i++) {
+            record[i] = (byte) value;
+        }
+
+        return record;
+    }
+
+
+    private static DirectRecordStore store() {
+
+        final DirectRecordStore store = new DirectRecordStore();
+        store.setSegmentSize(current().nextInt(1, 32));
+
+        return store;
+    }
+
+
+    @Test(invocationCount = 16)
+    public void compareWithList() throws IOException {
+
+        final int limit = current().nextInt(128);
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(limit);
+
+        final RecordStore actual = store();
+        actual.start(limit);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+            assertEquals(actual.getLength(), expected.getLength());
+        }
+
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        actual.write(output);
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void capacityOverridesLimit() {
+
+        final DirectRecordStore store = new DirectRecordStore();
+        store.setCapacity(64L);
+        store.setSegmentSize(7);
+        store.start(-1L);
+
+        for (int i = 0; i < 100; i++) {
+            store.add(record(10, i), 0, 10);
+        }
+
+        assertEquals(store.getLength(), 60L);
+        assertEquals(store.getCount(), 6);
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void startWithoutLimitAndCapacity() {
+
+        new DirectRecordStore().start(-1L);
+    }
+
+
+    @Test(invocationCount = 16)
+    public void compareStreamedWithList() {
+
+        final int limit = current().nextInt(128);
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(limit);
+
+        final RecordStore actual = store();
+        actual.start(limit);
+
+        for (int i = 0; i < 1024; i++) {
+            final int chunks = current().nextInt(4);
+            expected.begin();
+            actual.begin();
+            for (int j = 0; j < chunks; j++) {
+                final byte[] chunk = record(current().nextInt(16), i);
+                expected.append(chunk, 0, chunk.length);
+                actual.append(chunk, 0, chunk.length);
+            }
+            expected.commit();
+            actual.commit();
+            assertEquals(actual.getLength(), expected.getLength());
+        }
+
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void oversized() {
+
+        final DirectRecordStore store = store();
+        store.start(8L);
+
+        store.add(record(4, 1), 0, 4);
+        store.add(record(9, 2), 0, 9);
+
+        assertEquals(store.getLength(), 0L);
+        assertEquals(store.getCount(), 0);
+    }
+
+
+    @Test(invocationCount = 16)
+    public void writeToChannels() throws IOException {
+
+        final int limit = current().nextInt(128);
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(limit);
+
+        final RecordStore actual = store();
+        actual.start(limit);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        final File file = File.createTempFile("tmp", null);
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(
+            file.toPath(), StandardOpenOption.WRITE)) {
+            assertEquals(actual.write(channel), expected.getLength());
+        }
+        assertEquals(Files.readAllBytes(file.toPath()),
+                     expected.toByteArray());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(actual.transferTo(Channels.newChannel(output)),
+                     expected.getLength());
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+
+}
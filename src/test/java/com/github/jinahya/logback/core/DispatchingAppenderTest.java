@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class DispatchingAppenderTest {
+
+
+    private static int count(final Logger logger) {
+
+        int count = 0;
+        for (final Iterator<Appender<ILoggingEvent>> i
+            = logger.iteratorForAppenders(); i.hasNext(); i.next()) {
+            count++;
+        }
+
+        return count;
+    }
+
+
+    @Test
+    public void attachedOnce() {
+
+        final int before = count(logger);
+
+        final LogRecorder first = LogRecorder.start(
+            logger, "%message%n", StandardCharsets.UTF_8, 1024);
+        final DispatchingAppender dispatcher = DispatchingAppender.get(logger);
+        final int attached = count(logger);
+
+        final LogRecorder second = LogRecorder.start(
+            logger, "%message%n", StandardCharsets.UTF_8, 1024);
+        final ILoggingEventRecorder third
+            = ILoggingEventRecorder.start(logger, 16);
+        assertSame(DispatchingAppender.get(logger), dispatcher);
+        assertEquals(count(logger), attached);
+        assertTrue(attached <= before + 1);
+        assertEquals(dispatcher.getTargetCount(), 3);
+
+        logger.info("both");
+
+        final List<ILoggingEvent> events = ILoggingEventRecorder.finish(third);
+        assertEquals(events.size(), 1);
+        assertEquals(LogRecorder.finish(second), "both\n");
+        logger.info("first");
+        assertEquals(LogRecorder.finish(first), "both\nfirst\n");
+
+        assertEquals(dispatcher.getTargetCount(), 0);
+        assertEquals(count(logger), attached);
+    }
+
+
+    @Test
+    public void replacedOnceStopped() {
+
+        final DispatchingAppender stopped = DispatchingAppender.get(logger);
+        stopped.stop();
+
+        final DispatchingAppender dispatcher = DispatchingAppender.get(logger);
+        assertTrue(dispatcher != stopped);
+        assertTrue(dispatcher.isStarted());
+        assertTrue(!logger.isAttached(stopped));
+    }
+
+
+    private transient final Logger logger
+        = (Logger) getLogger(DispatchingAppenderTest.class.getName() + ".d");
+
+
+}
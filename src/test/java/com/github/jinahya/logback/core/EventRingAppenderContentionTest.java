@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+
+/**
+ * Checks that {@link EventRingAppender} neither loses nor duplicates events
+ * appended from multiple threads. The comparison with logback's
+ * {@code CyclicBufferAppender} is measured by the
+ * {@code EventRingContentionBenchmark} of the benchmarks module.
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class EventRingAppenderContentionTest {
+
+
+    private static final int EVENTS_PER_THREAD = 500;
+
+
+    @DataProvider
+    private static Object[][] threads() {
+
+        return new Object[][]{{4}, {16}};
+    }
+
+
+    /**
+     * Appends {@value #EVENTS_PER_THREAD} events, each with its thread and
+     * index as arguments, from each of specified number of threads and
+     * returns a snapshot.
+     */
+    private List<ILoggingEvent> run(final int threads, final int maxSize)
+        throws Exception {
+
+        final EventRingAppender<ILoggingEvent> appender
+            = new EventRingAppender<>();
+        appender.setMaxSize(maxSize);
+        appender.setContext(context);
+        appender.start();
+        assertTrue(appender.isStarted());
+
+        final ch.qos.logback.classic.Logger logger
+            = context.getLogger("contention");
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Future<?>[] futures = new Future<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures[t] = executor.submit(() -> {
+                latch.await();
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                    appender.doAppend(new LoggingEvent(
+                        getClass().getName(), logger, Level.INFO, "{} {}",
+                        null, new Object[]{thread, i}));
+                }
+                return null;
+            });
+        }
+        latch.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1L, TimeUnit.MINUTES));
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+
+        final List<ILoggingEvent> events = appender.snapshot();
+        assertEquals(appender.getLength(), events.size());
+        appender.stop();
+
+        return events;
+    }
+
+
+    /**
+     * Asserts that events of each thread appear at most once and in the order
+     * they were appended.
+     */
+    private static int[] assertOrdered(final List<ILoggingEvent> events,
+                                       final int threads) {
+
+        final int[] counts = new int[threads];
+        final int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (final ILoggingEvent event : events) {
+            final Object[] arguments = event.getArgumentArray();
+            final int thread = (Integer) arguments[0];
+            final int index = (Integer) arguments[1];
+            assertTrue(index > last[thread],
+                       "out of order: " + event.getFormattedMessage());
+            last[thread] = index;
+            counts[thread]++;
+        }
+
+        return counts;
+    }
+
+
+    @Test(dataProvider = "threads")
+    public void holdsEveryEventOnce(final int threads) throws Exception {
+
+        final List<ILoggingEvent> events
+            = run(threads, threads * EVENTS_PER_THREAD);
+        assertEquals(events.size(), threads * EVENTS_PER_THREAD);
+
+        final int[] counts = assertOrdered(events, threads);
+        for (int t = 0; t < threads; t++) {
+            assertEquals(counts[t], EVENTS_PER_THREAD);
+        }
+    }
+
+
+    @Test(dataProvider = "threads")
+    public void evictsOldestInOrder(final int threads) throws Exception {
+
+        final int maxSize = EVENTS_PER_THREAD;
+        final List<ILoggingEvent> events = run(threads, maxSize);
+        assertEquals(events.size(), maxSize);
+
+        assertOrdered(events, threads);
+    }
+
+
+    private final LoggerContext context = new LoggerContext();
+
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.LoggerContext;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class EventRingAppenderTest {
+
+
+    private static EventRingAppender<Integer> start(final int maxSize) {
+
+        final EventRingAppender<Integer> appender = new EventRingAppender<>();
+        appender.setContext(new LoggerContext());
+        appender.setMaxSize(maxSize);
+        appender.start();
+
+        return appender;
+    }
+
+
+    @Test
+    public void nonPositiveMaxSize() {
+
+        final EventRingAppender<Integer> appender = new EventRingAppender<>();
+        appender.setContext(new LoggerContext());
+        appender.setMaxSize(0);
+        appender.start();
+        assertFalse(appender.isStarted());
+    }
+
+
+    @Test
+    public void snapshot() {
+
+        final EventRingAppender<Integer> appender = start(4);
+        assertEquals(appender.snapshot(), Arrays.<Integer>asList());
+
+        for (int i = 0; i < 3; i++) {
+            appender.doAppend(i);
+        }
+        assertEquals(appender.getLength(), 3);
+        assertEquals(appender.snapshot(), Arrays.asList(0, 1, 2));
+
+        for (int i = 3; i < 10; i++) {
+            appender.doAppend(i);
+        }
+        assertEquals(appender.getLength(), 4);
+        assertEquals(appender.snapshot(), Arrays.asList(6, 7, 8, 9));
+
+        appender.stop();
+        assertEquals(appender.snapshot(), Arrays.asList(6, 7, 8, 9));
+    }
+
+
+    @Test
+    public void concurrent() throws InterruptedException {
+
+        final int threads = 8;
+        final int events = 1000;
+        final EventRingAppender<Integer> appender = start(threads * events);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch latch = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            final int base = t * events;
+            executor.submit(() -> {
+                latch.await();
+                for (int i = 0; i < events; i++) {
+                    appender.doAppend(base + i);
+                    if (i % 100 == 0) {
+                        assertTrue(appender.snapshot().size() <= threads * events);
+                    }
+                }
+                return null;
+            });
+        }
+        latch.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1L, TimeUnit.MINUTES));
+
+        final List<Integer> snapshot = appender.snapshot();
+        assertEquals(snapshot.size(), threads * events);
+        final Set<Integer> distinct = new HashSet<>(snapshot);
+        assertEquals(distinct.size(), threads * events);
+    }
+
+
+}
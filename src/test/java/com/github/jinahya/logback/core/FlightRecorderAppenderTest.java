@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import static java.lang.invoke.MethodHandles.lookup;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.slf4j.MarkerFactory;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class FlightRecorderAppenderTest {
+
+
+    private PatternLayoutEncoder encoder(final LoggerContext context) {
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%level %msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        return encoder;
+    }
+
+
+    private LoggingEvent event(final Level level, final String message) {
+
+        return new LoggingEvent(getClass().getName(), logger_, level, message,
+                                null, null);
+    }
+
+
+    @Test
+    public void drainOnTrigger() {
+
+        final LoggerContext context = logger_.getLoggerContext();
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        final RecordSinkAppender<ILoggingEvent> delegate
+            = new RecordSinkAppender<>();
+        delegate.setContext(context);
+        delegate.setName("delegate");
+        delegate.setEncoder(encoder(context));
+        delegate.setOutputStream(file);
+        delegate.start();
+
+        final FlightRecorderAppender<ILoggingEvent> recorder
+            = new FlightRecorderAppender<>();
+        recorder.setContext(context);
+        recorder.setEncoder(encoder(context));
+        recorder.setLimit(4096);
+        recorder.setTriggerMarker("DUMP");
+        recorder.addAppender(delegate);
+        recorder.start();
+
+        recorder.doAppend(event(Level.DEBUG, "a"));
+        recorder.doAppend(event(Level.INFO, "b"));
+        assertEquals(file.size(), 0);
+
+        recorder.doAppend(event(Level.ERROR, "c"));
+        assertEquals(file.toString(), "DEBUG a\nINFO b\nERROR c\n");
+
+        recorder.doAppend(event(Level.DEBUG, "d"));
+        assertEquals(file.toString(), "DEBUG a\nINFO b\nERROR c\n");
+
+        final LoggingEvent marked = event(Level.DEBUG, "e");
+        marked.setMarker(MarkerFactory.getMarker("DUMP"));
+        recorder.doAppend(marked);
+        assertEquals(file.toString(),
+                     "DEBUG a\nINFO b\nERROR c\nDEBUG d\nDEBUG e\n");
+
+        recorder.stop();
+        assertEquals(delegate.isStarted(), false);
+    }
+
+
+    @Test
+    public void triggerLevelOff() {
+
+        final LoggerContext context = logger_.getLoggerContext();
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        final RecordSinkAppender<ILoggingEvent> delegate
+            = new RecordSinkAppender<>();
+        delegate.setContext(context);
+        delegate.setEncoder(encoder(context));
+        delegate.setOutputStream(file);
+        delegate.start();
+
+        final FlightRecorderAppender<ILoggingEvent> recorder
+            = new FlightRecorderAppender<>();
+        recorder.setContext(context);
+        recorder.setEncoder(encoder(context));
+        recorder.setTriggerLevel("OFF");
+        recorder.addAppender(delegate);
+        recorder.start();
+
+        recorder.doAppend(event(Level.ERROR, "a"));
+        assertEquals(file.size(), 0);
+
+        assertEquals(recorder.drain(), "ERROR a\n".length());
+        assertEquals(file.toString(), "ERROR a\n");
+
+        recorder.stop();
+    }
+
+
+    @Test
+    public void rejectsAppendersOtherThanSinks() {
+
+        final LoggerContext context = logger_.getLoggerContext();
+
+        final OutputStreamAppender<ILoggingEvent> delegate
+            = new OutputStreamAppender<>();
+        delegate.setContext(context);
+        delegate.setEncoder(encoder(context));
+        delegate.setOutputStream(new ByteArrayOutputStream());
+        delegate.start();
+
+        final FlightRecorderAppender<ILoggingEvent> recorder
+            = new FlightRecorderAppender<>();
+        recorder.setContext(context);
+        recorder.setEncoder(encoder(context));
+        recorder.addAppender(delegate);
+        recorder.start();
+        assertFalse(recorder.isStarted());
+
+        delegate.stop();
+    }
+
+
+    @Test
+    public void drainToFileWhileAppendingDirectly() throws IOException {
+
+        final LoggerContext context = logger_.getLoggerContext();
+
+        final File file = File.createTempFile("flight", ".log");
+        file.deleteOnExit();
+
+        final FileRecordSinkAppender<ILoggingEvent> delegate
+            = new FileRecordSinkAppender<>();
+        delegate.setContext(context);
+        delegate.setEncoder(encoder(context));
+        delegate.setFile(file.getPath());
+        delegate.setAppend(false);
+        delegate.start();
+
+        final FlightRecorderAppender<ILoggingEvent> recorder
+            = new FlightRecorderAppender<>();
+        recorder.setContext(context);
+        recorder.setEncoder(encoder(context));
+        recorder.addAppender(delegate);
+        recorder.start();
+
+        delegate.doAppend(event(Level.INFO, "direct"));
+        recorder.doAppend(event(Level.DEBUG, "a"));
+        recorder.doAppend(event(Level.ERROR, "b"));
+        delegate.doAppend(event(Level.INFO, "direct"));
+
+        recorder.stop();
+        assertFalse(delegate.isStarted());
+
+        assertEquals(new String(Files.readAllBytes(file.toPath()),
+                                StandardCharsets.UTF_8),
+                     "INFO direct\nDEBUG a\nERROR b\nINFO direct\n");
+    }
+
+
+    @Test
+    public void fileSinkRejectsPrudentMode() {
+
+        final LoggerContext context = logger_.getLoggerContext();
+
+        final FileRecordSinkAppender<ILoggingEvent> delegate
+            = new FileRecordSinkAppender<>();
+        delegate.setContext(context);
+        delegate.setEncoder(encoder(context));
+        delegate.setPrudent(true);
+        delegate.start();
+        assertFalse(delegate.isStarted());
+    }
+
+
+    private transient final Logger logger = getLogger(lookup().lookupClass());
+
+
+    private transient final ch.qos.logback.classic.Logger logger_
+        = (ch.qos.logback.classic.Logger) getLogger("flight");
+
+
+}
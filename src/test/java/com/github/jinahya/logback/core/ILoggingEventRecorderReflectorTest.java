@@ -139,6 +139,36 @@ public class ILoggingEventRecorderReflectorTest {
     }
 
 
+    @Test
+    public void foreignArguments() throws ReflectiveOperationException {
+
+        final Object recorder = start(logger, 100);
+        try {
+            try {
+                finish(new Object());
+                fail("finished");
+            } catch (final IllegalArgumentException iae) {
+                // expected
+            }
+            try {
+                finishWithLayoutAndAppendable(
+                    recorder, "not a layout", new StringBuilder());
+                fail("finished");
+            } catch (final IllegalArgumentException iae) {
+                // expected
+            }
+            try {
+                LogRecorderReflector.finish(recorder);
+                fail("finished");
+            } catch (final IllegalArgumentException iae) {
+                // expected
+            }
+        } finally {
+            finish(recorder);
+        }
+    }
+
+
     private transient final Logger logger = getLogger(lookup().lookupClass());
 
 
@@ -18,15 +18,26 @@
 package com.github.jinahya.logback.core;
 
 
+import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.EchoEncoder;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import static java.lang.invoke.MethodHandles.lookup;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import org.slf4j.Logger;
 import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.FileAssert.fail;
 import org.testng.annotations.Test;
 
@@ -119,6 +130,191 @@ public class ILoggingEventRecorderTest {
     }
 
 
+    @Test
+    public void finishInParallel() throws IOException {
+
+        final String pattern = "%level [%thread] %message%n";
+        final int count = ParallelRendering.CHUNK_SIZE * 5 + 7;
+        final ch.qos.logback.classic.Logger parallel
+            = (ch.qos.logback.classic.Logger) getLogger(
+                lookup().lookupClass().getName() + ".parallel");
+
+        final ILoggingEventRecorder sequential = ILoggingEventRecorder.start(
+            parallel, count, CaptureScope.THREAD, CapturePolicy.FULL);
+        final ILoggingEventRecorder appending = ILoggingEventRecorder.start(
+            parallel, count, CaptureScope.THREAD, CapturePolicy.FULL);
+        final ILoggingEventRecorder writing = ILoggingEventRecorder.start(
+            parallel, count, CaptureScope.THREAD, CapturePolicy.COLUMNAR);
+        for (int i = 0; i < count; i++) {
+            parallel.info("event {}", i);
+        }
+
+        final String expected = ILoggingEventRecorder.finish(
+            sequential, pattern, new StringBuilder()).toString();
+        assertTrue(expected.endsWith("event " + (count - 1) + "\n"));
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(ILoggingEventRecorder.finish(
+                appending, pattern, new StringBuilder(), pool).toString(),
+                         expected);
+            assertEquals(new String(ILoggingEventRecorder.finish(
+                writing, pattern, StandardCharsets.UTF_8,
+                new ByteArrayOutputStream(), pool).toByteArray(),
+                                    StandardCharsets.UTF_8),
+                         expected);
+            assertEquals(ILoggingEventRecorder.finish(
+                ILoggingEventRecorder.start(parallel, 16), pattern,
+                new StringBuilder(), pool).length(), 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    public void finishWithEncoder() throws IOException {
+
+        final ch.qos.logback.classic.Logger streaming
+            = (ch.qos.logback.classic.Logger) getLogger(
+                lookup().lookupClass().getName() + ".streaming");
+        final int count = 2000; // more than a buffer
+        final ILoggingEventRecorder toStream = ILoggingEventRecorder.start(
+            streaming, count, CaptureScope.THREAD, CapturePolicy.COMPACT);
+        final ILoggingEventRecorder toChannel = ILoggingEventRecorder.start(
+            streaming, count, CaptureScope.THREAD, CapturePolicy.COMPACT);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            streaming.info("event {}", i);
+            expected.append("event ").append(i).append('\n');
+        }
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setPattern("%message%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+
+        final ByteArrayOutputStream stream
+            = ILoggingEventRecorder.finishToStream(
+                toStream, encoder, new ByteArrayOutputStream());
+        assertEquals(new String(stream.toByteArray(), StandardCharsets.UTF_8),
+                     expected.toString());
+        assertTrue(!encoder.isStarted());
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ILoggingEventRecorder.finishToChannel(toChannel, encoder,
+                                              Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8),
+                     expected.toString());
+    }
+
+
+    @Test
+    public void finishWithEncoderOfAppender() throws IOException {
+
+        final ch.qos.logback.classic.Logger shared
+            = (ch.qos.logback.classic.Logger) getLogger(
+                lookup().lookupClass().getName() + ".shared");
+        final LoggerContext context = shared.getLoggerContext();
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%message%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+        final ByteArrayOutputStream appended = new ByteArrayOutputStream();
+        final OutputStreamAppender<ILoggingEvent> appender
+            = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(appended);
+        appender.start();
+        shared.addAppender(appender);
+        try {
+            final ILoggingEventRecorder recorder = ILoggingEventRecorder.start(
+                shared, 16, CaptureScope.THREAD, CapturePolicy.REFERENCE);
+            shared.info("recorded");
+            final ByteArrayOutputStream finished
+                = ILoggingEventRecorder.finishToStream(
+                    recorder, encoder, new ByteArrayOutputStream());
+            assertEquals(new String(finished.toByteArray(),
+                                    StandardCharsets.UTF_8),
+                         "recorded\n");
+
+            // the encoder still writes to the stream of the appender
+            shared.info("appended");
+            assertEquals(new String(appended.toByteArray(),
+                                    StandardCharsets.UTF_8),
+                         "recorded\nappended\n");
+        } finally {
+            shared.detachAppender(appender);
+            appender.stop();
+        }
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void finishWithStartedEncoder() throws IOException {
+
+        final ILoggingEventRecorder recorder = ILoggingEventRecorder.start(
+            (ch.qos.logback.classic.Logger) logger, 16);
+
+        final EchoEncoder<ILoggingEvent> encoder = new EchoEncoder<>();
+        encoder.start();
+        try {
+            ILoggingEventRecorder.finishToStream(
+                recorder, encoder, new ByteArrayOutputStream());
+        } finally {
+            encoder.stop();
+            ILoggingEventRecorder.finish(recorder);
+        }
+    }
+
+
+    @Test
+    public void finishToStreamEncodesAcrossBuffers() throws IOException {
+
+        final ch.qos.logback.classic.Logger streaming
+            = (ch.qos.logback.classic.Logger) getLogger(
+                lookup().lookupClass().getName() + ".encoding");
+
+        final int count = 2000; // more than a buffer of multibyte characters
+        final ILoggingEventRecorder recorder = ILoggingEventRecorder.start(
+            streaming, count, CaptureScope.THREAD, CapturePolicy.COMPACT);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            streaming.info("\uc774\ubca4\ud2b8 {}", i);
+            expected.append("\uc774\ubca4\ud2b8 ").append(i).append('\n');
+        }
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setPattern("%message%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+
+        final ByteArrayOutputStream stream
+            = ILoggingEventRecorder.finishToStream(
+                recorder, encoder, new ByteArrayOutputStream());
+        assertEquals(new String(stream.toByteArray(), StandardCharsets.UTF_8),
+                     expected.toString());
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void finishWithEncoderWithoutLayout() throws IOException {
+
+        final ILoggingEventRecorder recorder = ILoggingEventRecorder.start(
+            (ch.qos.logback.classic.Logger) logger, 16);
+
+        final LayoutWrappingEncoder<ILoggingEvent> encoder
+            = new LayoutWrappingEncoder<>();
+        try {
+            ILoggingEventRecorder.finishToStream(
+                recorder, encoder, new ByteArrayOutputStream());
+        } finally {
+            assertTrue(!encoder.isStarted());
+        }
+    }
+
+
     private transient final Logger logger = getLogger(lookup().lookupClass());
 
 
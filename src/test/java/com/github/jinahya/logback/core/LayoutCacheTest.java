@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class LayoutCacheTest {
+
+
+    @Test
+    public void hitsAndMisses() {
+
+        final LayoutCache cache = new LayoutCache(2);
+        final LoggerContext context = new LoggerContext();
+
+        final PatternLayout layout = cache.get(context, "%message%n");
+        assertTrue(layout.isStarted());
+        assertSame(cache.get(context, "%message%n"), layout);
+        assertNotSame(cache.get(new LoggerContext(), "%message%n"), layout);
+        assertEquals(cache.getHitCount(), 1L);
+        assertEquals(cache.getMissCount(), 2L);
+        assertEquals(cache.size(), 2);
+
+        cache.clear();
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getHitCount(), 0L);
+        assertEquals(cache.getMissCount(), 0L);
+    }
+
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+
+        final LayoutCache cache = new LayoutCache(2);
+        final LoggerContext context = new LoggerContext();
+
+        final PatternLayout first = cache.get(context, "first");
+        final PatternLayout second = cache.get(context, "second");
+        assertSame(cache.get(context, "first"), first);
+        cache.get(context, "third"); // evicts second
+
+        assertEquals(cache.size(), 2);
+        assertSame(cache.get(context, "first"), first);
+        assertNotSame(cache.get(context, "second"), second);
+        assertTrue(second.isStarted());
+    }
+
+
+    @Test
+    public void evictedOnResetAndStop() {
+
+        final LayoutCache cache = new LayoutCache(4);
+        final LoggerContext context = new LoggerContext();
+        final LoggerContext other = new LoggerContext();
+
+        cache.get(context, "first");
+        cache.get(other, "first");
+        assertEquals(cache.size(), 2);
+
+        context.reset();
+        assertEquals(cache.size(), 1);
+
+        // the listener survives resets
+        cache.get(context, "second");
+        assertEquals(cache.size(), 2);
+        context.stop();
+        assertEquals(cache.size(), 1);
+        assertEquals(context.getCopyOfListenerList().size(), 0);
+
+        cache.get(context, "third");
+        assertEquals(context.getCopyOfListenerList().size(), 1);
+        context.stop();
+        assertEquals(cache.size(), 1);
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void nonPositiveMaximumSize() {
+
+        new LayoutCache(0);
+    }
+
+
+    @Test
+    public void usedByRecorders() throws IOException {
+
+        final String pattern = "cached %message%n";
+        final LayoutCache cache = LayoutCache.getInstance();
+
+        LogRecorder.finish(LogRecorder.start(
+            logger, pattern, StandardCharsets.UTF_8, 1024));
+        final long hits = cache.getHitCount();
+        LogRecorder.finish(LogRecorder.start(
+            logger, pattern, StandardCharsets.UTF_8, 1024));
+        assertTrue(cache.getHitCount() > hits);
+
+        final ILoggingEventRecorder recorder
+            = ILoggingEventRecorder.start(logger, 16);
+        logger.info("hello");
+        assertEquals(ILoggingEventRecorder.finish(
+            recorder, pattern, new StringBuilder()).toString(),
+                     "cached hello\n");
+        assertTrue(cache.getHitCount() > hits + 1);
+    }
+
+
+    private transient final Logger logger
+        = (Logger) getLogger(LayoutCacheTest.class.getName() + ".l");
+
+
+}
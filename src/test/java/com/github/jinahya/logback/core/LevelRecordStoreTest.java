@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import static java.util.concurrent.ThreadLocalRandom.current;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class LevelRecordStoreTest {
+
+
+    private static void add(final RecordStore store, final Level level,
+                            final String message) {
+
+        final byte[] record = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        store.add(0L, level.toInt(), record, 0, record.length);
+    }
+
+
+    private static String read(final RecordStore store) {
+
+        return new String(store.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+
+    @Test
+    public void oldestCompareWithList() {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(1024L);
+
+        final LevelRecordStore actual = new LevelRecordStore();
+        actual.start(1024L);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = new byte[current().nextInt(1, 128)];
+            Arrays.fill(record, (byte) i);
+            expected.add(record, 0, record.length);
+            actual.add(0L, current().nextInt(Level.ERROR_INT + 1), record, 0,
+                       record.length);
+        }
+
+        assertEquals(actual.getLength(), expected.getLength());
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void lowestLevelKeepsErrors() {
+
+        final LevelRecordStore store = new LevelRecordStore();
+        store.setPolicy(LevelRecordStore.Policy.LOWEST_LEVEL);
+        store.setCountLimit(8);
+        store.start(-1L);
+
+        add(store, Level.INFO, "info");
+        add(store, Level.ERROR, "error");
+        for (int i = 0; i < 100; i++) {
+            add(store, Level.DEBUG, "debug " + i);
+        }
+        add(store, Level.WARN, "warn");
+
+        assertEquals(store.getCount(), 8);
+        final String read = read(store);
+        assertTrue(read.startsWith("info\nerror\ndebug 95\n"), read);
+        assertTrue(read.endsWith("debug 99\nwarn\n"), read);
+    }
+
+
+    @Test
+    public void newestDropsIncoming() {
+
+        final LevelRecordStore store = new LevelRecordStore();
+        store.setPolicy(LevelRecordStore.Policy.NEWEST);
+        store.setCountLimit(2);
+        store.start(-1L);
+
+        add(store, Level.DEBUG, "a");
+        add(store, Level.DEBUG, "b");
+        add(store, Level.ERROR, "c");
+
+        assertEquals(read(store), "a\nb\n");
+    }
+
+
+    @Test
+    public void countLimit() {
+
+        final LevelRecordStore store = new LevelRecordStore();
+        store.setCountLimit(3);
+        store.start(-1L);
+
+        for (int i = 0; i < 10; i++) {
+            add(store, Level.INFO, Integer.toString(i));
+        }
+
+        assertEquals(store.getCount(), 3);
+        assertEquals(read(store), "7\n8\n9\n");
+    }
+
+
+    @Test
+    public void oversizedDropped() {
+
+        final LevelRecordStore store = new LevelRecordStore();
+        store.start(4L);
+
+        add(store, Level.ERROR, "a");
+        add(store, Level.ERROR, "oversized");
+
+        assertEquals(read(store), "a\n");
+    }
+
+
+    @Test
+    public void readWithCursor() throws IOException {
+
+        final LevelRecordStore store = new LevelRecordStore();
+        store.setPolicy(LevelRecordStore.Policy.LOWEST_LEVEL);
+        store.setCountLimit(3);
+        store.start(-1L);
+
+        final RecordCursor cursor = new RecordCursor();
+        for (int i = 0; i < 10; i++) {
+            add(store, i == 2 ? Level.ERROR : Level.DEBUG, Integer.toString(i));
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.read(cursor, output);
+        assertEquals(output.toString("US-ASCII"), "2\n8\n9\n");
+        assertEquals(cursor.getSequence(), 10L);
+        assertEquals(cursor.getCount(), 3L);
+        assertEquals(cursor.getEvicted(), 7L);
+
+        add(store, Level.DEBUG, "10");
+        output.reset();
+        store.read(cursor, output);
+        assertEquals(output.toString("US-ASCII"), "10\n");
+        assertEquals(cursor.getCount(), 1L);
+        assertEquals(cursor.getEvicted(), 0L);
+    }
+
+
+    @Test
+    public void readInChunks() throws IOException {
+
+        final LevelRecordStore store = new LevelRecordStore();
+        store.setCountLimit(4);
+        store.start(-1L);
+
+        final RecordCursor cursor = new RecordCursor();
+        for (int i = 0; i < 6; i++) {
+            add(store, i % 2 == 0 ? Level.INFO : Level.DEBUG,
+                Integer.toString(i));
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.read(cursor, output, 3L);
+        assertEquals(output.toString("US-ASCII"), "2\n3\n");
+        assertEquals(cursor.getSequence(), 4L);
+        assertEquals(cursor.getCount(), 2L);
+        assertEquals(cursor.getEvicted(), 2L);
+
+        output.reset();
+        store.read(cursor, output, 1L);
+        assertEquals(output.toString("US-ASCII"), "4\n");
+        assertEquals(cursor.getSequence(), 5L);
+
+        output.reset();
+        store.read(cursor, output, 3L);
+        assertEquals(output.toString("US-ASCII"), "5\n");
+        assertEquals(cursor.getSequence(), 6L);
+        assertEquals(cursor.getEvicted(), 0L);
+    }
+
+
+}
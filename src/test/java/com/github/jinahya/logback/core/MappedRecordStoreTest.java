@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static java.util.concurrent.ThreadLocalRandom.current;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class MappedRecordStoreTest {
+
+
+    private static byte[] record(final int length, final int value) {
+
+        final byte[] record = new byte[length];
+        Arrays.fill(record, (byte) value);
+
+        return record;
+    }
+
+
+    private static RingRecordStore tiered(final long capacity)
+        throws IOException {
+
+        final File file = File.createTempFile("tmp", null);
+        file.deleteOnExit();
+
+        final MappedRecordStore overflow = new MappedRecordStore();
+        overflow.setFile(file.getPath());
+        overflow.setCapacity(capacity);
+        overflow.setSegmentSize(current().nextInt(1, 128));
+
+        final RingRecordStore store = new RingRecordStore();
+        store.setOverflow(overflow);
+
+        return store;
+    }
+
+
+    @Test
+    public void spillEverything() throws IOException {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final RingRecordStore actual = tiered(4096L);
+        actual.start(64L);
+
+        for (int i = 0; i < 128; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        assertEquals(actual.getLength(), expected.getLength());
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        actual.write(output);
+        assertEquals(output.toByteArray(), expected.toByteArray());
+
+        output.reset();
+        assertEquals(actual.transferTo(Channels.newChannel(output)),
+                     expected.getLength());
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void evictFromDisk() throws IOException {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final RingRecordStore actual = tiered(256L);
+        actual.start(64L);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        assertTrue(actual.getLength() <= 256L + 64L);
+
+        final byte[] whole = expected.toByteArray();
+        final byte[] tail = actual.toByteArray();
+        assertEquals(tail, Arrays.copyOfRange(
+                     whole, whole.length - tail.length, whole.length));
+    }
+
+
+    @Test
+    public void dumpThroughAppenderInChunks() throws IOException {
+
+        final LoggerContext context = new LoggerContext();
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        final BufferedOutputStreamAppender<ILoggingEvent> appender
+            = new BufferedOutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setLimit(4096);
+        appender.setStore(tiered(BufferedOutputStreamAppender.CHUNK_SIZE * 4));
+        appender.start();
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 32768; i++) {
+            final String message = Integer.toString(i);
+            appender.doAppend(new LoggingEvent(
+                getClass().getName(), context.getLogger("mapped"), Level.INFO,
+                message, null, null));
+            expected.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        final byte[] whole = expected.toByteArray();
+        final byte[] dumped = appender.toByteArray();
+        assertTrue(dumped.length > BufferedOutputStreamAppender.CHUNK_SIZE);
+        assertEquals(dumped, Arrays.copyOfRange(
+                     whole, whole.length - dumped.length, whole.length));
+
+        // both tiers are written a chunk at a time
+        final ByteArrayOutputStream output = new ByteArrayOutputStream() {
+
+            @Override
+            public synchronized void write(final byte[] b, final int off,
+                                           final int len) {
+
+                assertTrue(len <= BufferedOutputStreamAppender.CHUNK_SIZE + 8);
+                super.write(b, off, len);
+            }
+
+
+        };
+        appender.write(output);
+        assertEquals(output.toByteArray(), dumped);
+
+        appender.stop();
+        encoder.stop();
+        context.stop();
+    }
+
+
+    private static void assertTail(final List<byte[]> all, final long from,
+                                   final RecordCursor cursor,
+                                   final byte[] read)
+        throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (long i = from + cursor.getEvicted(); i < cursor.getSequence();
+             i++) {
+            expected.write(all.get((int) i));
+        }
+        assertEquals(read, expected.toByteArray());
+        assertEquals(cursor.getSequence() - from,
+                     cursor.getEvicted() + cursor.getCount());
+    }
+
+
+    @Test(invocationCount = 4)
+    public void readWithCursor() throws IOException {
+        final RecordStore actual = tiered(256L);
+        actual.start(16L); // some records go straight to the overflow
+
+        final List<byte[]> all = new ArrayList<>();
+        final RecordCursor cursor = new RecordCursor();
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            all.add(record);
+            actual.add(record, 0, record.length);
+            if (current().nextInt(16) == 0) {
+                final long from = cursor.getSequence();
+                final ByteArrayOutputStream output
+                    = new ByteArrayOutputStream();
+                assertEquals(actual.read(cursor, output), output.size());
+                assertTail(all, from, cursor, output.toByteArray());
+            }
+        }
+        assertEquals(actual.getSequence(), all.size());
+    }
+
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.slf4j.MarkerFactory;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class MdcFlightRecorderAppenderTest {
+
+
+    private PatternLayoutEncoder encoder(final LoggerContext context) {
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%X{requestId} %level %msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        return encoder;
+    }
+
+
+    private LoggingEvent event(final String requestId, final Level level,
+                               final String message) {
+
+        final LoggingEvent event = new LoggingEvent(
+            getClass().getName(), logger_, level, message, null, null);
+        event.setMDCPropertyMap(
+            Collections.singletonMap("requestId", requestId));
+
+        return event;
+    }
+
+
+    private MdcFlightRecorderAppender recorder(
+        final ByteArrayOutputStream file, final long budget) {
+
+        final LoggerContext context = logger_.getLoggerContext();
+
+        final RecordSinkAppender<ILoggingEvent> delegate
+            = new RecordSinkAppender<>();
+        delegate.setContext(context);
+        delegate.setEncoder(encoder(context));
+        delegate.setOutputStream(file);
+        delegate.start();
+
+        final MdcFlightRecorderAppender recorder
+            = new MdcFlightRecorderAppender();
+        recorder.setContext(context);
+        recorder.setEncoder(encoder(context));
+        recorder.setMdcKey("requestId");
+        recorder.setBudget(budget);
+        recorder.setEndMarker("END");
+        recorder.addAppender(delegate);
+        recorder.start();
+        assertTrue(recorder.isStarted());
+
+        return recorder;
+    }
+
+
+    @Test
+    public void onlyFailedRequestsEmitted() {
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        final MdcFlightRecorderAppender recorder = recorder(file, 65536L);
+
+        recorder.doAppend(event("1", Level.DEBUG, "a"));
+        recorder.doAppend(event("2", Level.DEBUG, "b"));
+        recorder.doAppend(event("1", Level.ERROR, "c"));
+        recorder.doAppend(event("2", Level.INFO, "d"));
+        assertEquals(file.size(), 0);
+        assertEquals(recorder.getRequestCount(), 2);
+
+        final LoggingEvent end2 = event("2", Level.DEBUG, "e");
+        end2.setMarker(MarkerFactory.getMarker("END"));
+        recorder.doAppend(end2);
+        assertEquals(file.size(), 0);
+
+        final LoggingEvent end1 = event("1", Level.DEBUG, "f");
+        end1.setMarker(MarkerFactory.getMarker("END"));
+        recorder.doAppend(end1);
+        assertEquals(file.toString(), "1 DEBUG a\n1 ERROR c\n1 DEBUG f\n");
+        assertEquals(recorder.getRequestCount(), 0);
+
+        recorder.stop();
+    }
+
+
+    @Test
+    public void budget() {
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        final MdcFlightRecorderAppender recorder = recorder(file, 64L);
+
+        recorder.doAppend(event("failed", Level.ERROR, "x"));
+        for (int i = 0; i < 100; i++) {
+            recorder.doAppend(event(Integer.toString(i), Level.DEBUG, "y"));
+            assertTrue(recorder.getRequestCount() <= 64 / "0 DEBUG y\n".length()
+                                                      + 1);
+        }
+
+        // the failed request is delivered once removed for the budget
+        assertEquals(file.toString(), "failed ERROR x\n");
+        assertEquals(recorder.end("99"), 0L);
+
+        recorder.stop();
+    }
+
+
+    private transient final ch.qos.logback.classic.Logger logger_
+        = (ch.qos.logback.classic.Logger) getLogger("mdc");
+
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class RecorderBridgeTest {
+
+
+    @Test
+    public void startAndFinish() throws ReflectiveOperationException {
+
+        final RecorderBridge bridge
+            = RecorderBridge.of(RecorderBridgeTest.class.getClassLoader());
+        assertSame(RecorderBridge.of(bridge.getClassLoader()), bridge);
+
+        final Object recorder = bridge.startLogRecorder(
+            logger, "%message%n", StandardCharsets.UTF_8, 1024);
+        final Object events = bridge.startEventRecorder(logger, 16);
+        logger.info("bridged");
+        assertEquals(((List<?>) bridge.finishEventRecorder(events)).size(), 1);
+        assertEquals(bridge.finishLogRecorder(recorder), "bridged\n");
+    }
+
+
+    @Test
+    public void startWithLogbackLoggerAndFinishWith()
+        throws ReflectiveOperationException {
+
+        final RecorderBridge bridge
+            = RecorderBridge.of(RecorderBridgeTest.class.getClassLoader());
+        final ch.qos.logback.classic.Logger logback
+            = (ch.qos.logback.classic.Logger) logger;
+
+        final Object log = bridge.startLogRecorder(
+            logback, "%message%n", StandardCharsets.UTF_8, 1024);
+        final Object listed = bridge.startEventRecorder(logback, 16);
+        final Object laidOut = bridge.startEventRecorder(logback, 16);
+        final Object patterned = bridge.startEventRecorder(logback, 16);
+        logger.info("bridged");
+
+        final List<ILoggingEvent> list = new ArrayList<>();
+        assertSame(bridge.finishEventRecorderWithList(listed, list), list);
+        assertEquals(list.size(), 1);
+
+        final PatternLayout layout = new PatternLayout();
+        layout.setPattern("%message%n");
+        final StringBuilder builder = new StringBuilder();
+        assertSame(bridge.finishEventRecorderWithLayoutAndAppendable(
+            laidOut, layout, builder), builder);
+        assertEquals(builder.toString(), "bridged\n");
+
+        builder.setLength(0);
+        assertSame(bridge.finishEventRecorderWithPatternAndAppendable(
+            patterned, "%level %message%n", builder), builder);
+        assertEquals(builder.toString(), "INFO bridged\n");
+
+        assertEquals(bridge.finishLogRecorder(log), "bridged\n");
+    }
+
+
+    @Test
+    public void foreignArguments() throws ReflectiveOperationException {
+
+        final RecorderBridge bridge
+            = RecorderBridge.of(RecorderBridgeTest.class.getClassLoader());
+        final Object recorder = bridge.startEventRecorder(logger, 16);
+        try {
+            try {
+                bridge.finishEventRecorder(new Object());
+                throw new AssertionError("finished");
+            } catch (final IllegalArgumentException iae) {
+                // expected
+            }
+            try {
+                bridge.finishEventRecorderWithLayoutAndAppendable(
+                    recorder, "%message", new StringBuilder());
+                throw new AssertionError("finished");
+            } catch (final IllegalArgumentException iae) {
+                // expected
+            }
+        } finally {
+            bridge.finishEventRecorder(recorder);
+        }
+    }
+
+
+    @Test
+    public void missingClasses() throws ReflectiveOperationException {
+
+        final RecorderBridge bridge
+            = RecorderBridge.of(new URLClassLoader(new URL[0], null));
+        ClassNotFoundException first = null;
+        for (int i = 0; i < 2; i++) {
+            try {
+                bridge.startEventRecorder(logger, 16);
+                throw new AssertionError("resolved");
+            } catch (final ClassNotFoundException cnfe) {
+                // the failure is resolved only once
+                if (first == null) {
+                    first = cnfe;
+                } else {
+                    assertSame(cnfe.getCause(), first.getCause());
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void cachedWhileClassLoaderReachable()
+        throws InterruptedException {
+
+        final ClassLoader loader = new URLClassLoader(new URL[0], null);
+        final int identity = System.identityHashCode(RecorderBridge.of(loader));
+
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(System.identityHashCode(RecorderBridge.of(loader)),
+                     identity);
+    }
+
+
+    @Test
+    public void foreignLogger() throws ReflectiveOperationException {
+
+        final RecorderBridge bridge
+            = RecorderBridge.of(RecorderBridgeTest.class.getClassLoader());
+        try {
+            bridge.startEventRecorder(new Object(), 16);
+            throw new AssertionError("started");
+        } catch (final IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void classLoaderUnloadable() throws InterruptedException {
+
+        ClassLoader loader = new URLClassLoader(new URL[0], null);
+        RecorderBridge.of(loader);
+        final WeakReference<ClassLoader> reference
+            = new WeakReference<>(loader);
+        loader = null;
+
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertNull(reference.get());
+    }
+
+
+    private transient final Logger logger
+        = getLogger(RecorderBridgeTest.class.getName() + ".b");
+
+
+}
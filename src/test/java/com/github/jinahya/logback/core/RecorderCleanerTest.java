@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import ch.qos.logback.classic.Logger;
+import java.nio.charset.StandardCharsets;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class RecorderCleanerTest {
+
+
+    private static void leak(final Logger logger) {
+
+        LogRecorder.start(logger, "%message%n", StandardCharsets.UTF_8, 1024);
+        ILoggingEventRecorder.start(logger, 16);
+    }
+
+
+    @Test
+    public void close() {
+
+        final DispatchingAppender dispatcher = DispatchingAppender.get(logger);
+
+        final LogRecorder closed = LogRecorder.start(
+            logger, "%message%n", StandardCharsets.UTF_8, 1024);
+        final ILoggingEventRecorder events
+            = ILoggingEventRecorder.start(logger, 16);
+        try {
+            assertEquals(dispatcher.getTargetCount(), 2);
+        } finally {
+            events.close();
+            closed.close();
+        }
+        assertEquals(dispatcher.getTargetCount(), 0);
+
+        final LogRecorder recorder = LogRecorder.start(
+            logger, "%message%n", StandardCharsets.UTF_8, 1024);
+        logger.info("finished");
+        assertEquals(LogRecorder.finish(recorder), "finished\n");
+        recorder.close();
+        assertEquals(dispatcher.getTargetCount(), 0);
+    }
+
+
+    @Test
+    public void cleanUnreachable() throws InterruptedException {
+
+        final boolean leakReporting = RecorderCleaner.isLeakReporting();
+        RecorderCleaner.setLeakReporting(true);
+        try {
+            final DispatchingAppender dispatcher
+                = DispatchingAppender.get(logger);
+            leak(logger);
+            assertEquals(dispatcher.getTargetCount(), 2);
+
+            int expunged = 0;
+            for (int i = 0; i < 100 && expunged < 2; i++) {
+                System.gc();
+                Thread.sleep(10L);
+                expunged += RecorderCleaner.expunge();
+            }
+            assertTrue(expunged >= 2);
+            assertEquals(dispatcher.getTargetCount(), 0);
+        } finally {
+            RecorderCleaner.setLeakReporting(leakReporting);
+        }
+    }
+
+
+    @Test
+    public void cleanUnreachableOnGet() throws InterruptedException {
+
+        final DispatchingAppender dispatcher = DispatchingAppender.get(logger);
+        leak(logger);
+        assertEquals(dispatcher.getTargetCount(), 2);
+
+        // appends never poll the queue
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(10L);
+            logger.info("appending");
+        }
+        assertEquals(dispatcher.getTargetCount(), 2);
+
+        // no recorder starts or stops; only looking up the dispatcher polls
+        for (int i = 0; i < 100 && dispatcher.getTargetCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(10L);
+            assertEquals(DispatchingAppender.get(logger), dispatcher);
+        }
+        assertEquals(dispatcher.getTargetCount(), 0);
+    }
+
+
+    private transient final Logger logger
+        = (Logger) getLogger(RecorderCleanerTest.class.getName() + ".c");
+
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import static java.util.concurrent.ThreadLocalRandom.current;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class RingRecordStoreTest {
+
+
+    private static byte[] record(final int length, final int value) {
+
+        final byte[] record = new byte[length];
+        for (int i = 0; i < record.length; i++) {
+            record[i] = (byte) value;
+        }
+
+        return record;
+    }
+
+
+    @Test(invocationCount = 16)
+    public void compareWithList() throws IOException {
+
+        final int limit = current().nextInt(128);
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(limit);
+
+        final RecordStore actual = new RingRecordStore();
+        actual.start(limit);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+            assertEquals(actual.getLength(), expected.getLength());
+        }
+
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        actual.write(output);
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void unlimited() {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final RecordStore actual = new RingRecordStore();
+        actual.start(-1L);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(64), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        assertEquals(actual.getLength(), expected.getLength());
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test(invocationCount = 16)
+    public void compareStreamedWithList() {
+
+        final int limit = current().nextInt(128);
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(limit);
+
+        final RecordStore actual = new RingRecordStore();
+        actual.start(limit);
+
+        for (int i = 0; i < 1024; i++) {
+            final int chunks = current().nextInt(4);
+            expected.begin();
+            actual.begin();
+            for (int j = 0; j < chunks; j++) {
+                final byte[] chunk = record(current().nextInt(16), i);
+                expected.append(chunk, 0, chunk.length);
+                actual.append(chunk, 0, chunk.length);
+            }
+            expected.commit();
+            actual.commit();
+            assertEquals(actual.getLength(), expected.getLength());
+        }
+
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void oversized() {
+
+        final RingRecordStore store = new RingRecordStore();
+        store.start(8L);
+
+        store.add(record(4, 1), 0, 4);
+        store.add(record(9, 2), 0, 9);
+
+        assertEquals(store.getLength(), 0L);
+        assertEquals(store.getCount(), 0);
+    }
+
+
+    @Test(invocationCount = 16)
+    public void writeToChannels() throws IOException {
+
+        final int limit = current().nextInt(128);
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(limit);
+
+        final RecordStore actual = new RingRecordStore();
+        actual.start(limit);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            expected.add(record, 0, record.length);
+            actual.add(record, 0, record.length);
+        }
+
+        final File file = File.createTempFile("tmp", null);
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(
+            file.toPath(), StandardOpenOption.WRITE)) {
+            assertEquals(actual.write(channel), expected.getLength());
+        }
+        assertEquals(Files.readAllBytes(file.toPath()),
+                     expected.toByteArray());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(actual.transferTo(Channels.newChannel(output)),
+                     expected.getLength());
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+
+    private static void assertTail(final List<byte[]> all, final long from,
+                                   final RecordCursor cursor,
+                                   final byte[] read)
+        throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (long i = from + cursor.getEvicted(); i < cursor.getSequence();
+             i++) {
+            expected.write(all.get((int) i));
+        }
+        assertEquals(read, expected.toByteArray());
+        assertEquals(cursor.getSequence() - from,
+                     cursor.getEvicted() + cursor.getCount());
+    }
+
+
+    @Test(invocationCount = 4)
+    public void readWithCursor() throws IOException {
+        final RecordStore actual = new RingRecordStore();
+        actual.start(current().nextInt(128));
+
+        final List<byte[]> all = new ArrayList<>();
+        final RecordCursor cursor = new RecordCursor();
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            all.add(record);
+            actual.add(record, 0, record.length);
+            if (current().nextInt(16) == 0) {
+                final long from = cursor.getSequence();
+                final ByteArrayOutputStream output
+                    = new ByteArrayOutputStream();
+                assertEquals(actual.read(cursor, output), output.size());
+                assertTail(all, from, cursor, output.toByteArray());
+            }
+        }
+        assertEquals(actual.getSequence(), all.size());
+    }
+
+
+
+    @Test(invocationCount = 4)
+    public void readWithCursorInChunks() throws IOException {
+        final RecordStore actual = new RingRecordStore();
+        actual.start(1024L);
+
+        final List<byte[]> all = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            final byte[] record = record(current().nextInt(32), i);
+            all.add(record);
+            actual.add(record, 0, record.length);
+        }
+
+        final RecordCursor cursor = new RecordCursor();
+        final ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        while (cursor.getSequence() < actual.getSequence()) {
+            final long from = cursor.getSequence();
+            final int max = current().nextInt(64);
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(actual.read(cursor, output, max), output.size());
+            assertTail(all, from, cursor, output.toByteArray());
+            assertTrue(cursor.getCount() > 0L);
+            assertTrue(output.size() < max + 32);
+            output.writeTo(whole);
+        }
+        assertEquals(whole.toByteArray(), actual.toByteArray());
+    }
+
+
+}
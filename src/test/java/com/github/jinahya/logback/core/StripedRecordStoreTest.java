@@ -0,0 +1,286 @@
+/*
+ * Copyright 2015 Jin Kwon &lt;jinahya_at_gmail.com&gt;.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.jinahya.logback.core;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author Jin Kwon &lt;jinahya_at_gmail.com&gt;
+ */
+public class StripedRecordStoreTest {
+
+
+    @Test
+    public void singleThread() {
+
+        final RecordStore expected = new ListRecordStore();
+        expected.start(-1L);
+
+        final StripedRecordStore actual = new StripedRecordStore();
+        actual.setStripeCount(4);
+        actual.start(-1L);
+
+        for (int i = 0; i < 1024; i++) {
+            final byte[] record
+                = (i + "\n").getBytes(StandardCharsets.US_ASCII);
+            expected.add(i, RecordStore.UNKNOWN_LEVEL, record, 0,
+                         record.length);
+            actual.add(i, RecordStore.UNKNOWN_LEVEL, record, 0, record.length);
+        }
+
+        assertEquals(actual.getLength(), expected.getLength());
+        assertEquals(actual.toByteArray(), expected.toByteArray());
+    }
+
+
+    @Test
+    public void mergedInOrder() throws InterruptedException {
+
+        final StripedRecordStore store = new StripedRecordStore();
+        store.setStripeCount(8);
+        store.start(-1L);
+
+        // each thread adds a batch of timestamps after the previous thread
+        for (int t = 0; t < 16; t++) {
+            final int batch = t;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    final long timestamp = batch * 100 + i;
+                    final byte[] record = (timestamp + "\n")
+                        .getBytes(StandardCharsets.US_ASCII);
+                    store.add(timestamp, RecordStore.UNKNOWN_LEVEL, record, 0,
+                              record.length);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+
+        final String[] lines = new String(
+            store.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertEquals(lines.length, 1600);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(Long.parseLong(lines[i]), i);
+        }
+    }
+
+
+    @Test
+    public void addConcurrently() throws InterruptedException {
+
+        final StripedRecordStore store = new StripedRecordStore();
+        store.setStripeCount(8);
+        store.start(65536L);
+
+        final AtomicLong clock = new AtomicLong();
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int t = 0; t < 16; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    final long timestamp = clock.getAndIncrement();
+                    final byte[] record = (timestamp + "\n")
+                        .getBytes(StandardCharsets.US_ASCII);
+                    store.add(timestamp, RecordStore.UNKNOWN_LEVEL, record, 0,
+                              record.length);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1L, TimeUnit.MINUTES);
+
+        assertTrue(store.getLength() <= 65536L);
+
+        final String merged
+            = new String(store.toByteArray(), StandardCharsets.US_ASCII);
+        assertEquals(merged.length(), store.getLength());
+        for (final String line : merged.split("\n")) {
+            assertTrue(Long.parseLong(line) < 160000L);
+        }
+    }
+
+
+    @Test
+    public void limitSharedByStripes() throws InterruptedException {
+
+        final long limit = (StripedRecordStore.HEADER_SIZE + 5L) * 64;
+
+        final StripedRecordStore store = new StripedRecordStore();
+        store.setStripeCount(8);
+        store.start(limit);
+
+        // a single thread uses a single stripe which may take the whole limit
+        for (int i = 0; i < 1000; i++) {
+            final byte[] record = String.format("%04d", i)
+                .concat("\n").getBytes(StandardCharsets.US_ASCII);
+            store.add(i, RecordStore.UNKNOWN_LEVEL, record, 0, record.length);
+        }
+        assertEquals(store.getLength(), 5L * 64);
+
+        // records of another stripe evict the oldest records of any stripe
+        // until the stripe holds its share, then its own oldest records
+        final Runnable adding = () -> {
+            for (int i = 1000; i < 1032; i++) {
+                final byte[] record = String.format("%04d", i)
+                    .concat("\n").getBytes(StandardCharsets.US_ASCII);
+                store.add(i, RecordStore.UNKNOWN_LEVEL, record, 0,
+                          record.length);
+            }
+        };
+        Thread thread;
+        do { // stripes are chosen by thread ids
+            thread = new Thread(adding);
+        } while ((thread.getId() & 7) == (Thread.currentThread().getId() & 7));
+        thread.start();
+        thread.join();
+        assertEquals(store.getLength(), 5L * 64);
+
+        final String[] lines = new String(
+            store.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertEquals(lines.length, 64);
+        final int share = 64 / 8;
+        for (int i = 0; i < 64 - share; i++) {
+            assertEquals(Integer.parseInt(lines[i]), 1000 - 64 + share + i);
+        }
+        for (int i = 0; i < share; i++) {
+            assertEquals(Integer.parseInt(lines[64 - share + i]),
+                         1032 - share + i);
+        }
+    }
+
+
+    @Test
+    public void arenasShrinkAfterBursts() {
+
+        final StripedRecordStore store = new StripedRecordStore();
+        store.setStripeCount(1);
+        store.start(-1L);
+
+        final byte[] record = new byte[1024];
+        for (int i = 0; i < 1024; i++) {
+            store.add(i, RecordStore.UNKNOWN_LEVEL, record, 0, record.length);
+        }
+        store.clear();
+        assertEquals(store.getLength(), 0L);
+        assertTrue(store.capacity() <= RingRecordStore.INITIAL_ARENA_SIZE);
+    }
+
+
+    @Test
+    public void mergeMoreThanChunks() throws IOException {
+
+        final StripedRecordStore store = new StripedRecordStore();
+        store.setStripeCount(2);
+        store.start(-1L);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < StripedRecordStore.CHUNK_SIZE; i++) {
+            final byte[] record = (i + "\n").getBytes(StandardCharsets.US_ASCII);
+            store.add(i, RecordStore.UNKNOWN_LEVEL, record, 0, record.length);
+            expected.write(record);
+        }
+
+        final RecordCursor cursor = new RecordCursor(100L);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.read(cursor, output);
+        assertEquals(cursor.getCount(), StripedRecordStore.CHUNK_SIZE - 100L);
+        assertEquals(cursor.getEvicted(), 0L);
+        final byte[] whole = expected.toByteArray();
+        assertEquals(output.toByteArray(), Arrays.copyOfRange(
+                     whole, "0\n".length() * 10 + "10\n".length() * 90,
+                     whole.length));
+    }
+
+
+    @Test
+    public void readWithCursor() throws IOException {
+
+        final StripedRecordStore store = new StripedRecordStore();
+        store.setStripeCount(1);
+        store.start((StripedRecordStore.HEADER_SIZE + 2L) * 3);
+
+        final RecordCursor cursor = new RecordCursor();
+        for (int i = 0; i < 10; i++) {
+            final byte[] record = (i + "\n").getBytes(StandardCharsets.US_ASCII);
+            store.add(i, RecordStore.UNKNOWN_LEVEL, record, 0, record.length);
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.read(cursor, output);
+        assertEquals(output.toString("US-ASCII"), "7\n8\n9\n");
+        assertEquals(cursor.getSequence(), 10L);
+        assertEquals(cursor.getEvicted(), 7L);
+
+        output.reset();
+        store.read(cursor, output);
+        assertEquals(output.size(), 0);
+        assertEquals(cursor.getCount(), 0L);
+        assertEquals(cursor.getEvicted(), 0L);
+    }
+
+
+    @Test
+    public void readOnlyNewerAcrossStripes()
+        throws InterruptedException, IOException {
+
+        final StripedRecordStore store = new StripedRecordStore();
+        store.setStripeCount(4);
+        store.start(-1L);
+
+        final RecordCursor cursor = new RecordCursor();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int t = 0; t < 8; t++) {
+            final int batch = t;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    final long timestamp = batch * 100 + i;
+                    final byte[] record = (timestamp + "\n")
+                        .getBytes(StandardCharsets.US_ASCII);
+                    store.add(timestamp, RecordStore.UNKNOWN_LEVEL, record, 0,
+                              record.length);
+                }
+            });
+            thread.start();
+            thread.join();
+
+            output.reset();
+            store.read(cursor, output);
+            assertEquals(cursor.getSequence(), (batch + 1) * 100L);
+            assertEquals(cursor.getCount(), 100L);
+            assertEquals(cursor.getEvicted(), 0L);
+            final String[] lines = output.toString("US-ASCII").split("\n");
+            assertEquals(lines.length, 100);
+            for (int i = 0; i < lines.length; i++) {
+                assertEquals(Long.parseLong(lines[i]), batch * 100L + i);
+            }
+        }
+    }
+
+
+}